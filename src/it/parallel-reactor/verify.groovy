@@ -0,0 +1,25 @@
+File buildLogFile = new File( basedir, "build.log" );
+assert buildLogFile.exists();
+String buildLog = buildLogFile.getText("UTF-8");
+assert !(buildLog =~ /WARNING\] \*.*bill-of-materials-maven-plugin/);
+
+List<String> modules = ['parallel-parent-pom', 'child1', 'child2', 'child3', 'child4'];
+for (String writeMode : ['APPEND', 'AGGREGATE']) {
+    File bomFile = new File( basedir, "target/" + writeMode + "/bill-of-materials.txt" );
+    assert bomFile.exists();
+    List<String> lines = bomFile.getText("UTF-8").readLines();
+    // One section per module: the parent with its POM, every child with its jar and POM.
+    assert lines.size() == 14;
+    List<String> sections = lines.findAll { it.startsWith('# ') }.collect { it.split(':')[1] };
+    if (writeMode == 'AGGREGATE') {
+        assert sections == modules;
+    } else {
+        assert sections.sort(false) == modules.sort(false);
+    }
+    for (int i = 1; i <= 4; i++) {
+        assert lines.count { it.endsWith("  child" + i + "-1.0-SNAPSHOT.jar") } == 1;
+        assert lines.count { it.endsWith("  child" + i + "-1.0-SNAPSHOT.pom") } == 1;
+    }
+}
+
+return true;
@@ -0,0 +1,129 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashCode;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Creates the fixture files of the benchmarks locally.
+ *
+ * <p>Files are written below <tt>target/jmh-fixtures</tt> (or the directory given in the system property
+ * <tt>bill-of-materials.fixtures</tt>) with content derived from a fixed seed, so repeated runs hash and
+ * parse exactly the same bytes. Existing fixtures of the right size are reused.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+final class Fixtures {
+
+    /**
+     * Size of the chunks written at once.
+     */
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * Number of entries in every module section of a generated bill of materials.
+     */
+    private static final int ENTRIES_PER_SECTION = 10;
+
+    /**
+     * Utility class.
+     */
+    private Fixtures() {
+    }
+
+    /**
+     * @return the directory holding the fixtures.
+     * @throws IOException when the directory could not be created.
+     */
+    static File directory() throws IOException {
+        final File directory = new File(System.getProperty("bill-of-materials.fixtures", "target/jmh-fixtures"));
+        Files.createDirectories(directory.toPath());
+        return directory;
+    }
+
+    /**
+     * Returns a file with pseudo random content.
+     *
+     * @param size in bytes
+     * @return the file.
+     * @throws IOException when the file could not be written.
+     */
+    static File artifact(long size) throws IOException {
+        final File file = new File(directory(), String.format(Locale.ENGLISH, "artifact-%d.jar", size));
+        if (file.length() == size) {
+            return file;
+        }
+        final Random random = new Random(size);
+        final byte[] chunk = new byte[CHUNK_SIZE];
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            for (long written = 0; written < size; written += chunk.length) {
+                random.nextBytes(chunk);
+                out.write(chunk, 0, (int) Math.min(chunk.length, size - written));
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Returns a bill of materials with sections of {@link #ENTRIES_PER_SECTION} entries.
+     *
+     * @param entries number of hash lines
+     * @return the file.
+     * @throws IOException when the file could not be written.
+     */
+    static File billOfMaterials(int entries) throws IOException {
+        final File file = new File(directory(), String.format(Locale.ENGLISH, "bill-of-materials-%d.txt", entries));
+        final String[] lines = hashLines(entries);
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), Charsets.UTF_8)) {
+            for (int i = 0; i < lines.length; i++) {
+                if (i % ENTRIES_PER_SECTION == 0) {
+                    writer.append(String.format(Locale.ENGLISH, "# company:module%d:1.0 user=benchmark\n",
+                            i / ENTRIES_PER_SECTION));
+                }
+                writer.append(lines[i]).append('\n');
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Creates hash lines as written by {@link BillOfMaterials#toBomString(java.util.Map, String)}, every section starts with a POM.
+     *
+     * @param entries number of hash lines
+     * @return the lines.
+     */
+    static String[] hashLines(int entries) {
+        final Random random = new Random(entries);
+        final byte[] hash = new byte[20];
+        final String[] lines = new String[entries];
+        for (int i = 0; i < entries; i++) {
+            random.nextBytes(hash);
+            final int module = i / ENTRIES_PER_SECTION;
+            final String extension = i % ENTRIES_PER_SECTION == 0 ? "pom" : (i % ENTRIES_PER_SECTION) + ".jar";
+            lines[i] = String.format(Locale.ENGLISH, "%s  module%d-1.0.%s",
+                    HashCode.fromBytes(hash), module, extension);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Splitter;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hashes a single artifact through a {@link ChannelFileHasher} and formats its lines with
+ * {@link BillOfMaterials#toBomString(java.util.Map, String)}, as the <tt>create</tt> goal does.
+ *
+ * <p>Sizes of several GB are given on the command line, e.g. <tt>-p size=4294967296</tt>.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class HashingBenchmark {
+
+    /**
+     * Size of the artifact in bytes.
+     */
+    @Param({"1024", "1048576", "67108864", "1073741824"})
+    private long size;
+
+    /**
+     * Comma separated digest algorithms.
+     */
+    @Param({"SHA-1", "SHA-1,SHA-256,SHA-512"})
+    private String algorithms;
+
+    /**
+     * Artifact to hash.
+     */
+    private File artifact;
+
+    /**
+     * Hasher under test.
+     */
+    private FileHasher fileHasher;
+
+    /**
+     * Creates the artifact and the hasher.
+     *
+     * @throws IOException when the artifact could not be written.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        artifact = Fixtures.artifact(size);
+        fileHasher = new ChannelFileHasher(Splitter.on(',').splitToList(algorithms));
+    }
+
+    /**
+     * @return the hash lines of the artifact.
+     * @throws IOException when the artifact could not be read.
+     */
+    @Benchmark
+    public String toBomString() throws IOException {
+        return BillOfMaterials.toBomString(fileHasher.hash(artifact), artifact.getName());
+    }
+}
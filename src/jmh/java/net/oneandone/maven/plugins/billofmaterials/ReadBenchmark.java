@@ -0,0 +1,105 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.hash.HashCode;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reads and parses a bill of materials with {@link BillOfMaterialsReader} and {@link BillOfMaterials}.
+ *
+ * @author Mirko Friedenhagen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ReadBenchmark {
+
+    /**
+     * Number of hash lines in the bill of materials.
+     */
+    @Param({"10", "100", "1000", "10000"})
+    private int entries;
+
+    /**
+     * Bill of materials to read.
+     */
+    private File bomFile;
+
+    /**
+     * Creates the bill of materials.
+     *
+     * @throws IOException when the file could not be written.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        bomFile = Fixtures.billOfMaterials(entries);
+    }
+
+    /**
+     * Streams all lines to a handler keeping nothing.
+     *
+     * @param blackhole consumes the parsed values
+     * @return the SHA1 of the file.
+     * @throws IOException when the file could not be read.
+     */
+    @Benchmark
+    public HashCode read(final Blackhole blackhole) throws IOException {
+        return new BillOfMaterialsReader(new BillOfMaterialsReader.Handler() {
+            @Override
+            public void section(String coordinates, String line) {
+                blackhole.consume(coordinates);
+            }
+
+            @Override
+            public void entry(String algorithm, String hash, String fileName, String line) {
+                blackhole.consume(hash);
+                blackhole.consume(fileName);
+            }
+
+            @Override
+            public void digest(String algorithm, String hash, String fileName, String line) {
+                blackhole.consume(hash);
+            }
+        }).read(bomFile);
+    }
+
+    /**
+     * @return the indexed model.
+     * @throws IOException when the file could not be read.
+     */
+    @Benchmark
+    public BillOfMaterials parse() throws IOException {
+        return BillOfMaterials.parse(bomFile);
+    }
+}
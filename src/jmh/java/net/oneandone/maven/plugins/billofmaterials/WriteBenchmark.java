@@ -0,0 +1,105 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.project.MavenProject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writes the section of a module through {@link CreateBillOfMaterialsMojo#writeResults(List)}.
+ *
+ * @author Mirko Friedenhagen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class WriteBenchmark {
+
+    /**
+     * Number of hash lines of the module.
+     */
+    @Param({"10", "100", "1000", "10000"})
+    private int entries;
+
+    /**
+     * Hash lines to write.
+     */
+    private List<String> hashLines;
+
+    /**
+     * Written bill of materials.
+     */
+    private File bomFile;
+
+    /**
+     * Mojo under test.
+     */
+    private CreateBillOfMaterialsMojo mojo;
+
+    /**
+     * Creates the hash lines and the mojo.
+     *
+     * @throws IOException when the fixture directory could not be created.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        hashLines = Arrays.asList(Fixtures.hashLines(entries));
+        bomFile = new File(Fixtures.directory(), "written-bill-of-materials.txt");
+        final MavenProject project = new MavenProject();
+        project.setGroupId("company");
+        project.setArtifactId("module");
+        project.setVersion("1.0");
+        mojo = new CreateBillOfMaterialsMojo(bomFile, project);
+    }
+
+    /**
+     * Starts every iteration with an empty bill of materials.
+     *
+     * @throws IOException when the file could not be deleted.
+     */
+    @Setup(Level.Iteration)
+    public void deleteBillOfMaterials() throws IOException {
+        Files.deleteIfExists(bomFile.toPath());
+    }
+
+    /**
+     * @throws IOException when the section could not be written.
+     */
+    @Benchmark
+    public void writeResults() throws IOException {
+        mojo.writeResults(hashLines);
+    }
+}
@@ -15,7 +15,14 @@
  */
 package net.oneandone.maven.plugins.billofmaterials;
 
+import com.google.common.base.Function;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
@@ -41,6 +48,11 @@ public abstract class AbstractBillOfMaterialsMojo extends AbstractMojo {
     @Parameter(defaultValue = "${project}", readonly = true)
     private MavenProject project;
 
+    /**
+     * Function to get the file from the artifact.
+     */
+    private final Function<Artifact, File> toFileFunction = new ToFileFunction();
+
     /**
      * Default constructor for maven.
      */
@@ -74,4 +86,24 @@ public abstract class AbstractBillOfMaterialsMojo extends AbstractMojo {
     MavenProject getProject() {
         return project;
     }
+
+    /**
+     * Creates a list of all artifacts for the build.
+     * @return a list of all artifacts for the build including the attached ones.
+     */
+    final List<File> getListOfArtifactsAsFiles() {
+        final List<Artifact> attachedArtifacts = project.getAttachedArtifacts();
+        // We need a copy here as otherwise install and deploy will choke later on because
+        // we attach the POM as well.
+        final List<File> files = new ArrayList<>(
+                Collections2.filter(
+                    Lists.transform(attachedArtifacts, toFileFunction),
+                        Files.isFile()));
+        final String packaging = project.getPackaging();
+        // POMs return null as their artifact, which will crash the transformation lateron.
+        if (!"pom".equals(packaging)) {
+            files.add(project.getArtifact().getFile());
+        }
+        return files;
+    }
 }
@@ -0,0 +1,271 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.Lock;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Appends the sections of all modules of a reactor to the bill of materials from a single background thread.
+ *
+ * <p>Modules hand over their records through a bounded queue and only block while it is full. The writer thread
+ * keeps the file open, drains all queued records into one sequential write and holds the lock for the bill of
+ * materials only while writing a batch. After the last module of the reactor has handed over its record, the
+ * writer thread writes the remaining records, optionally forces them to the storage device and closes the file.
+ * When some modules never hand over their record, the writer is closed at the end of the session instead.
+ * The first failure of the writer thread is reported to every module handing over a record afterwards.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+final class AsyncBillOfMaterialsWriter {
+
+    /**
+     * Marks the end of the records.
+     */
+    private static final byte[] END = new byte[0];
+
+    /**
+     * Target file.
+     */
+    private final File bomFile;
+
+    /**
+     * Lock for the bill of materials in this JVM.
+     */
+    private final Lock lock;
+
+    /**
+     * Records not written yet.
+     */
+    private final BlockingQueue<byte[]> queue;
+
+    /**
+     * Force the content to the storage device before closing.
+     */
+    private final boolean fsync;
+
+    /**
+     * Projects which handed over their record.
+     */
+    private final ReactorCompletion completion;
+
+    /**
+     * Background writer, started with the first record.
+     */
+    private Thread thread;
+
+    /**
+     * Whether {@link #close()} was invoked already.
+     */
+    private boolean closed;
+
+    /**
+     * First failure of the writer thread.
+     */
+    private volatile IOException failure;
+
+    /**
+     * Number of writes, just for tests.
+     */
+    private volatile int batches;
+
+    /**
+     * @param bomFile target file.
+     * @param lock for the bill of materials in this JVM.
+     * @param projects of the reactor in build order.
+     * @param capacity maximum number of queued records.
+     * @param fsync force the content to the storage device before closing.
+     */
+    AsyncBillOfMaterialsWriter(File bomFile, Lock lock, List<MavenProject> projects, int capacity, boolean fsync) {
+        this.bomFile = bomFile;
+        this.lock = lock;
+        this.completion = new ReactorCompletion(projects);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.fsync = fsync;
+    }
+
+    /**
+     * Hands over the record of a project, blocking only while the queue is full.
+     *
+     * @param project the record belongs to
+     * @param record complete section of the project as written to the file
+     * @return true when this was the last project of the reactor, the caller should invoke {@link #close()} then.
+     * @throws IOException when the writer thread failed before or waiting was interrupted.
+     */
+    boolean add(MavenProject project, byte[] record) throws IOException {
+        throwFailure();
+        start();
+        try {
+            queue.put(record);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while queueing the bill of materials of " + project);
+        }
+        return completion.finish(project);
+    }
+
+    /**
+     * @return the projects which did not hand over their record when the writer has to be closed at the end of the
+     * session, the caller should invoke {@link #close()} then, otherwise <tt>null</tt>.
+     */
+    List<String> completeAtSessionEnd() {
+        return completion.completeAtSessionEnd() ? completion.getMissing() : null;
+    }
+
+    /**
+     * Waits until the writer thread has written all records and closed the file. Invoking it again only reports
+     * the failure of the writer thread.
+     *
+     * @throws IOException when the writer thread failed or waiting was interrupted.
+     */
+    void close() throws IOException {
+        final Thread writer;
+        synchronized (this) {
+            writer = closed ? null : thread;
+            closed = true;
+        }
+        if (writer != null) {
+            try {
+                queue.put(END);
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while writing " + bomFile);
+            }
+        }
+        throwFailure();
+    }
+
+    /**
+     * @return the number of writes, just for tests.
+     */
+    int getBatches() {
+        return batches;
+    }
+
+    /**
+     * Starts the writer thread unless it is running already.
+     */
+    private synchronized void start() {
+        if (thread == null) {
+            thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        writeRecords();
+                    } catch (IOException e) {
+                        failure = e;
+                        discardRecords();
+                    } catch (InterruptedException e) {
+                        failure = new InterruptedIOException("Interrupted while writing " + bomFile);
+                    }
+                }
+            }, "bill-of-materials-writer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Writes batches of records until the end is reached.
+     *
+     * @throws IOException when the file could not be written.
+     * @throws InterruptedException when waiting for records was interrupted.
+     */
+    private void writeRecords() throws IOException, InterruptedException {
+        Files.createDirectories(bomFile.getAbsoluteFile().getParentFile().toPath());
+        try (FileChannel channel = FileChannel.open(bomFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            final List<byte[]> records = new ArrayList<>();
+            boolean end = false;
+            while (!end) {
+                records.clear();
+                records.add(queue.take());
+                queue.drainTo(records);
+                final ByteArrayOutputStream batch = new ByteArrayOutputStream();
+                for (final byte[] record : records) {
+                    if (record == END) {
+                        end = true;
+                    } else {
+                        batch.write(record);
+                    }
+                }
+                write(channel, ByteBuffer.wrap(batch.toByteArray()));
+            }
+            if (fsync) {
+                channel.force(true);
+            }
+        }
+    }
+
+    /**
+     * Takes records until the end is reached after a failure, so modules do not block on a full queue.
+     */
+    private void discardRecords() {
+        try {
+            while (queue.take() != END) {
+                continue;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Appends a batch while holding the lock for the bill of materials in this JVM and an exclusive
+     * {@link FileLock} for other processes.
+     *
+     * @param channel to write to
+     * @param batch to append
+     * @throws IOException when the batch could not be written.
+     */
+    private void write(FileChannel channel, ByteBuffer batch) throws IOException {
+        if (!batch.hasRemaining()) {
+            return;
+        }
+        lock.lock();
+        try (FileLock fileLock = channel.lock()) {
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            batches++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @throws IOException the first failure of the writer thread, if any.
+     */
+    private void throwFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("Could not write " + bomFile, failure);
+        }
+    }
+}
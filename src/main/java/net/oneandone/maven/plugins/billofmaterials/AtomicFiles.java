@@ -0,0 +1,104 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Replaces files atomically: the content is written to a temporary file in the same directory, which is then
+ * renamed, so readers either see the previous or the complete new content. Missing parent directories are created.
+ *
+ * @author Mirko Friedenhagen
+ */
+final class AtomicFiles {
+
+    /**
+     * Writes the content of a file.
+     */
+    interface Content {
+
+        /**
+         * @param out to write to, closing it is allowed, e.g. to finish a compressed stream
+         * @throws IOException when the content could not be written.
+         */
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * No instances.
+     */
+    private AtomicFiles() {
+        super();
+    }
+
+    /**
+     * @param target file to replace
+     * @param content written to the temporary file
+     * @throws IOException when the content could not be written or the file could not be replaced.
+     */
+    static void write(File target, Content content) throws IOException {
+        final Path targetPath = target.getAbsoluteFile().toPath();
+        Files.createDirectories(targetPath.getParent());
+        final Path temporary = Files.createTempFile(targetPath.getParent(), target.getName(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                content.writeTo(out);
+            }
+            Files.move(temporary, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * @param target file to replace
+     * @param content of the file
+     * @throws IOException when the file could not be written or replaced.
+     */
+    static void write(File target, final byte[] content) throws IOException {
+        write(target, new Content() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(content);
+            }
+        });
+    }
+
+    /**
+     * @param target file to replace
+     * @param content of the file, written as UTF-8
+     * @throws IOException when the file could not be written or replaced.
+     */
+    static void write(File target, String content) throws IOException {
+        write(target, content.getBytes(Charsets.UTF_8));
+    }
+
+    /**
+     * @param out to write text to, usually the stream passed to {@link Content#writeTo(OutputStream)}
+     * @return a buffered UTF-8 writer, which must be closed to flush the text.
+     */
+    static BufferedWriter newWriter(OutputStream out) {
+        return new BufferedWriter(new OutputStreamWriter(out, Charsets.UTF_8));
+    }
+}
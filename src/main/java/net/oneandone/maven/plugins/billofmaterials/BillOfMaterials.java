@@ -0,0 +1,362 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+import com.google.common.hash.HashCode;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory model of a bill of materials, indexed by the coordinates of the module sections, by file name and by
+ * digest. The model is built in a single pass by {@link #parse(File)}.
+ *
+ * @author Mirko Friedenhagen
+ */
+final class BillOfMaterials {
+
+    /**
+     * Coordinates of the section holding entries found before the first module comment.
+     */
+    static final String NO_COORDINATES = "";
+
+    /**
+     * Sections by coordinates in the order of the file.
+     */
+    private final Map<String, Section> sections = new LinkedHashMap<>();
+
+    /**
+     * Entries by file name.
+     */
+    private final ListMultimap<String, Entry> entriesByFileName = ArrayListMultimap.create();
+
+    /**
+     * Entries by lower case hex encoded digest.
+     */
+    private final ListMultimap<String, Entry> entriesByHash = ArrayListMultimap.create();
+
+    /**
+     * SHA1 of the content the model was parsed from.
+     */
+    private HashCode sha1;
+
+    /**
+     * Use {@link #parse(File)}.
+     */
+    private BillOfMaterials() {
+        super();
+    }
+
+    /**
+     * Formats the digests of a file as written by the <tt>create</tt> goal.
+     *
+     * <p>The primary digest results in a line in the format of <tt>sha1sum</tt>, every additional digest
+     * in a line in the format of <tt>sha256sum --tag</tt>, e.g.:</p>
+     * <pre>
+     * da39a3ee5e6b4b0d3255bfef95601890afd80709  a-v.jar
+     * SHA256 (a-v.jar) = e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855
+     * </pre>
+     *
+     * <p>The primary line is tagged as well when its algorithm could not be guessed from the length of the digest,
+     * see {@link DigestAlgorithms#primaryLine(String, String, String)}.</p>
+     *
+     * @param hashes digests by algorithm, the first one is the primary
+     * @param fileName name of the file
+     * @return one line per digest, separated by a newline.
+     */
+    static String toBomString(Map<String, HashCode> hashes, String fileName) {
+        final StringBuilder lines = new StringBuilder();
+        for (final Map.Entry<String, HashCode> hash : hashes.entrySet()) {
+            if (lines.length() == 0) {
+                lines.append(DigestAlgorithms.primaryLine(hash.getKey(), hash.getValue().toString(), fileName));
+            } else {
+                lines.append('\n').append(
+                        DigestAlgorithms.taggedLine(hash.getKey(), hash.getValue().toString(), fileName));
+            }
+        }
+        return lines.toString();
+    }
+
+    /**
+     * Parses the given bill of materials.
+     *
+     * @param bomFile to parse
+     * @return the model.
+     * @throws IOException when the file could not be read.
+     */
+    static BillOfMaterials parse(File bomFile) throws IOException {
+        final BillOfMaterials billOfMaterials = new BillOfMaterials();
+        billOfMaterials.sha1 = new BillOfMaterialsReader(billOfMaterials.new Parser()).read(bomFile);
+        return billOfMaterials;
+    }
+
+    /**
+     * Parses a bill of materials from the given stream, which is not closed.
+     *
+     * @param in to parse
+     * @return the model.
+     * @throws IOException when the stream could not be read.
+     */
+    static BillOfMaterials parse(InputStream in) throws IOException {
+        final BillOfMaterials billOfMaterials = new BillOfMaterials();
+        billOfMaterials.sha1 = new BillOfMaterialsReader(billOfMaterials.new Parser()).read(in);
+        return billOfMaterials;
+    }
+
+    /**
+     * @return the sections in the order of the file.
+     */
+    Collection<Section> getSections() {
+        return Collections.unmodifiableCollection(sections.values());
+    }
+
+    /**
+     * @param coordinates <tt>groupId:artifactId:version</tt> of the module
+     * @return the section of the module or <tt>null</tt>.
+     */
+    Section getSection(String coordinates) {
+        return sections.get(coordinates);
+    }
+
+    /**
+     * @return all entries in the order of the file.
+     */
+    List<Entry> getEntries() {
+        final List<Entry> entries = new ArrayList<>(size());
+        for (final Section section : sections.values()) {
+            entries.addAll(section.entries);
+        }
+        return entries;
+    }
+
+    /**
+     * @param fileName name of the file
+     * @return all entries for the file name, usually one.
+     */
+    List<Entry> findByFileName(String fileName) {
+        return Collections.unmodifiableList(entriesByFileName.get(fileName));
+    }
+
+    /**
+     * @param hash hex encoded digest
+     * @return all entries with the given digest.
+     */
+    List<Entry> findByHash(String hash) {
+        return Collections.unmodifiableList(entriesByHash.get(hash.toLowerCase(Locale.ENGLISH)));
+    }
+
+    /**
+     * @return the number of entries.
+     */
+    int size() {
+        return entriesByFileName.size();
+    }
+
+    /**
+     * @return the SHA1 of the content the model was parsed from.
+     */
+    HashCode getSha1() {
+        return sha1;
+    }
+
+    /**
+     * Builds the model from the lines handed over by the {@link BillOfMaterialsReader}.
+     */
+    private final class Parser implements BillOfMaterialsReader.Handler {
+
+        /**
+         * Section new entries are added to.
+         */
+        private Section currentSection;
+
+        @Override
+        public void section(String coordinates, String line) {
+            currentSection = sections.get(coordinates);
+            if (currentSection == null) {
+                currentSection = new Section(coordinates, line);
+                sections.put(coordinates, currentSection);
+            }
+        }
+
+        /**
+         * Entry additional digests are added to.
+         */
+        private Entry lastEntry;
+
+        @Override
+        public void entry(String algorithm, String hash, String fileName, String line) {
+            if (currentSection == null) {
+                section(NO_COORDINATES, "");
+            }
+            lastEntry = new Entry(currentSection.coordinates, algorithm, hash.toLowerCase(Locale.ENGLISH), fileName);
+            currentSection.entries.add(lastEntry);
+            entriesByFileName.put(fileName, lastEntry);
+            entriesByHash.put(lastEntry.hash, lastEntry);
+        }
+
+        @Override
+        public void digest(String algorithm, String hash, String fileName, String line) {
+            if (lastEntry != null && lastEntry.fileName.equals(fileName)) {
+                final String lowerCaseHash = hash.toLowerCase(Locale.ENGLISH);
+                lastEntry.additionalDigests.put(algorithm, lowerCaseHash);
+                entriesByHash.put(lowerCaseHash, lastEntry);
+            }
+        }
+    }
+
+    /**
+     * The entries of one module, started by a comment like <tt># company:child1:1.0-SNAPSHOT user=mirko</tt>.
+     */
+    static final class Section {
+
+        /**
+         * <tt>groupId:artifactId:version</tt> of the module.
+         */
+        private final String coordinates;
+
+        /**
+         * The complete comment line.
+         */
+        private final String comment;
+
+        /**
+         * Entries in the order of the file.
+         */
+        private final List<Entry> entries = new ArrayList<>();
+
+        /**
+         * @param coordinates <tt>groupId:artifactId:version</tt> of the module
+         * @param comment the complete comment line
+         */
+        Section(String coordinates, String comment) {
+            this.coordinates = coordinates;
+            this.comment = comment;
+        }
+
+        /**
+         * @return <tt>groupId:artifactId:version</tt> of the module.
+         */
+        String getCoordinates() {
+            return coordinates;
+        }
+
+        /**
+         * @return the complete comment line.
+         */
+        String getComment() {
+            return comment;
+        }
+
+        /**
+         * @return the entries in the order of the file.
+         */
+        List<Entry> getEntries() {
+            return ImmutableList.copyOf(entries);
+        }
+    }
+
+    /**
+     * A single hash line.
+     */
+    static final class Entry {
+
+        /**
+         * <tt>groupId:artifactId:version</tt> of the module.
+         */
+        private final String coordinates;
+
+        /**
+         * Algorithm of the primary digest, given by its tag or guessed from its length.
+         */
+        private final String algorithm;
+
+        /**
+         * Lower case hex encoded digest.
+         */
+        private final String hash;
+
+        /**
+         * Name of the file.
+         */
+        private final String fileName;
+
+        /**
+         * Lower case hex encoded additional digests by algorithm.
+         */
+        private final Map<String, String> additionalDigests = new LinkedHashMap<>(2);
+
+        /**
+         * @param coordinates <tt>groupId:artifactId:version</tt> of the module
+         * @param algorithm of the primary digest
+         * @param hash lower case hex encoded digest
+         * @param fileName name of the file
+         */
+        Entry(String coordinates, String algorithm, String hash, String fileName) {
+            this.coordinates = coordinates;
+            this.algorithm = algorithm;
+            this.hash = hash;
+            this.fileName = fileName;
+        }
+
+        /**
+         * @return <tt>groupId:artifactId:version</tt> of the module.
+         */
+        String getCoordinates() {
+            return coordinates;
+        }
+
+        /**
+         * @return the lower case hex encoded digest.
+         */
+        String getHash() {
+            return hash;
+        }
+
+        /**
+         * @return the name of the file.
+         */
+        String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * Returns all digests of the file.
+         *
+         * @return lower case hex encoded digests by algorithm, the primary one first.
+         */
+        Map<String, String> getDigests() {
+            final Map<String, String> digests = new LinkedHashMap<>(additionalDigests.size() + 1);
+            digests.put(algorithm, hash);
+            digests.putAll(additionalDigests);
+            return digests;
+        }
+
+        @Override
+        public String toString() {
+            return hash + "  " + fileName;
+        }
+    }
+}
@@ -0,0 +1,422 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Differences between two bills of materials, independent of the order of the modules and entries.
+ *
+ * <p>The entries of both bills of materials are indexed in hash maps by the coordinates of their module and their
+ * file name and matched in linear time. An entry listed more than once, e.g. by concatenated bills of materials,
+ * matches as many entries of the other bill of materials, preferring those with equal digests. When versions are
+ * ignored, the version is removed from the coordinates as well as from the file name, so
+ * <tt>company:child1:1.0 child1-1.0.jar</tt> matches <tt>company:child1:1.1 child1-1.1.jar</tt>. The version of
+ * a dependency is removed from its repository path, so <tt>g/a/1.0/a-1.0.jar</tt> matches
+ * <tt>g/a/1.1/a-1.1.jar</tt>. Two matching entries are unchanged when all digests calculated for both of them
+ * are equal.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+final class BillOfMaterialsDiff {
+
+    /**
+     * Suffix of snapshot versions.
+     */
+    private static final String SNAPSHOT = "-SNAPSHOT";
+
+    /**
+     * Repository path of a dependency, e.g. <tt>org/slf4j/slf4j-api/1.7.25/slf4j-api-1.7.25.jar</tt>.
+     */
+    private static final Pattern REPOSITORY_PATH = Pattern.compile("^(.*/)?([^/]+)/([^/]+)/([^/]+)$");
+
+    /**
+     * Timestamp and build number of a deployed snapshot following its base version, e.g.
+     * <tt>-20170101.120000-1</tt>.
+     */
+    private static final Pattern SNAPSHOT_TIMESTAMP = Pattern.compile("^-\\d{8}\\.\\d{6}-\\d+");
+
+    /**
+     * Orders entries by module and file name.
+     */
+    private static final Comparator<BillOfMaterials.Entry> BY_KEY = new Comparator<BillOfMaterials.Entry>() {
+        @Override
+        public int compare(BillOfMaterials.Entry o1, BillOfMaterials.Entry o2) {
+            final int byCoordinates = o1.getCoordinates().compareTo(o2.getCoordinates());
+            return byCoordinates != 0 ? byCoordinates : o1.getFileName().compareTo(o2.getFileName());
+        }
+    };
+
+    /**
+     * Orders changes by module and file name of the old entry.
+     */
+    private static final Comparator<Change> CHANGE_BY_KEY = new Comparator<Change>() {
+        @Override
+        public int compare(Change o1, Change o2) {
+            return BY_KEY.compare(o1.from, o2.from);
+        }
+    };
+
+    /**
+     * Entries only found in the new bill of materials.
+     */
+    private final List<BillOfMaterials.Entry> added = new ArrayList<>();
+
+    /**
+     * Entries only found in the old bill of materials.
+     */
+    private final List<BillOfMaterials.Entry> removed = new ArrayList<>();
+
+    /**
+     * Entries found in both with different digests.
+     */
+    private final List<Change> changed = new ArrayList<>();
+
+    /**
+     * Entries of the new bill of materials found with equal digests in the old one.
+     */
+    private final List<BillOfMaterials.Entry> unchanged = new ArrayList<>();
+
+    /**
+     * Use {@link #of(BillOfMaterials, BillOfMaterials, boolean)}.
+     */
+    private BillOfMaterialsDiff() {
+        super();
+    }
+
+    /**
+     * Compares two bills of materials.
+     *
+     * @param from old bill of materials
+     * @param to new bill of materials
+     * @param ignoreVersions whether entries of different versions of a module match
+     * @return the differences, sorted by module and file name.
+     */
+    static BillOfMaterialsDiff of(BillOfMaterials from, BillOfMaterials to, boolean ignoreVersions) {
+        final BillOfMaterialsDiff diff = new BillOfMaterialsDiff();
+        final List<BillOfMaterials.Entry> fromEntries = from.getEntries();
+        final Map<String, Deque<BillOfMaterials.Entry>> remaining = new HashMap<>();
+        for (final BillOfMaterials.Entry entry : fromEntries) {
+            final String key = key(entry, ignoreVersions);
+            Deque<BillOfMaterials.Entry> candidates = remaining.get(key);
+            if (candidates == null) {
+                candidates = new ArrayDeque<>(1);
+                remaining.put(key, candidates);
+            }
+            candidates.add(entry);
+        }
+        final List<BillOfMaterials.Entry> unmatched = new ArrayList<>();
+        for (final BillOfMaterials.Entry entry : to.getEntries()) {
+            if (removeUnchanged(remaining.get(key(entry, ignoreVersions)), entry)) {
+                diff.unchanged.add(entry);
+            } else {
+                unmatched.add(entry);
+            }
+        }
+        for (final BillOfMaterials.Entry entry : unmatched) {
+            final Deque<BillOfMaterials.Entry> candidates = remaining.get(key(entry, ignoreVersions));
+            final BillOfMaterials.Entry candidate = candidates == null ? null : candidates.poll();
+            if (candidate == null) {
+                diff.added.add(entry);
+            } else {
+                diff.changed.add(new Change(candidate, entry));
+            }
+        }
+        for (final Deque<BillOfMaterials.Entry> candidates : remaining.values()) {
+            diff.removed.addAll(candidates);
+        }
+        Collections.sort(diff.added, BY_KEY);
+        Collections.sort(diff.removed, BY_KEY);
+        Collections.sort(diff.changed, CHANGE_BY_KEY);
+        Collections.sort(diff.unchanged, BY_KEY);
+        return diff;
+    }
+
+    /**
+     * Removes an old entry with the digests of the new one. Entries with other digests are only matched after all
+     * unchanged entries, so a duplicate never takes the place of an unchanged entry.
+     *
+     * @param candidates old entries with the key of the new entry, null when there are none
+     * @param entry new entry
+     * @return true when an old entry with equal digests was removed.
+     */
+    private static boolean removeUnchanged(Deque<BillOfMaterials.Entry> candidates, BillOfMaterials.Entry entry) {
+        if (candidates == null) {
+            return false;
+        }
+        for (final Iterator<BillOfMaterials.Entry> iterator = candidates.iterator(); iterator.hasNext();) {
+            if (sameDigests(iterator.next(), entry)) {
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param entry to index
+     * @param ignoreVersions whether to remove the version from coordinates and file name
+     * @return the key of the entry.
+     */
+    static String key(BillOfMaterials.Entry entry, boolean ignoreVersions) {
+        final String coordinates = entry.getCoordinates();
+        final String fileName = entry.getFileName();
+        if (!ignoreVersions) {
+            return coordinates + ' ' + fileName;
+        }
+        final String versionlessFileName = fileName.indexOf('/') == -1
+                ? withoutModuleVersion(coordinates, fileName) : withoutRepositoryVersion(fileName);
+        final int versionStart = coordinates.lastIndexOf(':');
+        if (versionStart == -1 || coordinates.indexOf(':') == versionStart) {
+            return coordinates + ' ' + versionlessFileName;
+        }
+        return coordinates.substring(0, versionStart) + ' ' + versionlessFileName;
+    }
+
+    /**
+     * @param coordinates of the module, e.g. <tt>company:child1:1.0</tt>
+     * @param fileName of an artifact of the module, e.g. <tt>child1-1.0.jar</tt>
+     * @return the file name without the version of the module, e.g. <tt>child1.jar</tt>.
+     */
+    private static String withoutModuleVersion(String coordinates, String fileName) {
+        final int versionStart = coordinates.lastIndexOf(':');
+        if (versionStart == -1 || coordinates.indexOf(':') == versionStart) {
+            return fileName;
+        }
+        final String version = coordinates.substring(versionStart + 1);
+        final int versionInFileName = fileName.indexOf('-' + version);
+        return versionInFileName == -1 ? fileName : fileName.substring(0, versionInFileName)
+                + fileName.substring(versionInFileName + 1 + version.length());
+    }
+
+    /**
+     * Removes the version directory and the version in the file name of a dependency, including the timestamp
+     * of a snapshot.
+     *
+     * @param path repository path of a dependency, e.g. <tt>g/a/1.0-SNAPSHOT/a-1.0-20170101.120000-1.jar</tt>
+     * @return the path without the version, e.g. <tt>g/a/a.jar</tt>, the path itself when it does not follow the
+     * repository layout.
+     */
+    static String withoutRepositoryVersion(String path) {
+        final Matcher matcher = REPOSITORY_PATH.matcher(path);
+        if (!matcher.matches()) {
+            return path;
+        }
+        final String artifactId = matcher.group(2);
+        final String version = matcher.group(3);
+        final String fileName = matcher.group(4);
+        final String baseVersion = version.endsWith(SNAPSHOT)
+                ? version.substring(0, version.length() - SNAPSHOT.length()) : version;
+        final String versioned = artifactId + '-' + baseVersion;
+        if (!fileName.startsWith(versioned)) {
+            return path;
+        }
+        String suffix = fileName.substring(versioned.length());
+        if (suffix.startsWith(SNAPSHOT)) {
+            suffix = suffix.substring(SNAPSHOT.length());
+        } else {
+            final Matcher timestamp = SNAPSHOT_TIMESTAMP.matcher(suffix);
+            if (timestamp.lookingAt()) {
+                suffix = suffix.substring(timestamp.end());
+            }
+        }
+        final String groupPath = matcher.group(1) == null ? "" : matcher.group(1);
+        return groupPath + artifactId + '/' + artifactId + suffix;
+    }
+
+    /**
+     * @param from old entry
+     * @param to new entry
+     * @return true when all digests calculated for both entries are equal.
+     */
+    private static boolean sameDigests(BillOfMaterials.Entry from, BillOfMaterials.Entry to) {
+        if (from.getHash().equals(to.getHash())) {
+            final Map<String, String> fromDigests = from.getDigests();
+            for (final Map.Entry<String, String> digest : to.getDigests().entrySet()) {
+                final String fromDigest = fromDigests.get(digest.getKey());
+                if (fromDigest != null && !fromDigest.equals(digest.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return entries only found in the new bill of materials.
+     */
+    List<BillOfMaterials.Entry> getAdded() {
+        return Collections.unmodifiableList(added);
+    }
+
+    /**
+     * @return entries only found in the old bill of materials.
+     */
+    List<BillOfMaterials.Entry> getRemoved() {
+        return Collections.unmodifiableList(removed);
+    }
+
+    /**
+     * @return entries found in both with different digests.
+     */
+    List<Change> getChanged() {
+        return Collections.unmodifiableList(changed);
+    }
+
+    /**
+     * @return entries of the new bill of materials found with equal digests in the old one.
+     */
+    List<BillOfMaterials.Entry> getUnchanged() {
+        return Collections.unmodifiableList(unchanged);
+    }
+
+    /**
+     * @return true when no entry was added, removed or changed.
+     */
+    boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    /**
+     * @return a summary line.
+     */
+    String getSummary() {
+        return String.format(Locale.ENGLISH, "%d added, %d removed, %d changed, %d unchanged",
+                added.size(), removed.size(), changed.size(), unchanged.size());
+    }
+
+    /**
+     * Lists the added, removed and changed entries like a unified diff, followed by the summary.
+     *
+     * @return the report.
+     */
+    String toText() {
+        final StringBuilder text = new StringBuilder();
+        for (final BillOfMaterials.Entry entry : added) {
+            text.append("+ ").append(entry.getCoordinates()).append(' ').append(entry).append('\n');
+        }
+        for (final BillOfMaterials.Entry entry : removed) {
+            text.append("- ").append(entry.getCoordinates()).append(' ').append(entry).append('\n');
+        }
+        for (final Change change : changed) {
+            text.append("~ ").append(change.from.getCoordinates()).append(' ').append(change.from)
+                    .append(" -> ").append(change.to.getCoordinates()).append(' ').append(change.to).append('\n');
+        }
+        return text.append(getSummary()).append('\n').toString();
+    }
+
+    /**
+     * @return the report as JSON, listing unchanged entries as well.
+     */
+    String toJson() {
+        final StringBuilder json = new StringBuilder(String.format(Locale.ENGLISH,
+                "{\n  \"added\": %d,\n  \"removed\": %d,\n  \"changed\": %d,\n  \"unchanged\": %d,\n",
+                added.size(), removed.size(), changed.size(), unchanged.size()));
+        appendEntries(json, "addedEntries", added);
+        json.append(",\n");
+        appendEntries(json, "removedEntries", removed);
+        json.append(",\n  \"changedEntries\": [");
+        for (int i = 0; i < changed.size(); i++) {
+            json.append(i == 0 ? "\n    " : ",\n    ").append("{\"from\": ").append(toJson(changed.get(i).from))
+                    .append(", \"to\": ").append(toJson(changed.get(i).to)).append('}');
+        }
+        json.append(changed.isEmpty() ? "],\n" : "\n  ],\n");
+        appendEntries(json, "unchangedEntries", unchanged);
+        return json.append("\n}\n").toString();
+    }
+
+    /**
+     * @param json to append to
+     * @param name of the array
+     * @param entries to append
+     */
+    private static void appendEntries(StringBuilder json, String name, List<BillOfMaterials.Entry> entries) {
+        json.append("  ").append(JsonStrings.quote(name)).append(": [");
+        for (int i = 0; i < entries.size(); i++) {
+            json.append(i == 0 ? "\n    " : ",\n    ").append(toJson(entries.get(i)));
+        }
+        json.append(entries.isEmpty() ? "]" : "\n  ]");
+    }
+
+    /**
+     * @param entry to format
+     * @return the entry as JSON object.
+     */
+    private static String toJson(BillOfMaterials.Entry entry) {
+        final StringBuilder json = new StringBuilder("{\"module\": ")
+                .append(JsonStrings.quote(entry.getCoordinates()))
+                .append(", \"file\": ").append(JsonStrings.quote(entry.getFileName()))
+                .append(", \"digests\": {");
+        boolean first = true;
+        for (final Map.Entry<String, String> digest : entry.getDigests().entrySet()) {
+            json.append(first ? "" : ", ").append(JsonStrings.quote(digest.getKey())).append(": ")
+                    .append(JsonStrings.quote(digest.getValue()));
+            first = false;
+        }
+        return json.append("}}").toString();
+    }
+
+    /**
+     * An entry found in both bills of materials with different digests.
+     */
+    static final class Change {
+
+        /**
+         * Entry of the old bill of materials.
+         */
+        private final BillOfMaterials.Entry from;
+
+        /**
+         * Entry of the new bill of materials.
+         */
+        private final BillOfMaterials.Entry to;
+
+        /**
+         * @param from entry of the old bill of materials
+         * @param to entry of the new bill of materials
+         */
+        Change(BillOfMaterials.Entry from, BillOfMaterials.Entry to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * @return entry of the old bill of materials.
+         */
+        BillOfMaterials.Entry getFrom() {
+            return from;
+        }
+
+        /**
+         * @return entry of the new bill of materials.
+         */
+        BillOfMaterials.Entry getTo() {
+            return to;
+        }
+    }
+}
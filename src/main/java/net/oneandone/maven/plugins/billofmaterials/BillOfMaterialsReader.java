@@ -0,0 +1,199 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashCode;
+import com.google.common.io.ByteStreams;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads a bill of materials line by line and hands comments, hash lines and tagged lines of additional digests
+ * to a {@link Handler}.
+ *
+ * <p>Nothing but the current line is kept in memory, handlers decide what to keep. While reading, the SHA1 of the
+ * raw content is calculated.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+final class BillOfMaterialsReader {
+
+    /**
+     * Comment line starting a module section, e.g. <tt># company:child1:1.0-SNAPSHOT user=mirko</tt>.
+     */
+    private static final Pattern SECTION = Pattern.compile("^# (\\S+)(?: .*)?$");
+
+    /**
+     * Hash line in the format of <tt>sha1sum</tt>, e.g. <tt>da39a3ee5e6b4b0d3255bfef95601890afd80709  a-v.pom</tt>.
+     */
+    private static final Pattern ENTRY = Pattern.compile("^(\\p{XDigit}+) [ *](.+)$");
+
+    /**
+     * Additional digest in the format of <tt>sha256sum --tag</tt>, e.g. <tt>SHA256 (a-v.pom) = e3b0...</tt>.
+     */
+    private static final Pattern TAGGED = Pattern.compile("^([A-Z][A-Za-z0-9-]*) \\((.+)\\) = (\\p{XDigit}+)$");
+
+    /**
+     * Receives the parsed lines.
+     */
+    interface Handler {
+
+        /**
+         * Called for the comment starting a module section.
+         *
+         * @param coordinates <tt>groupId:artifactId:version</tt> of the module.
+         * @param line complete line.
+         */
+        void section(String coordinates, String line);
+
+        /**
+         * Called for every hash line and every tagged line not following a hash line of the same file.
+         *
+         * @param algorithm name of the {@link MessageDigest} algorithm, given by the tag or guessed from the
+         * length of an untagged digest.
+         * @param hash hex encoded digest.
+         * @param fileName name of the file.
+         * @param line complete line.
+         */
+        void entry(String algorithm, String hash, String fileName, String line);
+
+        /**
+         * Called for every tagged line of an additional digest following a hash line of the same file.
+         *
+         * @param algorithm name of the {@link MessageDigest} algorithm.
+         * @param hash hex encoded digest.
+         * @param fileName name of the file.
+         * @param line complete line.
+         */
+        void digest(String algorithm, String hash, String fileName, String line);
+    }
+
+    /**
+     * Receives the parsed lines.
+     */
+    private final Handler handler;
+
+    /**
+     * Name of the file of the last hash line, <tt>null</tt> at the start of a section.
+     */
+    private String lastFileName;
+
+    /**
+     * @param handler receives the parsed lines.
+     */
+    BillOfMaterialsReader(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Reads the given bill of materials.
+     *
+     * @param bomFile to read
+     * @return SHA1 of the content.
+     * @throws IOException when the file could not be read.
+     */
+    HashCode read(File bomFile) throws IOException {
+        try (InputStream in = new FileInputStream(bomFile)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads a bill of materials from the given stream, which is not closed. Binary bills of materials, see
+     * {@link BinaryBillOfMaterials}, and compressed ones, see {@link Compression}, are detected by their magic bytes.
+     * Compressed content is decompressed as a stream.
+     *
+     * @param in to read
+     * @return SHA1 of the content.
+     * @throws IOException when the stream could not be read.
+     */
+    HashCode read(InputStream in) throws IOException {
+        final DigestInputStream digestInputStream = new DigestInputStream(in, newSha1());
+        final BufferedInputStream rawInputStream = new BufferedInputStream(digestInputStream);
+        final InputStream decompressedInputStream = Compression.decompress(rawInputStream);
+        final BufferedInputStream bufferedInputStream = decompressedInputStream == rawInputStream
+                ? rawInputStream : new BufferedInputStream(decompressedInputStream);
+        if (BinaryBillOfMaterials.isBinary(bufferedInputStream)) {
+            BinaryBillOfMaterials.read(new DataInputStream(bufferedInputStream), handler);
+            ByteStreams.exhaust(bufferedInputStream);
+        } else {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(bufferedInputStream, Charsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                parseLine(line);
+            }
+        }
+        // the SHA1 covers the raw, possibly compressed content.
+        ByteStreams.exhaust(rawInputStream);
+        return HashCode.fromBytes(digestInputStream.getMessageDigest().digest());
+    }
+
+    /**
+     * Hands a single line to the handler, lines which are neither a section comment, a hash line nor a tagged line
+     * are ignored. A tagged line starts a new entry unless it follows a line of the same file, so the primary digest
+     * may be tagged when its algorithm could not be guessed from its length.
+     *
+     * @param line to parse
+     */
+    void parseLine(String line) {
+        final Matcher tagged = TAGGED.matcher(line);
+        if (tagged.matches()) {
+            final String algorithm = DigestAlgorithms.fromTag(tagged.group(1));
+            final String fileName = tagged.group(2);
+            if (fileName.equals(lastFileName)) {
+                handler.digest(algorithm, tagged.group(3), fileName, line);
+            } else {
+                lastFileName = fileName;
+                handler.entry(algorithm, tagged.group(3), fileName, line);
+            }
+            return;
+        }
+        final Matcher entry = ENTRY.matcher(line);
+        if (entry.matches()) {
+            lastFileName = entry.group(2);
+            handler.entry(DigestAlgorithms.forHash(entry.group(1)), entry.group(1), lastFileName, line);
+            return;
+        }
+        final Matcher section = SECTION.matcher(line);
+        if (section.matches()) {
+            lastFileName = null;
+            handler.section(section.group(1), line);
+        }
+    }
+
+    /**
+     * @return a new SHA1 digest.
+     */
+    private static MessageDigest newSha1() {
+        try {
+            return MessageDigest.getInstance(FileHasher.SHA1);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 must be available in every JVM", e);
+        }
+    }
+}
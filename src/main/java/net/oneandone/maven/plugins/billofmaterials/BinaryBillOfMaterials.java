@@ -0,0 +1,685 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.hash.HashCode;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary representation of a bill of materials.
+ *
+ * <p>Digests are stored as raw bytes and all names, coordinates, comments and algorithms are stored once in a string
+ * table. File names starting with <tt>artifactId-version</tt> of their section only store the remainder, e.g.
+ * <tt>-sources.jar</tt>, which is shared by all modules. The index of the sections precedes the entries, so it is
+ * read without touching the entries. All numbers are big endian:</p>
+ * <pre>
+ * magic      'B' 'O' 'M' 'B'
+ * version    byte
+ * strings    int count, count * modified UTF-8 string
+ * index      int count, count * (int coordinates, int comment suffix, int number of entries)
+ * entries    per section and entry: int name, byte flags, byte digests,
+ *            digests * (int algorithm, byte length, length * byte)
+ * </pre>
+ *
+ * <p>Converting back results in the text layout written by {@link CreateBillOfMaterialsMojo}, hash lines always use
+ * two blanks between digest and name.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+final class BinaryBillOfMaterials {
+
+    /**
+     * Start of every binary bill of materials.
+     */
+    private static final byte[] MAGIC = {'B', 'O', 'M', 'B'};
+
+    /**
+     * Version of the format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Flag of an entry whose name is prefixed with <tt>artifactId-version</tt> of its section.
+     */
+    private static final int PREFIXED = 1;
+
+    /**
+     * Minimal size of a string in the string table: the length of an empty modified UTF-8 string.
+     */
+    private static final int MIN_STRING_BYTES = 2;
+
+    /**
+     * Size of an entry of the index.
+     */
+    private static final int SECTION_INDEX_BYTES = 12;
+
+    /**
+     * Minimal size of an entry: name, flags and number of digests.
+     */
+    private static final int MIN_ENTRY_BYTES = 6;
+
+    /**
+     * Largest initial capacity of tables whose size is only read from the file.
+     */
+    private static final int MAX_INITIAL_CAPACITY = 1024;
+
+    /**
+     * No instances.
+     */
+    private BinaryBillOfMaterials() {
+        super();
+    }
+
+    /**
+     * Returns the binary file written next to the text file, e.g. <tt>bill-of-materials.bin</tt> for
+     * <tt>bill-of-materials.txt</tt> or <tt>bill-of-materials.txt.gz</tt>.
+     *
+     * @param bomFile text file
+     * @return the binary file.
+     */
+    static File binaryFileFor(File bomFile) {
+        String baseName = bomFile.getName();
+        for (final String extension : new String[] {".gz", ".txt"}) {
+            if (baseName.endsWith(extension)) {
+                baseName = baseName.substring(0, baseName.length() - extension.length());
+            }
+        }
+        return new File(bomFile.getParentFile(), baseName + ".bin");
+    }
+
+    /**
+     * Checks for the magic bytes without consuming them.
+     *
+     * @param in supporting {@link InputStream#mark(int)}
+     * @return true when the stream starts with a binary bill of materials.
+     * @throws IOException when the stream could not be read.
+     */
+    static boolean isBinary(InputStream in) throws IOException {
+        final byte[] start = new byte[MAGIC.length];
+        in.mark(MAGIC.length);
+        try {
+            return ByteStreams.read(in, start, 0, start.length) == start.length && Arrays.equals(MAGIC, start);
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * Converts a text bill of materials, replacing the binary file atomically.
+     *
+     * @param textFile to convert
+     * @param binaryFile target
+     * @throws IOException when the text could not be read or the binary file could not be written.
+     */
+    static void convertToBinary(File textFile, File binaryFile) throws IOException {
+        final Encoder encoder = encode(textFile);
+        AtomicFiles.write(binaryFile, new AtomicFiles.Content() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                try (DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out))) {
+                    encoder.writeTo(data);
+                }
+            }
+        });
+    }
+
+    /**
+     * Checks that every digest of a text bill of materials may be encoded in the binary format, e.g. before adding
+     * further sections to a file which is converted afterwards.
+     *
+     * @param textFile to check
+     * @throws IOException when the text could not be read or a digest is no valid hex string.
+     */
+    static void checkDigests(File textFile) throws IOException {
+        encode(textFile);
+    }
+
+    /**
+     * @param textFile to encode
+     * @return the encoder holding all sections, with all digests decoded.
+     * @throws IOException when the text could not be read or a digest is no valid hex string.
+     */
+    private static Encoder encode(File textFile) throws IOException {
+        final Encoder encoder = new Encoder();
+        new BillOfMaterialsReader(encoder).read(textFile);
+        encoder.rethrow();
+        return encoder;
+    }
+
+    /**
+     * Converts a bill of materials to the text layout, replacing the text file atomically.
+     *
+     * @param bomFile to convert, binary or text
+     * @param textFile target
+     * @throws IOException when the bill of materials could not be read or the text file could not be written.
+     */
+    static void convertToText(final File bomFile, File textFile) throws IOException {
+        AtomicFiles.write(textFile, new AtomicFiles.Content() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                try (BufferedWriter writer = AtomicFiles.newWriter(out)) {
+                    final LineWriter lineWriter = new LineWriter(writer);
+                    new BillOfMaterialsReader(lineWriter).read(bomFile);
+                    lineWriter.rethrow();
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads only the string table and the index of the sections.
+     *
+     * @param binaryFile to read
+     * @return the number of entries by coordinates of the sections in file order.
+     * @throws IOException when the file could not be read, is no binary bill of materials or its counts do not fit
+     * the size of the file.
+     */
+    static Map<String, Integer> readIndex(File binaryFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(binaryFile)))) {
+            final Header header = Header.read(in, binaryFile.length());
+            final Map<String, Integer> index = new LinkedHashMap<>();
+            for (final SectionIndex section : header.sections) {
+                final Integer previous = index.get(section.coordinates);
+                index.put(section.coordinates, section.entries + (previous == null ? 0 : previous));
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Hands all sections and entries to the handler, together with lines in the text layout.
+     *
+     * @param in positioned at the magic bytes
+     * @param handler receiving the parsed values
+     * @throws IOException when the stream could not be read or is no binary bill of materials.
+     */
+    static void read(DataInputStream in, BillOfMaterialsReader.Handler handler) throws IOException {
+        final Header header = Header.read(in, -1);
+        for (final SectionIndex section : header.sections) {
+            if (!section.coordinates.isEmpty()) {
+                handler.section(section.coordinates, section.comment());
+            }
+            final String prefix = prefixOf(section.coordinates);
+            for (int i = 0; i < section.entries; i++) {
+                final String storedName = header.string(in.readInt());
+                final String fileName = (in.readUnsignedByte() & PREFIXED) != 0 ? prefix + storedName : storedName;
+                final int digests = in.readUnsignedByte();
+                for (int j = 0; j < digests; j++) {
+                    final String algorithm = header.string(in.readInt());
+                    final byte[] digest = new byte[in.readUnsignedByte()];
+                    in.readFully(digest);
+                    final String hash = HashCode.fromBytes(digest).toString();
+                    if (j == 0) {
+                        handler.entry(algorithm, hash, fileName,
+                                DigestAlgorithms.primaryLine(algorithm, hash, fileName));
+                    } else {
+                        handler.digest(algorithm, hash, fileName,
+                                DigestAlgorithms.taggedLine(algorithm, hash, fileName));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param coordinates <tt>groupId:artifactId:version</tt> of a section
+     * @return <tt>artifactId-version</tt> or <tt>null</tt> for other coordinates.
+     */
+    private static String prefixOf(String coordinates) {
+        final String[] parts = coordinates.split(":");
+        return parts.length == 3 ? parts[1] + "-" + parts[2] : null;
+    }
+
+    /**
+     * String table and index of the sections.
+     */
+    private static final class Header {
+
+        /**
+         * String table.
+         */
+        private final List<String> strings;
+
+        /**
+         * Index of the sections.
+         */
+        private final List<SectionIndex> sections;
+
+        /**
+         * @param strings string table
+         * @param sections index of the sections
+         */
+        private Header(List<String> strings, List<SectionIndex> sections) {
+            this.strings = strings;
+            this.sections = sections;
+        }
+
+        /**
+         * Reads the header. The counts are checked against the remaining size, when it is known, before anything is
+         * allocated, and tables only grow with the strings and sections actually read otherwise.
+         *
+         * @param in positioned at the magic bytes
+         * @param length size of the binary bill of materials in bytes, <tt>-1</tt> when unknown
+         * @return the header.
+         * @throws IOException when the stream could not be read, is no binary bill of materials or a count does not
+         * fit the size.
+         */
+        static Header read(DataInputStream in, long length) throws IOException {
+            final CountingInputStream counting = new CountingInputStream(in);
+            final DataInputStream data = new DataInputStream(counting);
+            final byte[] magic = new byte[MAGIC.length];
+            data.readFully(magic);
+            if (!Arrays.equals(MAGIC, magic)) {
+                throw new IOException("Not a binary bill of materials");
+            }
+            final int version = data.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version " + version + " of binary bill of materials");
+            }
+            final int stringCount = checkCount(data.readInt(), MIN_STRING_BYTES, length, counting, "strings");
+            final List<String> strings = new ArrayList<>(Math.min(stringCount, MAX_INITIAL_CAPACITY));
+            for (int i = 0; i < stringCount; i++) {
+                strings.add(data.readUTF());
+            }
+            final int count = checkCount(data.readInt(), SECTION_INDEX_BYTES, length, counting, "sections");
+            final List<SectionIndex> sections = new ArrayList<>(Math.min(count, MAX_INITIAL_CAPACITY));
+            final Header header = new Header(strings, sections);
+            long entries = 0;
+            for (int i = 0; i < count; i++) {
+                final SectionIndex section = new SectionIndex(
+                        header.string(data.readInt()), header.string(data.readInt()), data.readInt());
+                if (section.entries < 0) {
+                    throw new IOException("Invalid number of entries " + section.entries
+                            + " in binary bill of materials");
+                }
+                entries += section.entries;
+                sections.add(section);
+            }
+            if (length >= 0 && entries * MIN_ENTRY_BYTES > length - counting.getCount()) {
+                throw new IOException("Invalid number of entries " + entries + " in binary bill of materials of "
+                        + length + " bytes");
+            }
+            return header;
+        }
+
+        /**
+         * @param count read from the header
+         * @param minimumBytes size of the smallest element
+         * @param length size of the binary bill of materials in bytes, <tt>-1</tt> when unknown
+         * @param counting bytes read so far
+         * @param elements name of the elements for the message
+         * @return the count.
+         * @throws IOException when the count is negative or the elements do not fit into the remaining bytes.
+         */
+        private static int checkCount(int count, int minimumBytes, long length, CountingInputStream counting,
+                                      String elements) throws IOException {
+            if (count < 0 || length >= 0 && (long) count * minimumBytes > length - counting.getCount()) {
+                throw new IOException("Invalid number of " + elements + " " + count
+                        + " in binary bill of materials");
+            }
+            return count;
+        }
+
+        /**
+         * @param index in the string table
+         * @return the string.
+         * @throws IOException when the index is out of range.
+         */
+        String string(int index) throws IOException {
+            if (index < 0 || index >= strings.size()) {
+                throw new EOFException("Invalid string index " + index + " in binary bill of materials");
+            }
+            return strings.get(index);
+        }
+    }
+
+    /**
+     * Entry of the index.
+     */
+    private static final class SectionIndex {
+
+        /**
+         * <tt>groupId:artifactId:version</tt> or {@link BillOfMaterials#NO_COORDINATES}.
+         */
+        private final String coordinates;
+
+        /**
+         * Remainder of the comment after the coordinates, e.g. <tt>user=mirko</tt>.
+         */
+        private final String commentSuffix;
+
+        /**
+         * Number of entries.
+         */
+        private final int entries;
+
+        /**
+         * @param coordinates of the section
+         * @param commentSuffix remainder of the comment
+         * @param entries number of entries
+         */
+        SectionIndex(String coordinates, String commentSuffix, int entries) {
+            this.coordinates = coordinates;
+            this.commentSuffix = commentSuffix;
+            this.entries = entries;
+        }
+
+        /**
+         * @return the comment line starting the section.
+         */
+        String comment() {
+            return commentSuffix.isEmpty() ? "# " + coordinates : "# " + coordinates + " " + commentSuffix;
+        }
+    }
+
+    /**
+     * Collects a text bill of materials and writes it in the binary format.
+     */
+    private static final class Encoder implements BillOfMaterialsReader.Handler {
+
+        /**
+         * Index in the string table by string.
+         */
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+        /**
+         * Sections in file order.
+         */
+        private final List<EncodedSection> sections = new ArrayList<>();
+
+        /**
+         * First digest which is no valid hex string, as the handler may not throw.
+         */
+        private IOException failure;
+
+        @Override
+        public void section(String coordinates, String line) {
+            final String commentSuffix = line.substring(("# " + coordinates).length()).trim();
+            sections.add(new EncodedSection(intern(coordinates), intern(commentSuffix), prefixOf(coordinates)));
+        }
+
+        @Override
+        public void entry(String algorithm, String hash, String fileName, String line) {
+            if (sections.isEmpty()) {
+                sections.add(new EncodedSection(
+                        intern(BillOfMaterials.NO_COORDINATES), intern(""), null));
+            }
+            final EncodedSection section = sections.get(sections.size() - 1);
+            final boolean prefixed = section.prefix != null && fileName.startsWith(section.prefix);
+            final EncodedEntry entry = new EncodedEntry(
+                    intern(prefixed ? fileName.substring(section.prefix.length()) : fileName), prefixed, fileName);
+            entry.add(intern(algorithm), decode(fileName, hash));
+            section.entries.add(entry);
+        }
+
+        @Override
+        public void digest(String algorithm, String hash, String fileName, String line) {
+            if (sections.isEmpty()) {
+                return;
+            }
+            final List<EncodedEntry> entries = sections.get(sections.size() - 1).entries;
+            if (!entries.isEmpty() && entries.get(entries.size() - 1).fileName.equals(fileName)) {
+                entries.get(entries.size() - 1).add(intern(algorithm), decode(fileName, hash));
+            }
+        }
+
+        /**
+         * @param fileName of the entry
+         * @param hash hex encoded digest
+         * @return the digest, <tt>null</tt> when it is no valid hex string.
+         */
+        private byte[] decode(String fileName, String hash) {
+            try {
+                return HashCode.fromString(hash).asBytes();
+            } catch (IllegalArgumentException e) {
+                if (failure == null) {
+                    failure = new IOException("Invalid digest of " + fileName + ": " + hash, e);
+                }
+                return null;
+            }
+        }
+
+        /**
+         * @throws IOException the first digest which is no valid hex string.
+         */
+        void rethrow() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        /**
+         * @param value to add to the string table
+         * @return the index in the string table.
+         */
+        private int intern(String value) {
+            final Integer index = strings.get(value);
+            if (index != null) {
+                return index;
+            }
+            strings.put(value, strings.size());
+            return strings.size() - 1;
+        }
+
+        /**
+         * @param out to write to
+         * @throws IOException when writing failed.
+         */
+        void writeTo(DataOutputStream out) throws IOException {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(strings.size());
+            for (final String value : strings.keySet()) {
+                out.writeUTF(value);
+            }
+            out.writeInt(sections.size());
+            for (final EncodedSection section : sections) {
+                out.writeInt(section.coordinates);
+                out.writeInt(section.commentSuffix);
+                out.writeInt(section.entries.size());
+            }
+            for (final EncodedSection section : sections) {
+                for (final EncodedEntry entry : section.entries) {
+                    entry.writeTo(out);
+                }
+            }
+        }
+    }
+
+    /**
+     * Section collected by the {@link Encoder}.
+     */
+    private static final class EncodedSection {
+
+        /**
+         * Index of the coordinates.
+         */
+        private final int coordinates;
+
+        /**
+         * Index of the remainder of the comment.
+         */
+        private final int commentSuffix;
+
+        /**
+         * <tt>artifactId-version</tt> or <tt>null</tt>.
+         */
+        private final String prefix;
+
+        /**
+         * Entries in file order.
+         */
+        private final List<EncodedEntry> entries = new ArrayList<>();
+
+        /**
+         * @param coordinates index of the coordinates
+         * @param commentSuffix index of the remainder of the comment
+         * @param prefix <tt>artifactId-version</tt> or <tt>null</tt>
+         */
+        EncodedSection(int coordinates, int commentSuffix, String prefix) {
+            this.coordinates = coordinates;
+            this.commentSuffix = commentSuffix;
+            this.prefix = prefix;
+        }
+    }
+
+    /**
+     * Entry collected by the {@link Encoder}.
+     */
+    private static final class EncodedEntry {
+
+        /**
+         * Index of the stored name.
+         */
+        private final int name;
+
+        /**
+         * Whether the stored name is prefixed with <tt>artifactId-version</tt> of the section.
+         */
+        private final boolean prefixed;
+
+        /**
+         * Complete name of the file.
+         */
+        private final String fileName;
+
+        /**
+         * Indexes of the algorithms.
+         */
+        private final List<Integer> algorithms = new ArrayList<>(1);
+
+        /**
+         * Decoded digests.
+         */
+        private final List<byte[]> digests = new ArrayList<>(1);
+
+        /**
+         * @param name index of the stored name
+         * @param prefixed whether the stored name is prefixed
+         * @param fileName complete name of the file
+         */
+        EncodedEntry(int name, boolean prefixed, String fileName) {
+            this.name = name;
+            this.prefixed = prefixed;
+            this.fileName = fileName;
+        }
+
+        /**
+         * @param algorithm index of the algorithm
+         * @param digest decoded digest
+         */
+        void add(int algorithm, byte[] digest) {
+            algorithms.add(algorithm);
+            digests.add(digest);
+        }
+
+        /**
+         * @param out to write to
+         * @throws IOException when writing failed.
+         */
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(name);
+            out.writeByte(prefixed ? PREFIXED : 0);
+            out.writeByte(digests.size());
+            for (int i = 0; i < digests.size(); i++) {
+                final byte[] digest = digests.get(i);
+                out.writeInt(algorithms.get(i));
+                out.writeByte(digest.length);
+                out.write(digest);
+            }
+        }
+    }
+
+    /**
+     * Writes every line handed over.
+     */
+    private static final class LineWriter implements BillOfMaterialsReader.Handler {
+
+        /**
+         * Target.
+         */
+        private final Writer writer;
+
+        /**
+         * First failure while writing.
+         */
+        private IOException failure;
+
+        /**
+         * @param writer target
+         */
+        LineWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void section(String coordinates, String line) {
+            write(line);
+        }
+
+        @Override
+        public void entry(String algorithm, String hash, String fileName, String line) {
+            write(line);
+        }
+
+        @Override
+        public void digest(String algorithm, String hash, String fileName, String line) {
+            write(line);
+        }
+
+        /**
+         * @param line to write
+         */
+        private void write(String line) {
+            if (failure != null) {
+                return;
+            }
+            try {
+                writer.write(line);
+                writer.write('\n');
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        /**
+         * @throws IOException the first failure while writing.
+         */
+        void rethrow() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reuses digests from a {@link HashCache} and only delegates for new or changed files.
+ *
+ * @author Mirko Friedenhagen
+ */
+final class CachingFileHasher implements FileHasher {
+
+    /**
+     * Calculates the digest on a cache miss.
+     */
+    private final FileHasher delegate;
+
+    /**
+     * Stored digests.
+     */
+    private final HashCache hashCache;
+
+    /**
+     * When true the cache is not consulted but still updated.
+     */
+    private final boolean forceRehash;
+
+    /**
+     * Receives a sample for every cache hit, may be <tt>null</tt>.
+     */
+    private final HashingMetrics metrics;
+
+    /**
+     * <tt>groupId:artifactId:version</tt> of the module recorded in {@link #metrics}.
+     */
+    private final String module;
+
+    /**
+     * @param delegate calculates the digest on a cache miss.
+     * @param hashCache stored digests.
+     * @param forceRehash when true the cache is not consulted but still updated.
+     */
+    CachingFileHasher(FileHasher delegate, HashCache hashCache, boolean forceRehash) {
+        this(delegate, hashCache, forceRehash, null, null);
+    }
+
+    /**
+     * @param delegate calculates the digest on a cache miss.
+     * @param hashCache stored digests.
+     * @param forceRehash when true the cache is not consulted but still updated.
+     * @param metrics receives a sample for every cache hit, may be <tt>null</tt>.
+     * @param module <tt>groupId:artifactId:version</tt> of the module recorded in metrics.
+     */
+    CachingFileHasher(
+            FileHasher delegate, HashCache hashCache, boolean forceRehash, HashingMetrics metrics, String module) {
+        this.delegate = delegate;
+        this.hashCache = hashCache;
+        this.forceRehash = forceRehash;
+        this.metrics = metrics;
+        this.module = module;
+    }
+
+    @Override
+    public Map<String, HashCode> hash(File file) throws IOException {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final HashCache.FileState state = HashCache.FileState.of(file);
+        if (!forceRehash) {
+            final Map<String, HashCode> cached = getCached(state);
+            if (cached != null) {
+                if (metrics != null) {
+                    metrics.record(module, file, 0, stopwatch.elapsed(TimeUnit.NANOSECONDS),
+                            HashingMetrics.CacheStatus.HIT);
+                }
+                return cached;
+            }
+        }
+        final Map<String, HashCode> hashes = delegate.hash(file);
+        for (final Map.Entry<String, HashCode> hash : hashes.entrySet()) {
+            hashCache.put(hash.getKey(), state, hash.getValue());
+        }
+        return hashes;
+    }
+
+    @Override
+    public List<String> getAlgorithms() {
+        return delegate.getAlgorithms();
+    }
+
+    /**
+     * @param state current state of the file
+     * @return the cached digests for all algorithms or <tt>null</tt> when at least one is missing.
+     */
+    private Map<String, HashCode> getCached(HashCache.FileState state) {
+        final ImmutableMap.Builder<String, HashCode> hashes = ImmutableMap.builder();
+        for (final String algorithm : getAlgorithms()) {
+            final HashCode cached = hashCache.get(algorithm, state);
+            if (cached == null) {
+                return null;
+            }
+            hashes.put(algorithm, cached);
+        }
+        return hashes.build();
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calculates the digests of a file by reading it through a {@link FileChannel}.
+ *
+ * <p>Files of every size are read through a direct buffer taken from a {@link DirectBufferPool} shared by all
+ * threads, so the content is handed to the {@link MessageDigest}s without being copied into the heap. The file is read once, every buffer
+ * is fed to all digests. Files are deliberately not memory-mapped: a {@link java.nio.MappedByteBuffer} is only
+ * unmapped when it is garbage collected, so hashing large archives in a long-lived Maven daemon would keep
+ * their address space and file handles until the next collection.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+final class ChannelFileHasher implements FileHasher {
+
+    /**
+     * Size of the direct buffer.
+     */
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Direct buffers are expensive to allocate, so they are shared by all hashers. Their number matches the
+     * concurrency a platform thread pool would use, virtual threads beyond that read through heap buffers.
+     */
+    private static final DirectBufferPool BUFFERS = new DirectBufferPool(
+            4 * Runtime.getRuntime().availableProcessors(), BUFFER_SIZE);
+
+    /**
+     * Names of the {@link MessageDigest} algorithms.
+     */
+    private final List<String> algorithms;
+
+    /**
+     * Maximum number of bytes read at once.
+     */
+    private final int readSize;
+
+    /**
+     * @param algorithm name of the {@link MessageDigest} algorithm.
+     */
+    ChannelFileHasher(String algorithm) {
+        this(Collections.singletonList(algorithm));
+    }
+
+    /**
+     * @param algorithms names of the {@link MessageDigest} algorithms, the first one is the primary.
+     */
+    ChannelFileHasher(List<String> algorithms) {
+        this(algorithms, BUFFER_SIZE);
+    }
+
+    /**
+     * Just for tests.
+     * @param algorithms names of the {@link MessageDigest} algorithms, the first one is the primary.
+     * @param readSize maximum number of bytes read at once, at most the size of the direct buffer.
+     */
+    ChannelFileHasher(List<String> algorithms, int readSize) {
+        if (algorithms.isEmpty()) {
+            throw new IllegalArgumentException("At least one digest algorithm is needed");
+        }
+        if (readSize <= 0 || readSize > BUFFER_SIZE) {
+            throw new IllegalArgumentException("Invalid read size " + readSize);
+        }
+        this.algorithms = ImmutableList.copyOf(algorithms);
+        this.readSize = readSize;
+        newMessageDigests();
+    }
+
+    @Override
+    public Map<String, HashCode> hash(File file) throws IOException {
+        final List<MessageDigest> messageDigests = newMessageDigests();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            updateBuffered(messageDigests, channel);
+        }
+        final ImmutableMap.Builder<String, HashCode> hashes = ImmutableMap.builder();
+        for (int i = 0; i < algorithms.size(); i++) {
+            hashes.put(algorithms.get(i), HashCode.fromBytes(messageDigests.get(i).digest()));
+        }
+        return hashes.build();
+    }
+
+    @Override
+    public List<String> getAlgorithms() {
+        return algorithms;
+    }
+
+    /**
+     * Feeds the digests through a buffer of {@link #BUFFERS}.
+     *
+     * @param messageDigests to update
+     * @param channel to read
+     * @throws IOException when the file could not be read or the thread was interrupted, which closes the channel.
+     */
+    private void updateBuffered(List<MessageDigest> messageDigests, FileChannel channel) throws IOException {
+        final ByteBuffer buffer = BUFFERS.acquire();
+        try {
+            buffer.limit(readSize);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                update(messageDigests, buffer);
+                buffer.clear().limit(readSize);
+            }
+        } finally {
+            BUFFERS.release(buffer);
+        }
+    }
+
+    /**
+     * Feeds the remaining bytes of the buffer to every digest.
+     *
+     * @param messageDigests to update
+     * @param buffer to consume
+     */
+    private static void update(List<MessageDigest> messageDigests, ByteBuffer buffer) {
+        final int position = buffer.position();
+        for (final MessageDigest messageDigest : messageDigests) {
+            buffer.position(position);
+            messageDigest.update(buffer);
+        }
+    }
+
+    /**
+     * @return new {@link MessageDigest}s for {@link #algorithms}.
+     */
+    private List<MessageDigest> newMessageDigests() {
+        final List<MessageDigest> messageDigests = new ArrayList<>(algorithms.size());
+        for (final String algorithm : algorithms) {
+            try {
+                messageDigests.add(MessageDigest.getInstance(algorithm));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException("Unknown digest algorithm " + algorithm, e);
+            }
+        }
+        return messageDigests;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Writes lines of a bill of materials to a channel through one {@link CharsetEncoder} and a fixed size
+ * {@link ByteBuffer}, so the memory needed does not depend on the number of lines.
+ *
+ * <p>The encoder is reset and reused for every line, the buffer is drained to the channel whenever it is full.
+ * With {@link Compression#GZIP} the encoded bytes pass through a compressing stream first. Closing the writer
+ * drains the buffer and finishes the compression but leaves the channel open, so callers may still release a
+ * {@link java.nio.channels.FileLock} held on it.</p>
+ *
+ * <p>A record is therefore not written with a single write: an uncompressed record larger than the buffer takes
+ * one write per buffer, a compressed one additional writes for the gzip header and trailer. Callers hold their
+ * locks until the writer is closed, so writers never interleave, but a reader not taking the lock may see a
+ * partial record.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+final class ChannelLineWriter implements Closeable {
+
+    /**
+     * Default size of the buffer.
+     */
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Receives the encoded bytes.
+     */
+    private final WritableByteChannel sink;
+
+    /**
+     * Compressing stream between {@link #sink} and the channel or <tt>null</tt>.
+     */
+    private final OutputStream compressed;
+
+    /**
+     * Reused for every line.
+     */
+    private final CharsetEncoder encoder = Charsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    /**
+     * Encoded bytes not yet written to {@link #sink}.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * @param sink receives the encoded bytes.
+     * @param compressed compressing stream behind <tt>sink</tt> or <tt>null</tt>.
+     * @param bufferSize size of the buffer.
+     */
+    private ChannelLineWriter(WritableByteChannel sink, OutputStream compressed, int bufferSize) {
+        this.sink = sink;
+        this.compressed = compressed;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * @param channel to write to, e.g. a {@link java.nio.channels.FileChannel} opened for appending.
+     * @param compression of the written content.
+     * @return a new writer.
+     * @throws IOException when the header of the compression could not be written.
+     */
+    static ChannelLineWriter of(WritableByteChannel channel, Compression compression) throws IOException {
+        return of(channel, compression, BUFFER_SIZE);
+    }
+
+    /**
+     * @param channel to write to.
+     * @param compression of the written content.
+     * @param bufferSize size of the buffer.
+     * @return a new writer.
+     * @throws IOException when the header of the compression could not be written.
+     */
+    static ChannelLineWriter of(final WritableByteChannel channel, Compression compression, int bufferSize)
+            throws IOException {
+        if (compression == Compression.NONE) {
+            return new ChannelLineWriter(channel, null, bufferSize);
+        }
+        final OutputStream compressed = compression.wrap(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                writeFully(channel, ByteBuffer.wrap(b, off, len));
+            }
+        });
+        return new ChannelLineWriter(Channels.newChannel(compressed), compressed, bufferSize);
+    }
+
+    /**
+     * Encodes text, which may contain line breaks already.
+     *
+     * @param text to write
+     * @return this writer.
+     * @throws IOException when the buffer could not be drained.
+     */
+    ChannelLineWriter append(CharSequence text) throws IOException {
+        final CharBuffer in = CharBuffer.wrap(text);
+        encoder.reset();
+        while (encoder.encode(in, buffer, true).isOverflow()) {
+            drain();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            drain();
+        }
+        return this;
+    }
+
+    /**
+     * Encodes a line followed by a line feed.
+     *
+     * @param line to write
+     * @return this writer.
+     * @throws IOException when the buffer could not be drained.
+     */
+    ChannelLineWriter appendLine(CharSequence line) throws IOException {
+        append(line);
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put((byte) '\n');
+        return this;
+    }
+
+    /**
+     * Drains the buffer and finishes the compression, the channel stays open.
+     *
+     * @throws IOException when writing failed.
+     */
+    @Override
+    public void close() throws IOException {
+        drain();
+        if (compressed != null) {
+            compressed.close();
+        }
+    }
+
+    /**
+     * Writes the content of the buffer to {@link #sink}.
+     *
+     * @throws IOException when writing failed.
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        writeFully(sink, buffer);
+        buffer.clear();
+    }
+
+    /**
+     * @param channel to write to
+     * @param bytes to write completely
+     * @throws IOException when writing failed.
+     */
+    private static void writeFully(WritableByteChannel channel, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+}
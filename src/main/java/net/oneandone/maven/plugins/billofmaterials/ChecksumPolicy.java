@@ -0,0 +1,45 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+/**
+ * When checksum files next to a file, e.g. <tt>a-v.jar.sha1</tt> as written by Maven for installed and resolved
+ * artifacts, are used instead of reading the file.
+ *
+ * @author Mirko Friedenhagen
+ */
+public enum ChecksumPolicy {
+
+    /**
+     * Checksum files are ignored, every file is read.
+     */
+    IGNORE,
+
+    /**
+     * Checksum files are trusted without reading the file.
+     */
+    TRUST,
+
+    /**
+     * Checksum files are trusted, but a percentage of the files is read nevertheless and compared with them.
+     */
+    SAMPLE,
+
+    /**
+     * Every file is read and compared with its checksum files.
+     */
+    VERIFY
+}
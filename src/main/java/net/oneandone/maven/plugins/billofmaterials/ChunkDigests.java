@@ -0,0 +1,412 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Digests of the fixed-size chunks of a large file, so two builds of the file may be compared or a file may be
+ * verified partially without reading all of it.
+ *
+ * <p>The chunks are hashed independently, so any subset of them may be hashed concurrently. The root digest is
+ * the digest of all chunk digests, one level of a Merkle tree. The chunk digests of a module are stored in a
+ * text file next to the bill of materials, one header line per file followed by one line per chunk:</p>
+ * <pre>
+ * child-1.0.jar\t10485760\t4194304\tSHA-1\t5661e9270a02c5359be47615bb6ed9911105d878
+ * \t05d419cf53e175c6e84ddc1cf2fccdc9dd109c6b
+ * \tdf633b963220ba124ffa80eb6ceab676934bb387
+ * \t8ff8e0ec0bff1ee8b23bab48c8dbb01e8ec3d8b2
+ * </pre>
+ *
+ * @author Mirko Friedenhagen
+ */
+final class ChunkDigests {
+
+    /**
+     * Separator of the columns.
+     */
+    private static final char SEPARATOR = '\t';
+
+    /**
+     * Splits the header lines.
+     */
+    private static final Splitter SPLITTER = Splitter.on(SEPARATOR);
+
+    /**
+     * Size of the buffer used to read a chunk.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Name of the file as listed in the bill of materials.
+     */
+    private final String fileName;
+
+    /**
+     * Size of the file in bytes.
+     */
+    private final long size;
+
+    /**
+     * Size of a chunk in bytes, the last chunk may be smaller.
+     */
+    private final long chunkSize;
+
+    /**
+     * Name of the {@link MessageDigest} algorithm.
+     */
+    private final String algorithm;
+
+    /**
+     * Digests of the chunks in the order of the file.
+     */
+    private final List<HashCode> chunks;
+
+    /**
+     * @param fileName name of the file as listed in the bill of materials
+     * @param size of the file in bytes
+     * @param chunkSize size of a chunk in bytes
+     * @param algorithm name of the {@link MessageDigest} algorithm
+     * @param chunks digests of the chunks in the order of the file
+     */
+    ChunkDigests(String fileName, long size, long chunkSize, String algorithm, List<HashCode> chunks) {
+        if (chunks.size() != chunkCount(size, chunkSize)) {
+            throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                    "%s: expected %d chunks but got %d", fileName, chunkCount(size, chunkSize), chunks.size()));
+        }
+        this.fileName = fileName;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.algorithm = algorithm;
+        this.chunks = ImmutableList.copyOf(chunks);
+    }
+
+    /**
+     * Hashes all chunks of a file concurrently.
+     *
+     * @param file to hash
+     * @param algorithm name of the {@link MessageDigest} algorithm
+     * @param chunkSize size of a chunk in bytes
+     * @param executor hashing the chunks
+     * @return the chunk digests.
+     * @throws IOException when the file could not be read.
+     */
+    static ChunkDigests calculate(File file, String algorithm, long chunkSize, ListeningExecutorService executor)
+            throws IOException {
+        final long size = file.length();
+        final List<Integer> indices = new ArrayList<>();
+        for (int index = 0; index < chunkCount(size, chunkSize); index++) {
+            indices.add(index);
+        }
+        return new ChunkDigests(file.getName(), size, chunkSize, algorithm,
+                hashChunks(file, algorithm, chunkSize, indices, executor));
+    }
+
+    /**
+     * Hashes the given chunks of a file concurrently.
+     *
+     * @param file to hash
+     * @param algorithm name of the {@link MessageDigest} algorithm
+     * @param chunkSize size of a chunk in bytes
+     * @param indices of the chunks to hash
+     * @param executor hashing the chunks
+     * @return the digests in the order of the indices.
+     * @throws IOException when the file could not be read or hashing was interrupted, chunks still being hashed are
+     * cancelled then.
+     */
+    static List<HashCode> hashChunks(final File file, final String algorithm, final long chunkSize,
+            Collection<Integer> indices, ListeningExecutorService executor) throws IOException {
+        final List<ListenableFuture<HashCode>> futures = new ArrayList<>(indices.size());
+        try {
+            for (final int index : indices) {
+                futures.add(executor.submit(new Callable<HashCode>() {
+                    @Override
+                    public HashCode call() throws IOException {
+                        return hashChunk(file, algorithm, chunkSize, index);
+                    }
+                }));
+            }
+            return Futures.allAsList(futures).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while hashing chunks of " + file);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            Throwables.throwIfInstanceOf(cause, IOException.class);
+            Throwables.throwIfUnchecked(cause);
+            throw new IOException(cause);
+        } finally {
+            // after a failure or an interrupt the remaining chunks are not needed anymore.
+            for (final ListenableFuture<HashCode> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Hashes a single chunk through a channel of its own, as interrupting a thread reading a channel closes it, so
+     * cancelling one chunk must not close the channel other chunks are reading.
+     *
+     * @param file to read
+     * @param algorithm name of the {@link MessageDigest} algorithm
+     * @param chunkSize size of a chunk in bytes
+     * @param index of the chunk
+     * @return the digest of the chunk.
+     * @throws IOException when the file could not be read.
+     */
+    static HashCode hashChunk(File file, String algorithm, long chunkSize, int index) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return hashChunk(channel, algorithm, chunkSize, index);
+        }
+    }
+
+    /**
+     * Hashes a single chunk using positional reads.
+     *
+     * @param channel to read
+     * @param algorithm name of the {@link MessageDigest} algorithm
+     * @param chunkSize size of a chunk in bytes
+     * @param index of the chunk
+     * @return the digest of the chunk.
+     * @throws IOException when the channel could not be read.
+     */
+    static HashCode hashChunk(FileChannel channel, String algorithm, long chunkSize, int index) throws IOException {
+        final MessageDigest messageDigest = newMessageDigest(algorithm);
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        final long end = Math.min((index + 1) * chunkSize, channel.size());
+        long position = index * chunkSize;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, end - position));
+            final int read = channel.read(buffer, position);
+            if (read == -1) {
+                break;
+            }
+            buffer.flip();
+            messageDigest.update(buffer);
+            position += read;
+        }
+        return HashCode.fromBytes(messageDigest.digest());
+    }
+
+    /**
+     * @return name of the file as listed in the bill of materials.
+     */
+    String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * @return size of the file in bytes.
+     */
+    long getSize() {
+        return size;
+    }
+
+    /**
+     * @return size of a chunk in bytes.
+     */
+    long getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @return name of the {@link MessageDigest} algorithm.
+     */
+    String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return digests of the chunks in the order of the file.
+     */
+    List<HashCode> getChunks() {
+        return chunks;
+    }
+
+    /**
+     * @return the digest of all chunk digests.
+     */
+    HashCode getRoot() {
+        final MessageDigest messageDigest = newMessageDigest(algorithm);
+        for (final HashCode chunk : chunks) {
+            messageDigest.update(chunk.asBytes());
+        }
+        return HashCode.fromBytes(messageDigest.digest());
+    }
+
+    /**
+     * Selects chunks spread evenly over the file, always including the first and the last one.
+     *
+     * @param sample number of chunks to select, <tt>0</tt> or more than available selects all
+     * @return the sorted indices of the selected chunks.
+     */
+    SortedSet<Integer> sampleIndices(int sample) {
+        final SortedSet<Integer> indices = new TreeSet<>();
+        final int count = chunks.size();
+        if (sample <= 0 || sample >= count) {
+            for (int index = 0; index < count; index++) {
+                indices.add(index);
+            }
+        } else if (sample == 1) {
+            indices.add(0);
+        } else {
+            for (int i = 0; i < sample; i++) {
+                indices.add((int) ((long) i * (count - 1) / (sample - 1)));
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Writes the chunk digests of several files, replacing the file atomically.
+     *
+     * @param target file to write
+     * @param chunkDigests of the files
+     * @throws IOException when the file could not be written.
+     */
+    static void write(File target, final List<ChunkDigests> chunkDigests) throws IOException {
+        AtomicFiles.write(target, new AtomicFiles.Content() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                try (BufferedWriter writer = AtomicFiles.newWriter(out)) {
+                    for (final ChunkDigests digests : chunkDigests) {
+                        writer.append(digests.fileName).append(SEPARATOR)
+                                .append(String.valueOf(digests.size)).append(SEPARATOR)
+                                .append(String.valueOf(digests.chunkSize)).append(SEPARATOR)
+                                .append(digests.algorithm).append(SEPARATOR)
+                                .append(digests.getRoot().toString()).append('\n');
+                        for (final HashCode chunk : digests.chunks) {
+                            writer.append(SEPARATOR).append(chunk.toString()).append('\n');
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the chunk digests of several files and checks their root digests.
+     *
+     * @param source file to read
+     * @return the chunk digests in the order of the file.
+     * @throws IOException when the file could not be read or is corrupt.
+     */
+    static List<ChunkDigests> read(File source) throws IOException {
+        final List<ChunkDigests> chunkDigests = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(source.toPath(), Charsets.UTF_8)) {
+            List<String> header = null;
+            List<HashCode> chunks = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    if (line.isEmpty()) {
+                        continue;
+                    } else if (line.charAt(0) == SEPARATOR && chunks != null) {
+                        chunks.add(HashCode.fromString(line.substring(1)));
+                    } else {
+                        if (header != null) {
+                            chunkDigests.add(fromHeader(header, chunks));
+                        }
+                        header = SPLITTER.splitToList(line);
+                        chunks = new ArrayList<>();
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Corrupt line in " + source + ": " + line, e);
+                }
+            }
+            if (header != null) {
+                chunkDigests.add(fromHeader(header, chunks));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt chunk digests in " + source + ": " + e.getMessage(), e);
+        }
+        return chunkDigests;
+    }
+
+    /**
+     * @param header columns of the header line
+     * @param chunks digests of the chunks
+     * @return the chunk digests of a file.
+     * @throws IllegalArgumentException when the header is malformed or the root digest does not match.
+     */
+    private static ChunkDigests fromHeader(List<String> header, List<HashCode> chunks) {
+        if (header.size() != 5) {
+            throw new IllegalArgumentException("malformed header " + header);
+        }
+        final ChunkDigests digests = new ChunkDigests(header.get(0), Long.parseLong(header.get(1)),
+                Long.parseLong(header.get(2)), header.get(3), chunks);
+        if (!digests.getRoot().toString().equals(header.get(4))) {
+            throw new IllegalArgumentException("root digest of " + header.get(0) + " does not match its chunks");
+        }
+        return digests;
+    }
+
+    /**
+     * @param size of the file in bytes
+     * @param chunkSize size of a chunk in bytes
+     * @return the number of chunks, an empty file has none.
+     */
+    static int chunkCount(long size, long chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunk size must be positive but was " + chunkSize);
+        }
+        final long count = (size + chunkSize - 1) / chunkSize;
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("chunk size " + chunkSize + " too small for " + size + " bytes");
+        }
+        return (int) count;
+    }
+
+    /**
+     * @param algorithm name of the {@link MessageDigest} algorithm
+     * @return a new digest.
+     */
+    private static MessageDigest newMessageDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unknown digest algorithm " + algorithm, e);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Joiner;
+import com.google.common.hash.HashCode;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.SortedSet;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Compares files with the chunk digests recorded by the <tt>create</tt> goal, see {@link ChunkDigests}, and reports
+ * the byte ranges which differ.
+ *
+ * <p>Only the chunks are read, concurrently, so with {@link #sampleChunks} a large file may be checked partially
+ * without reading all of it.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+@Mojo(name = "compare", requiresProject = false, threadSafe = true)
+public class CompareChunksMojo extends AbstractMojo {
+
+    /**
+     * Chunk digests of the reference build.
+     */
+    @Parameter(
+        defaultValue = "${project.build.directory}/bill-of-materials/chunks.txt",
+        required = true, property = "bill-of-materials.chunksFile")
+    private File chunksFile;
+
+    /**
+     * Directory containing the files to compare under the names recorded in {@link #chunksFile}.
+     */
+    @Parameter(defaultValue = "${project.build.directory}", required = true, property = "bill-of-materials.directory")
+    private File directory;
+
+    /**
+     * Number of chunks compared per file, spread evenly over the file including the first and the last chunk.
+     * <tt>0</tt> compares all chunks.
+     */
+    @Parameter(defaultValue = "0", property = "bill-of-materials.sampleChunks")
+    private int sampleChunks;
+
+    /**
+     * Number of threads used to hash the chunks, <tt>0</tt> uses one thread per available processor.
+     */
+    @Parameter(defaultValue = "0", property = "bill-of-materials.compareThreads")
+    private int compareThreads;
+
+    /**
+     * Fail the build when a file differs or is missing, otherwise the differences are only logged.
+     */
+    @Parameter(defaultValue = "true", property = "bill-of-materials.failOnDifference")
+    private boolean failOnDifference = true;
+
+    /**
+     * Default constructor for maven.
+     */
+    CompareChunksMojo() {
+        super();
+    }
+
+    /**
+     * Just for tests.
+     * @param chunksFile chunk digests of the reference build.
+     * @param directory containing the files to compare.
+     * @param sampleChunks number of chunks compared per file.
+     */
+    CompareChunksMojo(File chunksFile, File directory, int sampleChunks) {
+        this.chunksFile = chunksFile;
+        this.directory = directory;
+        this.sampleChunks = sampleChunks;
+    }
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        final List<ChunkDigests> reference;
+        try {
+            reference = ChunkDigests.read(chunksFile);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not read " + chunksFile, e);
+        }
+        final List<String> differences = new ArrayList<>();
+        final int threads = compareThreads > 0 ? compareThreads : Runtime.getRuntime().availableProcessors();
+        final ListeningExecutorService executor = HashingExecutors.newFixedThreadPool(threads, Integer.MAX_VALUE);
+        try {
+            for (final ChunkDigests chunkDigests : reference) {
+                final String difference = compare(chunkDigests, new File(directory, chunkDigests.getFileName()),
+                        executor);
+                if (difference != null) {
+                    differences.add(difference);
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException(e.toString(), e);
+        } finally {
+            executor.shutdownNow();
+        }
+        if (differences.isEmpty()) {
+            getLog().info(String.format(Locale.ENGLISH, "%d files in %s match %s",
+                    reference.size(), directory, chunksFile));
+            return;
+        }
+        final String message = String.format(Locale.ENGLISH, "%d of %d files in %s differ from %s:%n%s",
+                differences.size(), reference.size(), directory, chunksFile,
+                Joiner.on(String.format("%n")).join(differences));
+        if (failOnDifference) {
+            throw new MojoFailureException(message);
+        }
+        getLog().warn(message);
+    }
+
+    /**
+     * Compares the sampled chunks of a single file.
+     *
+     * @param chunkDigests recorded for the file
+     * @param file to compare
+     * @param executor hashing the chunks
+     * @return description of the differences or <tt>null</tt> when the compared chunks match.
+     * @throws IOException when the file could not be read.
+     */
+    String compare(ChunkDigests chunkDigests, File file, ListeningExecutorService executor) throws IOException {
+        if (!file.isFile()) {
+            return chunkDigests.getFileName() + ": not found";
+        }
+        final long chunkSize = chunkDigests.getChunkSize();
+        final SortedSet<Integer> indices = chunkDigests.sampleIndices(sampleChunks);
+        final List<HashCode> actual = ChunkDigests.hashChunks(
+                file, chunkDigests.getAlgorithm(), chunkSize, indices, executor);
+        final List<Integer> differing = new ArrayList<>();
+        final Iterator<Integer> index = indices.iterator();
+        for (final HashCode hash : actual) {
+            final int current = index.next();
+            if (!hash.equals(chunkDigests.getChunks().get(current))) {
+                differing.add(current);
+            }
+        }
+        final long size = file.length();
+        if (differing.isEmpty() && size == chunkDigests.getSize()) {
+            getLog().debug(String.format(Locale.ENGLISH, "%s: all %d compared of %d chunks match",
+                    file, indices.size(), chunkDigests.getChunks().size()));
+            return null;
+        }
+        final StringBuilder difference = new StringBuilder(chunkDigests.getFileName()).append(':');
+        if (size != chunkDigests.getSize()) {
+            difference.append(String.format(Locale.ENGLISH, " size %d instead of %d", size, chunkDigests.getSize()));
+        }
+        if (!differing.isEmpty()) {
+            difference.append(" bytes ").append(toRanges(differing, chunkSize, Math.min(size, chunkDigests.getSize())));
+        }
+        return difference.toString();
+    }
+
+    /**
+     * Joins consecutive chunks to byte ranges.
+     *
+     * @param differing sorted indices of the differing chunks
+     * @param chunkSize size of a chunk in bytes
+     * @param size of the file in bytes
+     * @return byte ranges like <tt>0-4194303, 12582912-16777215</tt>.
+     */
+    static String toRanges(List<Integer> differing, long chunkSize, long size) {
+        final List<String> ranges = new ArrayList<>();
+        int first = differing.get(0);
+        int last = first;
+        for (final int index : differing.subList(1, differing.size())) {
+            if (index != last + 1) {
+                ranges.add(toRange(first, last, chunkSize, size));
+                first = index;
+            }
+            last = index;
+        }
+        ranges.add(toRange(first, last, chunkSize, size));
+        return Joiner.on(", ").join(ranges);
+    }
+
+    /**
+     * @param first index of the first chunk
+     * @param last index of the last chunk
+     * @param chunkSize size of a chunk in bytes
+     * @param size of the file in bytes
+     * @return the byte range of the chunks.
+     */
+    private static String toRange(int first, int last, long chunkSize, long size) {
+        final long end = Math.max(first * chunkSize, Math.min((last + 1) * chunkSize, size) - 1);
+        return (first * chunkSize) + "-" + end;
+    }
+
+    /**
+     * Just for tests.
+     * @param failOnDifference whether differences fail the build.
+     */
+    void setFailOnDifference(boolean failOnDifference) {
+        this.failOnDifference = failOnDifference;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression of the written bill of materials. Only what the JDK provides is supported.
+ *
+ * @author Mirko Friedenhagen
+ */
+public enum Compression {
+
+    /**
+     * Plain text.
+     */
+    NONE {
+        @Override
+        OutputStream wrap(OutputStream out) {
+            return out;
+        }
+    },
+
+    /**
+     * GZIP, every section appended with {@link WriteMode#APPEND} is a gzip member of its own, which
+     * <tt>gunzip</tt> and the <tt>read</tt> goal concatenate.
+     */
+    GZIP {
+        @Override
+        OutputStream wrap(OutputStream out) throws IOException {
+            return new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+    };
+
+    /**
+     * Size of the buffers used for (de)compressing.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Magic bytes of gzip.
+     */
+    private static final byte[] GZIP_MAGIC = {(byte) 0x1f, (byte) 0x8b};
+
+    /**
+     * Magic bytes of zstd.
+     */
+    private static final byte[] ZSTD_MAGIC = {(byte) 0x28, (byte) 0xb5, (byte) 0x2f, (byte) 0xfd};
+
+    /**
+     * Wraps a stream so everything written is compressed, closing the returned stream finishes the compression.
+     *
+     * @param out to wrap
+     * @return the compressing stream.
+     * @throws IOException when the header could not be written.
+     */
+    abstract OutputStream wrap(OutputStream out) throws IOException;
+
+    /**
+     * Compresses a single record.
+     *
+     * @param content to compress
+     * @return the compressed content.
+     * @throws IOException when compressing failed.
+     */
+    byte[] compress(byte[] content) throws IOException {
+        if (this == NONE) {
+            return content;
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 2 + 64);
+        try (OutputStream out = wrap(bytes)) {
+            out.write(content);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Detects compressed content by its magic bytes and decompresses it as a stream.
+     *
+     * @param in supporting {@link InputStream#mark(int)}
+     * @return a decompressing stream or <tt>in</tt> when the content is not compressed.
+     * @throws IOException when the stream could not be read or the compression is not supported.
+     */
+    static InputStream decompress(InputStream in) throws IOException {
+        final byte[] start = new byte[ZSTD_MAGIC.length];
+        in.mark(start.length);
+        final int read;
+        try {
+            read = ByteStreams.read(in, start, 0, start.length);
+        } finally {
+            in.reset();
+        }
+        if (read >= GZIP_MAGIC.length && start[0] == GZIP_MAGIC[0] && start[1] == GZIP_MAGIC[1]) {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+        if (read == ZSTD_MAGIC.length && Arrays.equals(ZSTD_MAGIC, start)) {
+            throw new IOException("zstd compressed bills of materials are not supported, use gzip instead");
+        }
+        return in;
+    }
+}
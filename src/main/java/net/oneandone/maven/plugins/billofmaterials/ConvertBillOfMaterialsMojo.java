@@ -0,0 +1,96 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Converts a binary bill of materials to the text layout and a text bill of materials to the binary format, see
+ * {@link BinaryBillOfMaterials}. The format of the source is detected automatically.
+ *
+ * @author Mirko Friedenhagen
+ */
+@Mojo(name = "convert", requiresProject = false, threadSafe = true)
+public class ConvertBillOfMaterialsMojo extends AbstractMojo {
+
+    /**
+     * Bill of materials to convert.
+     */
+    @Parameter(
+        defaultValue = "${session.executionRootDirectory}/target/tickets/bill-of-materials.bin",
+        required = true, property = "bill-of-materials.source")
+    private File source;
+
+    /**
+     * Converted bill of materials.
+     */
+    @Parameter(required = true, property = "bill-of-materials.target")
+    private File target;
+
+    /**
+     * Default constructor for maven.
+     */
+    ConvertBillOfMaterialsMojo() {
+        super();
+    }
+
+    /**
+     * Just for tests.
+     * @param source bill of materials to convert.
+     * @param target converted bill of materials.
+     */
+    ConvertBillOfMaterialsMojo(File source, File target) {
+        this.source = source;
+        this.target = target;
+    }
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        try {
+            final File parentDirectory = target.getAbsoluteFile().getParentFile();
+            if (!parentDirectory.exists() && !parentDirectory.mkdirs()) {
+                throw new IOException("Could not create parent directory for " + target);
+            }
+            if (isBinary()) {
+                getLog().info("Converting binary bill of materials " + source + " to text " + target);
+                BinaryBillOfMaterials.convertToText(source, target);
+            } else {
+                getLog().info("Converting bill of materials " + source + " to binary " + target);
+                BinaryBillOfMaterials.convertToBinary(source, target);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException(e.toString(), e);
+        }
+    }
+
+    /**
+     * @return true when {@link #source} is a binary bill of materials.
+     * @throws IOException when the source could not be read.
+     */
+    private boolean isBinary() throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(source))) {
+            return BinaryBillOfMaterials.isBinary(in);
+        }
+    }
+}
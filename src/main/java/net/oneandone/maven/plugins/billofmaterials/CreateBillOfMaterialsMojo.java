@@ -16,25 +16,48 @@
 package net.oneandone.maven.plugins.billofmaterials;
 
 import com.google.common.base.*;
-import com.google.common.collect.Collections2;
-import com.google.common.collect.Lists;
 import com.google.common.hash.HashCode;
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
-import com.google.common.io.FileWriteMode;
-import com.google.common.io.Files;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.Striped;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
 
+import org.apache.maven.RepositoryUtils;
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.DefaultDependencyResolutionRequest;
+import org.apache.maven.project.DependencyResolutionException;
+import org.apache.maven.project.DependencyResolutionRequest;
 import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.ProjectDependenciesResolver;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyFilter;
+import org.eclipse.aether.graph.DependencyNode;
 
 /**
  * Creates a bill of materials for all installed artifacts.
@@ -55,32 +78,241 @@ import org.apache.maven.project.MavenProject;
  *
  * @author Mirko Friedenhagen &lt;mirko.friedenhagen@1und1.de&gt;
  */
-@Mojo(name = "create", defaultPhase = LifecyclePhase.INSTALL)
+@Mojo(name = "create", defaultPhase = LifecyclePhase.INSTALL, threadSafe = true)
 public class CreateBillOfMaterialsMojo extends AbstractBillOfMaterialsMojo {
 
     /**
-     * SHA1 hash function.
+     * Serializes appends of modules built in parallel in this JVM, striped by the path of the bill of materials.
+     * {@link FileLock} alone does not suffice, as it is held on behalf of the whole JVM.
      */
-    @SuppressWarnings("deprecation") // Standard Hash used in Maven
-    private final HashFunction sha1 = Hashing.sha1();
+    private static final Striped<Lock> BOM_LOCKS = Striped.lock(32);
 
     /**
-     * Function to calculate the hash of a file.
+     * Calculates the digests, by default the SHA1 which is the standard hash used in Maven.
      */
-    private final Function<File, String> toBomStringFunction;
+    private FileHasher fileHasher = new ChannelFileHasher(FileHasher.SHA1);
 
     /**
-     * Function to get the file from the artifact.
+     * Number of threads used to calculate the hashes of the artifacts and the POM. With the default of <tt>1</tt>
+     * all files are hashed one after another, otherwise they are hashed concurrently. The order of the lines
+     * in the bill of materials stays the same in both cases.
      */
-    private final Function<Artifact, File> toFileFunction;
+    @Parameter(defaultValue = "1", property = "bill-of-materials.hashingThreads")
+    private int hashingThreads = 1;
+
+    /**
+     * Hash artifacts and dependencies on virtual threads when the JDK provides them (Java 21 and later), falling
+     * back to a pool of platform threads otherwise. The number of files hashed at the same time stays limited by
+     * <tt>hashingThreads</tt> and <tt>dependencyHashingThreads</tt>, which may be raised to some hundreds for
+     * storage with a high latency.
+     */
+    @Parameter(defaultValue = "true", property = "bill-of-materials.virtualThreads")
+    private boolean virtualThreads = true;
+
+    /**
+     * Maximum number of files hashed at the same time per file system by all modules of the reactor, <tt>0</tt>
+     * for no limit.
+     */
+    @Parameter(defaultValue = "0", property = "bill-of-materials.maxOpenFiles")
+    private int maxOpenFiles;
+
+    /**
+     * Maximum size in megabytes of the files hashed at the same time per file system by all modules of the reactor,
+     * <tt>0</tt> for no limit. A larger file is hashed alone.
+     */
+    @Parameter(defaultValue = "0", property = "bill-of-materials.maxInFlightMegabytes")
+    private int maxInFlightMegabytes;
+
+    /**
+     * Names of the digest algorithms calculated for every file in a single pass, e.g. <tt>SHA-1,SHA-256,SHA-512</tt>.
+     * The first algorithm results in the line in the format of <tt>sha1sum</tt>, every additional one in a line
+     * in the format of <tt>sha256sum --tag</tt>. The first line is tagged as well when the algorithm may not be
+     * told from the length of the digest, e.g. for <tt>SHA3-256</tt>.
+     */
+    @Parameter(defaultValue = "SHA-1", property = "bill-of-materials.algorithms")
+    private List<String> algorithms = Collections.singletonList(FileHasher.SHA1);
+
+    /**
+     * Resolved dependencies of the module added to the bill of materials, see {@link DependencyScope}. They are
+     * listed in the section of the module under their path in the local repository, e.g.
+     * <tt>org/slf4j/slf4j-api/1.7.25/slf4j-api-1.7.25.jar</tt>. Dependencies are only resolved when this is not
+     * <tt>NONE</tt>, so the default does not download anything.
+     */
+    @Parameter(defaultValue = "NONE", property = "bill-of-materials.dependencyScope")
+    private DependencyScope dependencyScope = DependencyScope.NONE;
+
+    /**
+     * When checksum files next to artifacts and dependencies, e.g. <tt>a-v.jar.sha1</tt> as written by Maven, are
+     * used instead of reading the files, see {@link ChecksumPolicy}. Checksum files are only used when there is one
+     * for every algorithm and none is older than the file.
+     */
+    @Parameter(defaultValue = "IGNORE", property = "bill-of-materials.checksumPolicy")
+    private ChecksumPolicy checksumPolicy = ChecksumPolicy.IGNORE;
+
+    /**
+     * Percentage of the files with checksum files which are read nevertheless and compared with them, with
+     * <tt>checksumPolicy</tt> <tt>SAMPLE</tt>.
+     */
+    @Parameter(defaultValue = "10", property = "bill-of-materials.checksumSamplePercent")
+    private int checksumSamplePercent = 10;
+
+    /**
+     * What happens when a file could not be hashed, see {@link HashingErrorPolicy}. With <tt>FAIL_FAST</tt> the
+     * first failure stops the module and cancels the files still being hashed, with <tt>COLLECT_ALL</tt> all
+     * artifacts and dependencies are hashed and every failure is reported.
+     */
+    @Parameter(defaultValue = "FAIL_FAST", property = "bill-of-materials.hashingErrorPolicy")
+    private HashingErrorPolicy hashingErrorPolicy = HashingErrorPolicy.FAIL_FAST;
+
+    /**
+     * Number of threads used to hash the dependencies, <tt>0</tt> uses one thread per available processor.
+     */
+    @Parameter(defaultValue = "0", property = "bill-of-materials.dependencyHashingThreads")
+    private int dependencyHashingThreads;
+
+    /**
+     * Hash every distinct file only once per reactor, even when several modules attach it. Files are identified by
+     * their file key (the inode on Unix systems) or their canonical path, size and last modification time.
+     */
+    @Parameter(defaultValue = "true", property = "bill-of-materials.deduplicateHashing")
+    private boolean deduplicateHashing = true;
+
+    /**
+     * Reuse digests of artifacts and the POM from {@link #hashCacheFile} when their canonical path, size,
+     * last modification time and file key did not change since the last build.
+     */
+    @Parameter(defaultValue = "false", property = "bill-of-materials.useHashCache")
+    private boolean useHashCache;
+
+    /**
+     * Location of the hash cache.
+     */
+    @Parameter(
+        defaultValue = "${project.build.directory}/bill-of-materials/hash-cache.txt",
+        property = "bill-of-materials.hashCacheFile")
+    private File hashCacheFile;
+
+    /**
+     * Maximum number of entries kept in the hash cache, the least recently used entries are evicted first.
+     */
+    @Parameter(defaultValue = "1000", property = "bill-of-materials.hashCacheMaxEntries")
+    private int hashCacheMaxEntries = 1000;
+
+    /**
+     * Hash all files again even when {@link #useHashCache} is set. The hash cache is updated nevertheless.
+     */
+    @Parameter(defaultValue = "false", property = "bill-of-materials.forceRehash")
+    private boolean forceRehash;
+
+    /**
+     * How the bill of materials is written, see {@link WriteMode}. <tt>AGGREGATE</tt> needs this goal to be executed
+     * in every module of the reactor, as the bill of materials is written after the last module has finished.
+     * <tt>INCREMENTAL</tt> replaces the section of every module built in an existing bill of materials.
+     * <tt>ASYNC</tt> appends the sections from a background thread, see {@link #asyncQueueCapacity}.
+     */
+    @Parameter(defaultValue = "APPEND", property = "bill-of-materials.writeMode")
+    private WriteMode writeMode = WriteMode.APPEND;
+
+    /**
+     * Maximum number of sections queued for the background writer with <tt>writeMode</tt> <tt>ASYNC</tt>, modules
+     * only wait for the writer while the queue is full.
+     */
+    @Parameter(defaultValue = "64", property = "bill-of-materials.asyncQueueCapacity")
+    private int asyncQueueCapacity = 64;
+
+    /**
+     * Force the bill of materials to the storage device after the last module has finished, with <tt>writeMode</tt>
+     * <tt>ASYNC</tt>.
+     */
+    @Parameter(defaultValue = "false", property = "bill-of-materials.fsync")
+    private boolean fsync;
+
+    /**
+     * Compression of the bill of materials, see {@link Compression}. The <tt>read</tt> and <tt>verify</tt> goals
+     * detect compressed files and decompress them while reading. Choose a matching <tt>bomPath</tt>, e.g.
+     * <tt>bill-of-materials.txt.gz</tt>.
+     */
+    @Parameter(defaultValue = "NONE", property = "bill-of-materials.compression")
+    private Compression compression = Compression.NONE;
+
+    /**
+     * Write a reproducible bill of materials: comments hold no user name and after the last module of the reactor
+     * the file is rewritten with sections sorted by coordinates and entries sorted by file name. The SHA-256 of the
+     * result is written next to it, e.g. to <tt>bill-of-materials.txt.sha256</tt>, and may serve as fingerprint of
+     * the build.
+     */
+    @Parameter(defaultValue = "false", property = "bill-of-materials.reproducible")
+    private boolean reproducible;
+
+    /**
+     * Write a compact binary bill of materials next to the text file as well, e.g. <tt>bill-of-materials.bin</tt>
+     * for <tt>bill-of-materials.txt</tt>. It is converted once for the reactor, after the last module. The
+     * <tt>read</tt> goal reads both formats, the <tt>convert</tt> goal converts between them.
+     */
+    @Parameter(defaultValue = "false", property = "bill-of-materials.writeBinary")
+    private boolean writeBinary;
+
+    /**
+     * Artifacts larger than this number of bytes get the digests of their chunks of {@link #chunkSize} bytes
+     * written to {@link #chunksFile} as well, so the <tt>compare</tt> goal may find the regions which differ
+     * between two builds or verify a file partially. <tt>0</tt> disables chunk digests.
+     */
+    @Parameter(defaultValue = "0", property = "bill-of-materials.chunkThreshold")
+    private long chunkThreshold;
+
+    /**
+     * Size of a chunk in bytes.
+     */
+    @Parameter(defaultValue = "4194304", property = "bill-of-materials.chunkSize")
+    private long chunkSize = 4L * 1024 * 1024;
+
+    /**
+     * Location of the chunk digests of the current module.
+     */
+    @Parameter(
+        defaultValue = "${project.build.directory}/bill-of-materials/chunks.txt",
+        property = "bill-of-materials.chunksFile")
+    private File chunksFile;
+
+    /**
+     * Write the bytes read, the time spent and the throughput of hashing every file of the reactor, including
+     * cache hits and misses, to {@link #metricsReport}. With debug logging the samples are logged as well.
+     */
+    @Parameter(defaultValue = "false", property = "bill-of-materials.metrics")
+    private boolean metrics;
+
+    /**
+     * Location of the JSON report of the hashing metrics, written once after the last module of the reactor.
+     */
+    @Parameter(
+        defaultValue = "${session.executionRootDirectory}/target/bill-of-materials-metrics.json",
+        property = "bill-of-materials.metricsReport")
+    private File metricsReport;
+
+    /**
+     * Number of the slowest files listed in the summary of the reactor and in {@link #metricsReport}.
+     */
+    @Parameter(defaultValue = "10", property = "bill-of-materials.metricsSlowestFiles")
+    private int metricsSlowestFiles = 10;
+
+    /**
+     * The Maven session.
+     */
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    /**
+     * Resolves the dependencies of the module on demand, see {@link #dependencyScope}.
+     */
+    @Component
+    private ProjectDependenciesResolver dependenciesResolver;
 
     /**
      * Default constructor for maven.
      */
     CreateBillOfMaterialsMojo() {
         super();
-        toFileFunction = new ToFileFunction();
-        toBomStringFunction = new ToBomStringFunction(sha1);
+        setFileHasher(fileHasher);
     }
 
     /**
@@ -90,42 +322,476 @@ public class CreateBillOfMaterialsMojo extends AbstractBillOfMaterialsMojo {
      */
     CreateBillOfMaterialsMojo(File billOfMaterialsPath, MavenProject project) {
         super(billOfMaterialsPath, project);
-        toFileFunction = new ToFileFunction();
-        toBomStringFunction = new ToBomStringFunction(sha1);
+        setFileHasher(fileHasher);
     }
 
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
+        if (!algorithms.equals(fileHasher.getAlgorithms())) {
+            setFileHasher(new ChannelFileHasher(algorithms));
+        }
+        final HashCache hashCache = useHashCache ? loadHashCache() : null;
+        final HashingMetrics hashingMetrics = metrics || getLog().isDebugEnabled() ? getHashingMetrics() : null;
+        final FileHasher plainFileHasher = fileHasher;
+        if (hashingMetrics != null) {
+            // directly around the reader, so waiting for permits or other modules is not recorded as hashing time.
+            setFileHasher(new MeasuringFileHasher(fileHasher, hashingMetrics, ReactorScope.projectKey(getProject()),
+                    hashCache != null ? HashingMetrics.CacheStatus.MISS : HashingMetrics.CacheStatus.DISABLED));
+        }
+        if (maxOpenFiles > 0 || maxInFlightMegabytes > 0) {
+            setFileHasher(new ThrottlingFileHasher(fileHasher, getThrottlingLimits()));
+        }
+        if (deduplicateHashing) {
+            setFileHasher(new SharedFileHasher(fileHasher, getSharedHashes()));
+        }
+        // outside of the shared digests, as the background hashing of the hash goal shares them as well.
+        final EarlyHashing earlyHashing =
+                ReactorScope.of(session, getProject()).getIfPresent(EarlyHashing.class.getName());
+        if (earlyHashing != null) {
+            setFileHasher(new EarlyHashingFileHasher(fileHasher, earlyHashing));
+        }
+        if (hashCache != null) {
+            setFileHasher(new CachingFileHasher(fileHasher, hashCache, forceRehash, hashingMetrics,
+                    ReactorScope.projectKey(getProject())));
+        }
+        if (checksumPolicy != ChecksumPolicy.IGNORE) {
+            setFileHasher(new SidecarChecksumFileHasher(fileHasher, checksumPolicy, checksumSamplePercent));
+        }
         try {
             final List<File> files = getListOfArtifactsAsFiles();
-            // We need a copy here as transform will return a fixed size list.
-            final List<String> hashBaseNames = new ArrayList<>(Lists.transform(files, toBomStringFunction));
-            addHashEntryForPom(hashBaseNames);
+            final HashingFailures hashingFailures = new HashingFailures(hashingErrorPolicy);
+            final List<String> hashBaseNames = hashingThreads > 1
+                    ? calculateHashesInParallel(files, hashingFailures) : calculateHashes(files, hashingFailures);
+            if (dependencyScope != DependencyScope.NONE) {
+                hashBaseNames.addAll(calculateHashesOfDependencies(hashingFailures));
+            }
+            hashingFailures.throwIfAny();
             writeResults(hashBaseNames);
+            if (reproducible) {
+                writeReproducible();
+            }
+            if (chunkThreshold > 0) {
+                writeChunkDigests(files);
+            }
+            if (hashingMetrics != null) {
+                reportHashingMetrics(hashingMetrics);
+            }
         } catch (IOException ex) {
             throw new MojoExecutionException(ex.toString(), ex);
+        } finally {
+            setFileHasher(plainFileHasher);
+            if (hashCache != null) {
+                saveHashCache(hashCache);
+            }
         }
     }
 
     /**
-     * Creates a list of all artifacts for the build.
-     * @return a list of all artifacts for the build including the attached ones.
+     * @return the digests shared by all modules of the reactor.
      */
-    final List<File> getListOfArtifactsAsFiles() {
-        final MavenProject project = getProject();
-        final List<Artifact> attachedArtifacts = project.getAttachedArtifacts();
-        // We need a copy here as otherwise install and deploy will choke later on because
-        // we attach the POM as well.
-        final List<File> files = new ArrayList<>(
-                Collections2.filter(
-                    Lists.transform(attachedArtifacts, toFileFunction),
-                        Files.isFile()));
-        final String packaging = project.getPackaging();
-        // POMs return null as their artifact, which will crash the transformation lateron.
-        if (!"pom".equals(packaging)) {
-            files.add(project.getArtifact().getFile());
+    SharedFileHasher.Registry getSharedHashes() {
+        return getSharedHashes(session, getProject());
+    }
+
+    /**
+     * @param session current session
+     * @param project current project
+     * @return the digests shared by all modules of the reactor, also used by {@link HashBillOfMaterialsMojo}.
+     */
+    static SharedFileHasher.Registry getSharedHashes(MavenSession session, MavenProject project) {
+        return ReactorScope.of(session, project).get(SharedFileHasher.Registry.class.getName(),
+                new Supplier<SharedFileHasher.Registry>() {
+                    @Override
+                    public SharedFileHasher.Registry get() {
+                        return new SharedFileHasher.Registry();
+                    }
+                });
+    }
+
+    /**
+     * @return the limits shared by all modules of the reactor.
+     */
+    ThrottlingFileHasher.Limits getThrottlingLimits() {
+        return getThrottlingLimits(session, getProject(), maxOpenFiles, maxInFlightMegabytes);
+    }
+
+    /**
+     * @param session current session
+     * @param project current project
+     * @param maxOpenFiles maximum number of files hashed at the same time per file system
+     * @param maxInFlightMegabytes maximum size of the files hashed at the same time per file system
+     * @return the limits shared by all modules of the reactor, also used by {@link HashBillOfMaterialsMojo}.
+     */
+    static ThrottlingFileHasher.Limits getThrottlingLimits(MavenSession session, MavenProject project,
+            final int maxOpenFiles, final int maxInFlightMegabytes) {
+        return ReactorScope.of(session, project).get(
+                ThrottlingFileHasher.Limits.class.getName() + ":" + maxOpenFiles + ":" + maxInFlightMegabytes,
+                new Supplier<ThrottlingFileHasher.Limits>() {
+                    @Override
+                    public ThrottlingFileHasher.Limits get() {
+                        return new ThrottlingFileHasher.Limits(maxOpenFiles, maxInFlightMegabytes * 1024L * 1024L);
+                    }
+                });
+    }
+
+    /**
+     * @return the metrics collected for all modules of the reactor.
+     */
+    HashingMetrics getHashingMetrics() {
+        final ReactorScope reactorScope = ReactorScope.of(session, getProject());
+        return reactorScope.get(HashingMetrics.class.getName(), new Supplier<HashingMetrics>() {
+            @Override
+            public HashingMetrics get() {
+                return new HashingMetrics(reactorScope.getProjects());
+            }
+        });
+    }
+
+    /**
+     * Logs the samples of the current module. After the last module, or at the end of the session when some modules
+     * never finish hashing, {@link #metricsReport} is written and the slowest files of the reactor are logged.
+     *
+     * @param hashingMetrics of the reactor
+     * @throws IOException when the report could not be written.
+     */
+    void reportHashingMetrics(final HashingMetrics hashingMetrics) throws IOException {
+        if (getLog().isDebugEnabled()) {
+            for (final HashingMetrics.Sample sample
+                    : hashingMetrics.getSamples(ReactorScope.projectKey(getProject()))) {
+                getLog().debug("Hashed " + sample);
+            }
+        }
+        ReactorScope.of(session, getProject()).onSessionEnd(HashingMetrics.class.getName(), new SessionEndTask() {
+            @Override
+            void sessionEnded() throws IOException {
+                final List<String> missing = hashingMetrics.completeAtSessionEnd();
+                if (missing != null) {
+                    getLog().warn("Hashing metrics lack the modules " + missing);
+                    summarizeHashingMetrics(hashingMetrics);
+                }
+            }
+        });
+        if (hashingMetrics.finish(getProject())) {
+            summarizeHashingMetrics(hashingMetrics);
+        }
+    }
+
+    /**
+     * Writes {@link #metricsReport} and logs the slowest files of the reactor.
+     *
+     * @param hashingMetrics of the reactor
+     * @throws IOException when the report could not be written.
+     */
+    void summarizeHashingMetrics(HashingMetrics hashingMetrics) throws IOException {
+        if (metrics) {
+            hashingMetrics.write(metricsReport, metricsSlowestFiles);
+        }
+        final StringBuilder summary = new StringBuilder("Slowest files hashed in the reactor:");
+        for (final HashingMetrics.Sample sample : hashingMetrics.getSlowest(metricsSlowestFiles)) {
+            summary.append("\n  ").append(sample);
+        }
+        if (metrics) {
+            getLog().info(summary);
+        } else {
+            getLog().debug(summary);
+        }
+    }
+
+    /**
+     * Loads the hash cache from {@link #hashCacheFile}, an unreadable cache is replaced by an empty one.
+     *
+     * @return the hash cache.
+     */
+    HashCache loadHashCache() {
+        final HashCache hashCache = new HashCache(hashCacheFile, hashCacheMaxEntries);
+        try {
+            hashCache.load();
+        } catch (IOException e) {
+            getLog().warn("Ignoring hash cache " + hashCacheFile + ": " + e);
+            hashCache.clear();
         }
-        return files;
+        return hashCache;
+    }
+
+    /**
+     * Saves the hash cache, failures only result in a warning as the bill of materials is complete anyway.
+     *
+     * @param hashCache to save
+     */
+    void saveHashCache(HashCache hashCache) {
+        try {
+            hashCache.save();
+        } catch (IOException e) {
+            getLog().warn("Could not save hash cache " + hashCacheFile + ": " + e);
+        }
+    }
+
+    /**
+     * Calculates the hashes of the given files and the POM one after another.
+     *
+     * @param files to hash
+     * @param hashingFailures receives the files which could not be hashed
+     * @return the hash entries of the files which could be hashed.
+     * @throws IOException the first failure with {@link HashingErrorPolicy#FAIL_FAST}.
+     */
+    List<String> calculateHashes(final List<File> files, HashingFailures hashingFailures) throws IOException {
+        final List<String> hashBaseNames = new ArrayList<>(files.size() + 1);
+        for (final File file : files) {
+            try {
+                hashBaseNames.add(toBomString(file));
+            } catch (IOException e) {
+                hashingFailures.add(file, e);
+            }
+        }
+        try {
+            addHashEntryForPom(hashBaseNames);
+        } catch (IOException e) {
+            hashingFailures.add(getProject().getFile(), e);
+        }
+        return hashBaseNames;
+    }
+
+    /**
+     * Calculates the hashes of the given files and the POM concurrently, at most {@link #hashingThreads} at the
+     * same time, see {@link HashingExecutors#newHashingExecutor(boolean, int, int)}.
+     *
+     * @param files to hash
+     * @param hashingFailures receives the files which could not be hashed
+     * @return the hash entries in the same order as the sequential calculation.
+     * @throws IOException the first failure with {@link HashingErrorPolicy#FAIL_FAST}, files still being hashed are
+     * cancelled then, or when the calculation was interrupted.
+     */
+    List<String> calculateHashesInParallel(final List<File> files, final HashingFailures hashingFailures)
+            throws IOException {
+        final ListeningExecutorService executor = HashingExecutors.newHashingExecutor(
+                virtualThreads, hashingThreads, files.size() + 1);
+        final List<ListenableFuture<List<String>>> futures = new ArrayList<>(files.size() + 1);
+        try {
+            for (final File file : files) {
+                futures.add(executor.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws IOException {
+                        try {
+                            return Collections.singletonList(toBomString(file));
+                        } catch (IOException e) {
+                            hashingFailures.add(file, e);
+                            return Collections.emptyList();
+                        }
+                    }
+                }));
+            }
+            futures.add(executor.submit(new Callable<List<String>>() {
+                @Override
+                public List<String> call() throws IOException {
+                    final List<String> pomLine = new ArrayList<>(1);
+                    try {
+                        addHashEntryForPom(pomLine);
+                    } catch (IOException e) {
+                        hashingFailures.add(getProject().getFile(), e);
+                    }
+                    return pomLine;
+                }
+            }));
+            final List<String> hashBaseNames = new ArrayList<>(files.size() + 1);
+            for (final List<String> lines : Futures.allAsList(futures).get()) {
+                hashBaseNames.addAll(lines);
+            }
+            return hashBaseNames;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while calculating hashes for " + files);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            Throwables.throwIfInstanceOf(cause, IOException.class);
+            Throwables.throwIfUnchecked(cause);
+            throw new IOException(cause);
+        } finally {
+            cancel(futures);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Resolves the dependencies in {@link #dependencyScope}. The mojo does not require dependency resolution, so
+     * modules are only resolved when their dependencies are listed.
+     *
+     * @return the resolved dependencies, those of the project when no resolver is injected.
+     * @throws IOException when the dependencies could not be resolved.
+     */
+    Set<Artifact> resolveDependencies() throws IOException {
+        if (dependenciesResolver == null) {
+            return getProject().getArtifacts();
+        }
+        final DependencyResolutionRequest request =
+                new DefaultDependencyResolutionRequest(getProject(), session.getRepositorySession());
+        request.setResolutionFilter(new DependencyFilter() {
+            @Override
+            public boolean accept(DependencyNode node, List<DependencyNode> parents) {
+                final Dependency dependency = node.getDependency();
+                return dependency == null || dependencyScope.includes(dependency.getScope());
+            }
+        });
+        final List<Dependency> resolved;
+        try {
+            resolved = dependenciesResolver.resolve(request).getResolvedDependencies();
+        } catch (DependencyResolutionException e) {
+            throw new IOException("Could not resolve dependencies of " + getProject().getId(), e);
+        }
+        final Set<Artifact> artifacts = new LinkedHashSet<>(resolved.size());
+        for (final Dependency dependency : resolved) {
+            final Artifact artifact = RepositoryUtils.toArtifact(dependency.getArtifact());
+            artifact.setScope(dependency.getScope());
+            artifacts.add(artifact);
+        }
+        return artifacts;
+    }
+
+    /**
+     * Calculates the hashes of the resolved dependencies in {@link #dependencyScope} concurrently. Dependencies shared
+     * by several modules are hashed only once per reactor, as long as {@link #deduplicateHashing} is set.
+     *
+     * @param hashingFailures receives the dependencies which could not be hashed
+     * @return the hash entries sorted by the path of the dependencies.
+     * @throws IOException the first failure with {@link HashingErrorPolicy#FAIL_FAST}, dependencies still being
+     * hashed are cancelled then, or when the calculation was interrupted.
+     */
+    List<String> calculateHashesOfDependencies(final HashingFailures hashingFailures) throws IOException {
+        final Map<String, File> dependencies = new TreeMap<>();
+        for (final Artifact artifact : resolveDependencies()) {
+            if (dependencyScope.includes(artifact) && artifact.getFile() != null && artifact.getFile().isFile()) {
+                dependencies.put(dependencyPath(artifact), artifact.getFile());
+            } else {
+                getLog().debug("Skipping dependency " + artifact);
+            }
+        }
+        final int threads = dependencyHashingThreads > 0
+                ? dependencyHashingThreads : Runtime.getRuntime().availableProcessors();
+        final ListeningExecutorService executor = HashingExecutors.newHashingExecutor(
+                virtualThreads, threads, dependencies.size());
+        final List<ListenableFuture<List<String>>> futures = new ArrayList<>(dependencies.size());
+        try {
+            for (final Map.Entry<String, File> dependency : dependencies.entrySet()) {
+                futures.add(executor.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws IOException {
+                        try {
+                            return Collections.singletonList(BillOfMaterials.toBomString(
+                                    fileHasher.hash(dependency.getValue()), dependency.getKey()));
+                        } catch (IOException e) {
+                            hashingFailures.add(dependency.getValue(), e);
+                            return Collections.emptyList();
+                        }
+                    }
+                }));
+            }
+            final List<String> hashBaseNames = new ArrayList<>(dependencies.size());
+            for (final List<String> lines : Futures.allAsList(futures).get()) {
+                hashBaseNames.addAll(lines);
+            }
+            return hashBaseNames;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while calculating hashes of dependencies");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            Throwables.throwIfInstanceOf(cause, IOException.class);
+            Throwables.throwIfUnchecked(cause);
+            throw new IOException(cause);
+        } finally {
+            cancel(futures);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Cancels the calculations still running after a failure, interrupting the threads reading the files. Other
+     * modules waiting for a file hashed by an interrupted thread are not affected, they hash the file themselves,
+     * see {@link SharedFileHasher}.
+     *
+     * @param futures of the calculations
+     */
+    static void cancel(List<? extends Future<?>> futures) {
+        for (final Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * @param artifact resolved dependency
+     * @return the path of the dependency in the local repository.
+     */
+    String dependencyPath(Artifact artifact) {
+        final String path = session == null || session.getLocalRepository() == null
+                ? null : session.getLocalRepository().pathOf(artifact);
+        if (path != null) {
+            return path.replace(File.separatorChar, '/');
+        }
+        return artifact.getGroupId().replace('.', '/') + '/' + artifact.getArtifactId() + '/'
+                + artifact.getBaseVersion() + '/' + artifact.getFile().getName();
+    }
+
+    /**
+     * Writes the chunk digests of all files larger than {@link #chunkThreshold} to {@link #chunksFile}. The chunks
+     * of every file are hashed concurrently on the same kind of executor as the files, see {@link #virtualThreads},
+     * and within the limits of {@link #maxOpenFiles} and {@link #maxInFlightMegabytes}. After a failure or an
+     * interrupt the remaining chunks are cancelled.
+     *
+     * @param files artifacts of the current module
+     * @throws IOException when a file could not be read or the chunk digests could not be written.
+     */
+    void writeChunkDigests(List<File> files) throws IOException {
+        final String algorithm = algorithms.get(0);
+        final List<ChunkDigests> chunkDigests = new ArrayList<>();
+        final ThrottlingFileHasher.Limits limits =
+                maxOpenFiles > 0 || maxInFlightMegabytes > 0 ? getThrottlingLimits() : null;
+        final ListeningExecutorService executor = HashingExecutors.newHashingExecutor(
+                virtualThreads, Runtime.getRuntime().availableProcessors(), Integer.MAX_VALUE);
+        try {
+            for (final File file : files) {
+                if (file.length() > chunkThreshold) {
+                    chunkDigests.add(calculateChunkDigests(file, algorithm, limits, executor));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        getLog().debug("Writing chunk digests of " + chunkDigests.size() + " files to " + chunksFile);
+        ChunkDigests.write(chunksFile, chunkDigests);
+    }
+
+    /**
+     * Calculates the chunk digests of a file while holding the same permits as {@link ThrottlingFileHasher} does
+     * for hashing it.
+     *
+     * @param file to hash
+     * @param algorithm name of the {@link java.security.MessageDigest} algorithm
+     * @param limits of the reactor or <tt>null</tt> without throttling
+     * @param executor hashing the chunks
+     * @return the chunk digests.
+     * @throws IOException when the file could not be read or hashing was interrupted.
+     */
+    ChunkDigests calculateChunkDigests(File file, String algorithm, ThrottlingFileHasher.Limits limits,
+                                       ListeningExecutorService executor) throws IOException {
+        if (limits == null) {
+            return ChunkDigests.calculate(file, algorithm, chunkSize, executor);
+        }
+        final ThrottlingFileHasher.Permits permits = limits.permitsFor(file);
+        final int units = permits.unitsOf(file.length());
+        permits.acquire(units, file);
+        try {
+            return ChunkDigests.calculate(file, algorithm, chunkSize, executor);
+        } finally {
+            permits.release(units);
+        }
+    }
+
+    /**
+     * @param file to hash
+     * @return the hash entry of the file.
+     * @throws IOException when the file could not be read.
+     */
+    String toBomString(File file) throws IOException {
+        return BillOfMaterials.toBomString(fileHasher.hash(file), file.getName());
     }
 
     /**
@@ -135,10 +801,10 @@ public class CreateBillOfMaterialsMojo extends AbstractBillOfMaterialsMojo {
      */
     void addHashEntryForPom(final List<String> hashBaseNames) throws IOException {
         final MavenProject project = getProject();
-        final HashCode sha1OfPom = Files.asByteSource(project.getFile()).hash(sha1);
-        final String pomLine = String.format(Locale.ENGLISH, "%s  %s-%s.pom",
-                    sha1OfPom, project.getArtifactId(), project.getVersion());
-        hashBaseNames.add(pomLine);
+        final Map<String, HashCode> hashesOfPom = fileHasher.hash(project.getFile());
+        final String pomLines = BillOfMaterials.toBomString(hashesOfPom,
+                String.format(Locale.ENGLISH, "%s-%s.pom", project.getArtifactId(), project.getVersion()));
+        hashBaseNames.add(pomLines);
     }
 
     /**
@@ -148,41 +814,533 @@ public class CreateBillOfMaterialsMojo extends AbstractBillOfMaterialsMojo {
      * @throws IOException when the parent directory could not be created or something went wrong while writing the result.
      */
     void writeResults(final List<String> hashBaseNames) throws IOException {
-        final String hashBaseNamesAsString = Joiner.on("\n").join(hashBaseNames) + "\n";
-        final String userName = System.getProperty("user.name");
-        write(projectCommentToString(userName));
-        write(hashBaseNamesAsString);
+        final String userName = reproducible ? null : System.getProperty("user.name");
+        final String projectComment = projectCommentToString(userName);
+        checkExistingDigests();
+        if (writeMode == WriteMode.AGGREGATE) {
+            aggregate(toSection(projectComment, hashBaseNames));
+        } else if (writeMode == WriteMode.INCREMENTAL) {
+            replaceSection(toSection(projectComment, hashBaseNames));
+            writeBinaryAfterLastModule();
+        } else if (writeMode == WriteMode.ASYNC) {
+            writeAsync(toSection(projectComment, hashBaseNames));
+        } else {
+            // streamed while holding the locks, so the comment and the lines of a module stay together.
+            write(projectComment, hashBaseNames);
+            writeBinaryAfterLastModule();
+        }
+    }
+
+    /**
+     * Checks the digests of an existing bill of materials once for the reactor, before the first module adds its
+     * section, when it is converted to the binary format or rewritten reproducibly later on. Sections written by
+     * this goal always hold valid digests, so a malformed digest written before fails the build while the text is
+     * still unchanged, instead of failing the conversion after the text was written. With
+     * {@link WriteMode#AGGREGATE} the existing content is replaced and not checked.
+     *
+     * @throws IOException when the bill of materials could not be read or holds a digest which is no valid hex
+     * string.
+     */
+    void checkExistingDigests() throws IOException {
+        if ((!writeBinary && !reproducible) || writeMode == WriteMode.AGGREGATE) {
+            return;
+        }
+        final File bomFile = calculateBillOfMaterialsFile();
+        final AtomicBoolean unchecked = ReactorScope.of(session, getProject()).get(
+                BinaryBillOfMaterials.class.getName() + ":checked:" + bomFile.getAbsolutePath(),
+                new Supplier<AtomicBoolean>() {
+                    @Override
+                    public AtomicBoolean get() {
+                        return new AtomicBoolean(true);
+                    }
+                });
+        if (!unchecked.getAndSet(false) || !bomFile.isFile()) {
+            return;
+        }
+        final Lock lock = BOM_LOCKS.get(bomFile.getCanonicalPath());
+        lock.lock();
+        try {
+            BinaryBillOfMaterials.checkDigests(bomFile);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Converts the bill of materials to the binary format once for the reactor with {@link WriteMode#APPEND} and
+     * {@link WriteMode#INCREMENTAL}: after the last module has written its section or, when some modules never
+     * finish, at the end of the session. The reproducible rewrite converts it itself.
+     *
+     * @throws IOException when the text could not be read or the binary file could not be written.
+     */
+    void writeBinaryAfterLastModule() throws IOException {
+        if (!writeBinary || reproducible) {
+            return;
+        }
+        final File bomFile = calculateBillOfMaterialsFile();
+        final ReactorScope reactorScope = ReactorScope.of(session, getProject());
+        final String key = BinaryBillOfMaterials.class.getName() + ":" + bomFile.getAbsolutePath();
+        final ReactorCompletion completion = reactorScope.get(key, new Supplier<ReactorCompletion>() {
+            @Override
+            public ReactorCompletion get() {
+                return new ReactorCompletion(reactorScope.getProjects());
+            }
+        });
+        reactorScope.onSessionEnd(key, new SessionEndTask() {
+            @Override
+            void sessionEnded() throws IOException {
+                if (completion.completeAtSessionEnd()) {
+                    writeBinaryLocked(bomFile);
+                }
+            }
+        });
+        if (completion.finish(getProject())) {
+            writeBinaryLocked(bomFile);
+        }
+    }
+
+    /**
+     * Converts the bill of materials to the binary format while holding the lock for the bill of materials in this
+     * JVM.
+     *
+     * @param bomFile text bill of materials
+     * @throws IOException when the text could not be read or the binary file could not be written.
+     */
+    void writeBinaryLocked(File bomFile) throws IOException {
+        final Lock lock = BOM_LOCKS.get(bomFile.getCanonicalPath());
+        lock.lock();
+        try {
+            writeBinary(bomFile);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param projectComment comment of the current project
+     * @param hashBaseNames hash lines of the current project
+     * @return the section of the current project for the write modes keeping sections in memory.
+     */
+    static String toSection(String projectComment, List<String> hashBaseNames) {
+        int length = projectComment.length();
+        for (final String hashBaseName : hashBaseNames) {
+            length += hashBaseName.length() + 1;
+        }
+        final StringBuilder section = new StringBuilder(length).append(projectComment);
+        for (final String hashBaseName : hashBaseNames) {
+            section.append(hashBaseName).append('\n');
+        }
+        return section.toString();
     }
 
     /**
-     * Writes content to the bomFile creating intermediate directories.
+     * Hands the section of the current project to the collector of the reactor, the last module writes
+     * the bill of materials. When some modules never hand over their section, it is written at the end of the
+     * session.
+     *
+     * @param section comment and hash lines of the current project
+     * @throws IOException when the parent directory could not be created or something went wrong while writing the
+     * result.
+     */
+    void aggregate(final String section) throws IOException {
+        final File bomFile = calculateBillOfMaterialsFile();
+        final ReactorScope reactorScope = ReactorScope.of(session, getProject());
+        final String key = ReactorBillOfMaterials.class.getName() + ":" + bomFile.getAbsolutePath();
+        final ReactorBillOfMaterials reactorBillOfMaterials = reactorScope.get(key,
+                new Supplier<ReactorBillOfMaterials>() {
+                    @Override
+                    public ReactorBillOfMaterials get() {
+                        return new ReactorBillOfMaterials(bomFile, compression, reactorScope.getProjects());
+                    }
+                });
+        reactorScope.onSessionEnd(key, new SessionEndTask() {
+            @Override
+            void sessionEnded() throws IOException {
+                final List<String> missing = reactorBillOfMaterials.completeAtSessionEnd();
+                if (missing != null) {
+                    getLog().warn("Writing bill of materials to " + bomFile + " without the modules " + missing);
+                    writeAggregate(bomFile, reactorBillOfMaterials);
+                }
+            }
+        });
+        if (reactorBillOfMaterials.add(getProject(), section)) {
+            getLog().info("Writing bill of materials for " + reactorScope.getProjects().size() + " modules to "
+                    + bomFile);
+            writeAggregate(bomFile, reactorBillOfMaterials);
+        }
+    }
+
+    /**
+     * Writes the sections collected for the reactor.
+     *
+     * @param bomFile target file
+     * @param reactorBillOfMaterials collected sections
+     * @throws IOException when the parent directory could not be created or the bill of materials could not be
+     * written.
+     */
+    void writeAggregate(File bomFile, ReactorBillOfMaterials reactorBillOfMaterials) throws IOException {
+        if (!createParentDirectory(bomFile.getAbsoluteFile().getParentFile())) {
+            throw new IOException("Could not create parent directory for " + bomFile);
+        }
+        reactorBillOfMaterials.write();
+        writeBinary(bomFile);
+    }
+
+    /**
+     * Hands the section of the current project to the background writer of the reactor. The last module waits
+     * until all sections are written. When some modules never hand over their section, the writer is closed at the
+     * end of the session.
+     *
+     * @param section comment and hash lines of the current project
+     * @throws IOException when the background writer failed.
+     */
+    void writeAsync(final String section) throws IOException {
+        final File bomFile = calculateBillOfMaterialsFile();
+        final ReactorScope reactorScope = ReactorScope.of(session, getProject());
+        final Lock lock = BOM_LOCKS.get(bomFile.getCanonicalPath());
+        final String key = AsyncBillOfMaterialsWriter.class.getName() + ":" + bomFile.getAbsolutePath();
+        final AsyncBillOfMaterialsWriter writer = reactorScope.get(key,
+                new Supplier<AsyncBillOfMaterialsWriter>() {
+                    @Override
+                    public AsyncBillOfMaterialsWriter get() {
+                        return new AsyncBillOfMaterialsWriter(
+                                bomFile, lock, reactorScope.getProjects(), asyncQueueCapacity, fsync);
+                    }
+                });
+        reactorScope.onSessionEnd(key, new SessionEndTask() {
+            @Override
+            void sessionEnded() throws IOException {
+                final List<String> missing = writer.completeAtSessionEnd();
+                if (missing != null) {
+                    getLog().warn("Wrote bill of materials to " + bomFile + " without the modules " + missing);
+                    closeAsync(bomFile, writer);
+                }
+            }
+        });
+        if (writer.add(getProject(), compression.compress(section.getBytes(Charsets.UTF_8)))) {
+            closeAsync(bomFile, writer);
+            getLog().info("Wrote bill of materials for " + reactorScope.getProjects().size() + " modules to "
+                    + bomFile);
+        }
+    }
+
+    /**
+     * Waits until the background writer has written all sections.
+     *
+     * @param bomFile target file
+     * @param writer background writer of the reactor
+     * @throws IOException when the background writer failed.
+     */
+    void closeAsync(File bomFile, AsyncBillOfMaterialsWriter writer) throws IOException {
+        writer.close();
+        writeBinaryLocked(bomFile);
+    }
+
+    /**
+     * Replaces the section of the current project in the bill of materials.
+     *
+     * <p>The lock for the bill of materials in this JVM as well as an exclusive {@link FileLock} on
+     * <tt>bill-of-materials.txt.lock</tt> are held while reading and replacing, as the bill of materials itself is
+     * replaced by the rename.</p>
+     *
+     * @param section comment and hash lines of the current project
+     * @throws IOException when the target directory could not be created or the bill of materials could not be read
+     * or written.
+     */
+    void replaceSection(final String section) throws IOException {
+        final File bomFile = calculateBillOfMaterialsFile();
+        final File parentDirectory = bomFile.getAbsoluteFile().getParentFile();
+        if (!createParentDirectory(parentDirectory)) {
+            throw new IOException("Could not create parent directory for " + bomFile);
+        }
+        final File lockFile = new File(parentDirectory, bomFile.getName() + ".lock");
+        final Lock lock = BOM_LOCKS.get(bomFile.getCanonicalPath());
+        lock.lock();
+        try (FileChannel channel = FileChannel.open(lockFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock fileLock = channel.lock()) {
+            new IncrementalBillOfMaterials(bomFile, compression).replace(ReactorScope.projectKey(getProject()), section);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rewrites the bill of materials in its canonical form after the last module of the reactor has finished, or at
+     * the end of the session when some modules never finish, see {@link ReproducibleBillOfMaterials}.
+     *
+     * @throws IOException when the bill of materials could not be read or written.
+     */
+    void writeReproducible() throws IOException {
+        final File bomFile = calculateBillOfMaterialsFile();
+        final ReactorScope reactorScope = ReactorScope.of(session, getProject());
+        final String key = ReproducibleBillOfMaterials.class.getName() + ":" + bomFile.getAbsolutePath();
+        final ReproducibleBillOfMaterials reproducibleBillOfMaterials = reactorScope.get(key,
+                new Supplier<ReproducibleBillOfMaterials>() {
+                    @Override
+                    public ReproducibleBillOfMaterials get() {
+                        return new ReproducibleBillOfMaterials(bomFile, compression, reactorScope.getProjects());
+                    }
+                });
+        reactorScope.onSessionEnd(key, new SessionEndTask() {
+            @Override
+            void sessionEnded() throws IOException {
+                final List<String> missing = reproducibleBillOfMaterials.completeAtSessionEnd();
+                if (missing != null) {
+                    getLog().warn("Rewriting bill of materials " + bomFile + " without the modules " + missing);
+                    rewriteReproducible(bomFile, reproducibleBillOfMaterials);
+                }
+            }
+        });
+        if (reproducibleBillOfMaterials.finish(getProject())) {
+            rewriteReproducible(bomFile, reproducibleBillOfMaterials);
+        }
+    }
+
+    /**
+     * Rewrites the bill of materials in its canonical form. The same locks as for {@link #replaceSection(String)}
+     * are held.
+     *
+     * @param bomFile target file
+     * @param reproducibleBillOfMaterials of the reactor
+     * @throws IOException when the bill of materials could not be read or written.
+     */
+    void rewriteReproducible(File bomFile, ReproducibleBillOfMaterials reproducibleBillOfMaterials)
+            throws IOException {
+        final File lockFile = new File(bomFile.getAbsoluteFile().getParentFile(), bomFile.getName() + ".lock");
+        final Lock lock = BOM_LOCKS.get(bomFile.getCanonicalPath());
+        lock.lock();
+        try (FileChannel channel = FileChannel.open(lockFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock fileLock = channel.lock()) {
+            final HashCode fingerprint = reproducibleBillOfMaterials.write();
+            writeBinary(bomFile);
+            getLog().info("Fingerprint of " + bomFile + ": " + fingerprint);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends content to the bomFile creating intermediate directories, see {@link #write(String, List)}.
      *
      * @param content to write
      * @throws IOException when the target directory could not be created or the content could not be written.
      */
     void write(final String content) throws IOException {
+        write(content, Collections.<String>emptyList());
+    }
+
+    /**
+     * Appends the comment and the hash lines of a module to the bomFile creating intermediate directories.
+     *
+     * <p>The lines are streamed through a {@link ChannelLineWriter}, so no copy of the complete section is built
+     * regardless of the number of lines. A large section is therefore appended with several writes. The lock for
+     * the bill of materials in this JVM as well as an exclusive {@link FileLock} for other processes writing to the
+     * same file are held until the last line is written, so sections of different modules never interleave.</p>
+     *
+     * @param projectComment comment of the module, ending with a line feed
+     * @param hashBaseNames hash lines of the module
+     * @throws IOException when the target directory could not be created or the content could not be written.
+     */
+    void write(final String projectComment, final List<String> hashBaseNames) throws IOException {
         final File bomFile = calculateBillOfMaterialsFile();
         final File parentDirectory = bomFile.getParentFile();
         if (!createParentDirectory(parentDirectory)) {
             throw new IOException("Could not create parent directory for " + bomFile);
         }
-        Files.asCharSink(bomFile, Charsets.UTF_8, FileWriteMode.APPEND).write(content);
+        final Lock lock = BOM_LOCKS.get(bomFile.getCanonicalPath());
+        lock.lock();
+        try (FileChannel channel = FileChannel.open(bomFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+             FileLock fileLock = channel.lock()) {
+            try (ChannelLineWriter writer = ChannelLineWriter.of(channel, compression)) {
+                writer.append(projectComment);
+                for (final String hashBaseName : hashBaseNames) {
+                    writer.appendLine(hashBaseName);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Converts the complete text bill of materials to the binary format when {@link #writeBinary} is set. Callers
+     * hold the locks for the bill of materials.
+     *
+     * @param bomFile text bill of materials
+     * @throws IOException when the text could not be read or the binary file could not be written.
+     */
+    void writeBinary(File bomFile) throws IOException {
+        if (writeBinary) {
+            BinaryBillOfMaterials.convertToBinary(bomFile, BinaryBillOfMaterials.binaryFileFor(bomFile));
+        }
     }
 
     /**
      * Returns a string representation for the comment.
      *
-     * @param userName current user
+     * @param userName current user, <tt>null</tt> omits the user
      * @return string representation for the comment.
      */
     String projectCommentToString(final String userName) {
         final MavenProject project = getProject();
+        if (userName == null) {
+            return String.format(
+                    Locale.ENGLISH,
+                    "# %s:%s:%s\n",
+                    project.getGroupId(), project.getArtifactId(), project.getVersion());
+        }
         return String.format(
                 Locale.ENGLISH,
                 "# %s:%s:%s user=%s\n",
                 project.getGroupId(), project.getArtifactId(), project.getVersion(), userName);
     }
 
+    /**
+     * Sets the hasher used for artifacts and the POM.
+     *
+     * @param fileHasher to use.
+     */
+    final void setFileHasher(FileHasher fileHasher) {
+        this.fileHasher = fileHasher;
+    }
+
+    /**
+     * Just for tests.
+     * @param useHashCache whether to use the hash cache.
+     * @param hashCacheFile location of the hash cache.
+     * @param forceRehash whether to ignore cached digests.
+     */
+    void setHashCache(boolean useHashCache, File hashCacheFile, boolean forceRehash) {
+        this.useHashCache = useHashCache;
+        this.hashCacheFile = hashCacheFile;
+        this.forceRehash = forceRehash;
+    }
+
+    /**
+     * Just for tests.
+     * @param writeMode how to write the bill of materials.
+     * @param session current session.
+     */
+    void setWriteMode(WriteMode writeMode, MavenSession session) {
+        this.writeMode = writeMode;
+        this.session = session;
+    }
+
+    /**
+     * Just for tests.
+     * @param compression of the bill of materials.
+     */
+    void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Just for tests.
+     * @param reproducible whether to write a reproducible bill of materials.
+     */
+    void setReproducible(boolean reproducible) {
+        this.reproducible = reproducible;
+    }
+
+    /**
+     * Just for tests.
+     * @param dependencyScope resolved dependencies added to the bill of materials.
+     * @param session current session.
+     */
+    void setDependencyScope(DependencyScope dependencyScope, MavenSession session) {
+        this.dependencyScope = dependencyScope;
+        this.session = session;
+    }
+
+    /**
+     * Just for tests.
+     * @param dependenciesResolver resolves the dependencies on demand.
+     */
+    void setDependenciesResolver(ProjectDependenciesResolver dependenciesResolver) {
+        this.dependenciesResolver = dependenciesResolver;
+    }
+
+    /**
+     * Just for tests.
+     * @param checksumPolicy when checksum files are used.
+     * @param checksumSamplePercent percentage of the files compared with SAMPLE.
+     */
+    void setChecksumPolicy(ChecksumPolicy checksumPolicy, int checksumSamplePercent) {
+        this.checksumPolicy = checksumPolicy;
+        this.checksumSamplePercent = checksumSamplePercent;
+    }
+
+    /**
+     * Just for tests.
+     * @param writeBinary whether to write the binary bill of materials as well.
+     */
+    void setWriteBinary(boolean writeBinary) {
+        this.writeBinary = writeBinary;
+    }
+
+    /**
+     * Just for tests.
+     * @param algorithms names of the digest algorithms.
+     */
+    void setAlgorithms(List<String> algorithms) {
+        this.algorithms = algorithms;
+    }
+
+    /**
+     * Just for tests.
+     * @param metrics whether to write the report.
+     * @param metricsReport location of the report.
+     * @param session current session.
+     */
+    void setMetrics(boolean metrics, File metricsReport, MavenSession session) {
+        this.metrics = metrics;
+        this.metricsReport = metricsReport;
+        this.session = session;
+    }
+
+    /**
+     * Just for tests.
+     * @param chunkThreshold artifacts larger than this get chunk digests.
+     * @param chunkSize size of a chunk in bytes.
+     * @param chunksFile location of the chunk digests.
+     */
+    void setChunks(long chunkThreshold, long chunkSize, File chunksFile) {
+        this.chunkThreshold = chunkThreshold;
+        this.chunkSize = chunkSize;
+        this.chunksFile = chunksFile;
+    }
+
+    /**
+     * Just for tests.
+     * @param hashingThreads number of threads used for hashing.
+     */
+    void setHashingThreads(int hashingThreads) {
+        this.hashingThreads = hashingThreads;
+    }
+
+    /**
+     * Just for tests.
+     * @param hashingErrorPolicy what happens when a file could not be hashed.
+     */
+    void setHashingErrorPolicy(HashingErrorPolicy hashingErrorPolicy) {
+        this.hashingErrorPolicy = hashingErrorPolicy;
+    }
+
+    /**
+     * Just for tests.
+     * @param maxOpenFiles maximum number of files hashed at the same time per file system.
+     * @param maxInFlightMegabytes maximum size of the files hashed at the same time per file system.
+     * @param session current session
+     */
+    void setThrottling(int maxOpenFiles, int maxInFlightMegabytes, MavenSession session) {
+        this.maxOpenFiles = maxOpenFiles;
+        this.maxInFlightMegabytes = maxInFlightMegabytes;
+        this.session = session;
+    }
+
     /**
      * Creates directory for storage.
      *
@@ -192,4 +1350,25 @@ public class CreateBillOfMaterialsMojo extends AbstractBillOfMaterialsMojo {
     boolean createParentDirectory(final File parentDirectory) {
         return parentDirectory.exists() || parentDirectory.mkdirs();
     }
+
+    /**
+     * Work for the whole reactor done at the end of the session, see {@link ReactorScope#onSessionEnd(String,
+     * Runnable)}. The build can not fail anymore then, so failures are logged.
+     */
+    private abstract class SessionEndTask implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                sessionEnded();
+            } catch (IOException | RuntimeException e) {
+                getLog().error("Could not finish the bill of materials at the end of the session: " + e, e);
+            }
+        }
+
+        /**
+         * @throws IOException when the work could not be done.
+         */
+        abstract void sessionEnded() throws IOException;
+    }
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * Which resolved dependencies of a module are added to the bill of materials.
+ *
+ * @author Mirko Friedenhagen
+ */
+public enum DependencyScope {
+
+    /**
+     * No dependencies, only the artifacts of the module.
+     */
+    NONE,
+
+    /**
+     * Dependencies on the compile classpath, i.e. with scope <tt>compile</tt>, <tt>provided</tt> or <tt>system</tt>.
+     */
+    COMPILE,
+
+    /**
+     * Dependencies on the runtime classpath, i.e. with scope <tt>compile</tt> or <tt>runtime</tt>.
+     */
+    RUNTIME,
+
+    /**
+     * All resolved dependencies including those with scope <tt>test</tt>.
+     */
+    ALL;
+
+    /**
+     * @param artifact resolved dependency
+     * @return true when the dependency belongs to this scope.
+     */
+    boolean includes(Artifact artifact) {
+        return includes(artifact.getScope());
+    }
+
+    /**
+     * @param scope of a dependency, null or empty for <tt>compile</tt>.
+     * @return true when a dependency with this scope belongs to this scope.
+     */
+    boolean includes(String scope) {
+        if (scope == null || scope.isEmpty()) {
+            return includes(Artifact.SCOPE_COMPILE);
+        }
+        switch (this) {
+            case COMPILE:
+                return Artifact.SCOPE_COMPILE.equals(scope) || Artifact.SCOPE_PROVIDED.equals(scope)
+                        || Artifact.SCOPE_SYSTEM.equals(scope);
+            case RUNTIME:
+                return Artifact.SCOPE_COMPILE.equals(scope) || Artifact.SCOPE_RUNTIME.equals(scope);
+            case ALL:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
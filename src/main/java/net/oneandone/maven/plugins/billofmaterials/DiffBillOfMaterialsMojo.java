@@ -0,0 +1,189 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import java.io.File;
+import java.io.IOException;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Compares two bills of materials and reports the added, removed, changed and unchanged entries as text and JSON,
+ * see {@link BillOfMaterialsDiff}.
+ *
+ * <p>Both bills of materials are given either as path to a file in any format read by the <tt>read</tt> goal or as
+ * coordinates <tt>groupId:artifactId:version:type[:classifier]</tt> of an artifact already resolved to the local
+ * repository, e.g. by <tt>dependency:get</tt>.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+@Mojo(name = "diff", requiresProject = false, threadSafe = true)
+public class DiffBillOfMaterialsMojo extends AbstractMojo {
+
+    /**
+     * Old bill of materials, a path or coordinates in the local repository.
+     */
+    @Parameter(required = true, property = "bill-of-materials.from")
+    private String from;
+
+    /**
+     * New bill of materials, a path or coordinates in the local repository.
+     */
+    @Parameter(
+        defaultValue = "${session.executionRootDirectory}/target/tickets/bill-of-materials.txt",
+        required = true, property = "bill-of-materials.to")
+    private String to;
+
+    /**
+     * Match entries of different versions of a module, e.g. <tt>child1-1.0.jar</tt> and <tt>child1-1.1.jar</tt>,
+     * or of a dependency, e.g. <tt>g/a/1.0/a-1.0.jar</tt> and <tt>g/a/1.1/a-1.1.jar</tt>, which is what comparing
+     * two releases needs.
+     */
+    @Parameter(defaultValue = "true", property = "bill-of-materials.ignoreVersions")
+    private boolean ignoreVersions = true;
+
+    /**
+     * Location of the text report.
+     */
+    @Parameter(
+        defaultValue = "${session.executionRootDirectory}/target/bill-of-materials-diff.txt",
+        property = "bill-of-materials.diffReport")
+    private File diffReport;
+
+    /**
+     * Location of the JSON report.
+     */
+    @Parameter(
+        defaultValue = "${session.executionRootDirectory}/target/bill-of-materials-diff.json",
+        property = "bill-of-materials.diffJsonReport")
+    private File diffJsonReport;
+
+    /**
+     * Fail the build when an entry was added, removed or changed.
+     */
+    @Parameter(defaultValue = "false", property = "bill-of-materials.failOnDiff")
+    private boolean failOnDiff;
+
+    /**
+     * The Maven session.
+     */
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    /**
+     * Default constructor for maven.
+     */
+    DiffBillOfMaterialsMojo() {
+        super();
+    }
+
+    /**
+     * Just for tests.
+     * @param from old bill of materials.
+     * @param to new bill of materials.
+     * @param diffReport location of the text report.
+     * @param diffJsonReport location of the JSON report.
+     * @param session current session.
+     */
+    DiffBillOfMaterialsMojo(String from, String to, File diffReport, File diffJsonReport, MavenSession session) {
+        this.from = from;
+        this.to = to;
+        this.diffReport = diffReport;
+        this.diffJsonReport = diffJsonReport;
+        this.session = session;
+    }
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        final BillOfMaterialsDiff diff;
+        try {
+            diff = BillOfMaterialsDiff.of(parse(from), parse(to), ignoreVersions);
+            write(diffReport, diff.toText());
+            write(diffJsonReport, diff.toJson());
+        } catch (IOException e) {
+            throw new MojoExecutionException(e.toString(), e);
+        }
+        getLog().info("Comparing " + from + " with " + to + ": " + diff.getSummary() + ", see " + diffReport);
+        if (getLog().isDebugEnabled()) {
+            getLog().debug(diff.toText());
+        }
+        if (failOnDiff && !diff.isEmpty()) {
+            throw new MojoFailureException("Bills of materials differ: " + diff.getSummary());
+        }
+    }
+
+    /**
+     * @param location path or coordinates in the local repository
+     * @return the parsed bill of materials.
+     * @throws IOException when the bill of materials could not be found or read.
+     */
+    BillOfMaterials parse(String location) throws IOException {
+        return BillOfMaterials.parse(locate(location));
+    }
+
+    /**
+     * Resolves coordinates <tt>groupId:artifactId:version:type[:classifier]</tt> in the local repository, every
+     * other location is a path.
+     *
+     * @param location path or coordinates in the local repository
+     * @return the file.
+     * @throws IOException when the file could not be found.
+     */
+    File locate(String location) throws IOException {
+        final File file = new File(location);
+        final String[] coordinates = location.split(":");
+        if (file.isFile() || coordinates.length < 4 || coordinates.length > 5) {
+            return file;
+        }
+        if (session == null || session.getLocalRepository() == null) {
+            throw new IOException("No local repository to resolve " + location);
+        }
+        final String classifier = coordinates.length == 5 ? "-" + coordinates[4] : "";
+        final File artifactFile = new File(session.getLocalRepository().getBasedir(),
+                coordinates[0].replace('.', '/') + '/' + coordinates[1] + '/' + coordinates[2] + '/'
+                        + coordinates[1] + '-' + coordinates[2] + classifier + '.' + coordinates[3]);
+        if (!artifactFile.isFile()) {
+            throw new IOException(location + " not found in local repository as " + artifactFile
+                    + ", resolve it first, e.g. with dependency:get");
+        }
+        return artifactFile;
+    }
+
+    /**
+     * Replaces the report atomically.
+     *
+     * @param report location of the report
+     * @param content of the report
+     * @throws IOException when the report could not be written.
+     */
+    private static void write(File report, String content) throws IOException {
+        AtomicFiles.write(report, content);
+    }
+
+    /**
+     * Just for tests.
+     * @param ignoreVersions whether entries of different versions match.
+     * @param failOnDiff whether differences fail the build.
+     */
+    void setOptions(boolean ignoreVersions, boolean failOnDiff) {
+        this.ignoreVersions = ignoreVersions;
+        this.failOnDiff = failOnDiff;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Maps names of {@link java.security.MessageDigest} algorithms to the tags used by <tt>sha256sum --tag</tt>
+ * and back.
+ *
+ * <p>The tags are listed explicitly, as no rule derives both <tt>SHA256</tt> from <tt>SHA-256</tt> and
+ * <tt>SHA3-256</tt> from <tt>SHA3-256</tt>. The SHA-3 tags are the ones of GNU <tt>cksum</tt>, the truncated
+ * SHA-512 tags the ones of BSD <tt>sha512t256</tt>. Other algorithms are used as their own tag.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+final class DigestAlgorithms {
+
+    /**
+     * Tags of the known algorithms.
+     */
+    private static final ImmutableBiMap<String, String> TAGS = ImmutableBiMap.<String, String>builder()
+            .put("MD2", "MD2")
+            .put("MD5", "MD5")
+            .put("SHA-1", "SHA1")
+            .put("SHA-224", "SHA224")
+            .put("SHA-256", "SHA256")
+            .put("SHA-384", "SHA384")
+            .put("SHA-512", "SHA512")
+            .put("SHA-512/224", "SHA512t224")
+            .put("SHA-512/256", "SHA512t256")
+            .put("SHA3-224", "SHA3-224")
+            .put("SHA3-256", "SHA3-256")
+            .put("SHA3-384", "SHA3-384")
+            .put("SHA3-512", "SHA3-512")
+            .build();
+
+    /**
+     * Known algorithms by the upper case of their tags, as tags are matched ignoring case.
+     */
+    private static final Map<String, String> ALGORITHMS = algorithmsByUpperCaseTag();
+
+    /**
+     * No instances.
+     */
+    private DigestAlgorithms() {
+        super();
+    }
+
+    /**
+     * Returns the tag of an algorithm, e.g. <tt>SHA256</tt> for <tt>SHA-256</tt>.
+     *
+     * @param algorithm name of the {@link java.security.MessageDigest} algorithm
+     * @return the tag.
+     */
+    static String toTag(String algorithm) {
+        final String tag = TAGS.get(algorithm.toUpperCase(Locale.ENGLISH));
+        return tag == null ? algorithm : tag;
+    }
+
+    /**
+     * Returns the algorithm of a tag, e.g. <tt>SHA-256</tt> for <tt>SHA256</tt>.
+     *
+     * @param tag as written by <tt>sha256sum --tag</tt>
+     * @return the name of the {@link java.security.MessageDigest} algorithm.
+     */
+    static String fromTag(String tag) {
+        final String algorithm = ALGORITHMS.get(tag.toUpperCase(Locale.ENGLISH));
+        return algorithm == null ? tag : algorithm;
+    }
+
+    /**
+     * Formats the line of the primary digest of a file: in the format of <tt>sha1sum</tt> when the algorithm is
+     * the one {@link #forHash(String) guessed} from the length of the digest, otherwise tagged like
+     * <tt>sha256sum --tag</tt>, so e.g. a SHA3-256 digest is not mistaken for a SHA-256 one when reading it.
+     *
+     * @param algorithm name of the {@link java.security.MessageDigest} algorithm
+     * @param hash hex encoded digest
+     * @param fileName name of the file
+     * @return the line.
+     */
+    static String primaryLine(String algorithm, String hash, String fileName) {
+        return forHash(hash).equalsIgnoreCase(algorithm)
+                ? hash + "  " + fileName : taggedLine(algorithm, hash, fileName);
+    }
+
+    /**
+     * @param algorithm name of the {@link java.security.MessageDigest} algorithm
+     * @param hash hex encoded digest
+     * @param fileName name of the file
+     * @return the line in the format of <tt>sha256sum --tag</tt>.
+     */
+    static String taggedLine(String algorithm, String hash, String fileName) {
+        return toTag(algorithm) + " (" + fileName + ") = " + hash;
+    }
+
+    /**
+     * Guesses the algorithm of an untagged hash line from the length of the hex encoded digest.
+     *
+     * @param hash hex encoded digest
+     * @return the name of the {@link java.security.MessageDigest} algorithm, SHA-1 when the length is unknown.
+     */
+    static String forHash(String hash) {
+        switch (hash.length()) {
+            case 32:
+                return "MD5";
+            case 64:
+                return "SHA-256";
+            case 96:
+                return "SHA-384";
+            case 128:
+                return "SHA-512";
+            default:
+                return FileHasher.SHA1;
+        }
+    }
+
+    /**
+     * @return the known algorithms by the upper case of their tags.
+     */
+    private static Map<String, String> algorithmsByUpperCaseTag() {
+        final ImmutableMap.Builder<String, String> algorithms = ImmutableMap.builder();
+        for (final Map.Entry<String, String> entry : TAGS.inverse().entrySet()) {
+            algorithms.put(entry.getKey().toUpperCase(Locale.ENGLISH), entry.getValue());
+        }
+        return algorithms.build();
+    }
+}
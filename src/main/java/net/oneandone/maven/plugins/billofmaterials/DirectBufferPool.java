@@ -0,0 +1,103 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of direct buffers shared by all threads.
+ *
+ * <p>Buffers are not bound to a thread, as a virtual-thread-per-task executor would allocate a new direct buffer
+ * for every file, which is only freed by the garbage collector. At most <tt>maxDirectBuffers</tt> direct buffers
+ * are ever allocated and reused afterwards; when all of them are in use, a heap buffer is handed out for a single
+ * read instead, so direct memory stays bounded however many reads run concurrently.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+final class DirectBufferPool {
+
+    /**
+     * Idle direct buffers.
+     */
+    private final BlockingQueue<ByteBuffer> idle;
+
+    /**
+     * Number of direct buffers allocated so far.
+     */
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    /**
+     * Maximum number of direct buffers.
+     */
+    private final int maxDirectBuffers;
+
+    /**
+     * Size of every buffer.
+     */
+    private final int bufferSize;
+
+    /**
+     * @param maxDirectBuffers maximum number of direct buffers
+     * @param bufferSize size of every buffer
+     */
+    DirectBufferPool(int maxDirectBuffers, int bufferSize) {
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, maxDirectBuffers));
+        this.maxDirectBuffers = Math.max(1, maxDirectBuffers);
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * @return a cleared buffer, callers must {@link #release(ByteBuffer) release} it.
+     */
+    ByteBuffer acquire() {
+        final ByteBuffer buffer = idle.poll();
+        if (buffer != null) {
+            buffer.clear();
+            return buffer;
+        }
+        if (allocated.incrementAndGet() <= maxDirectBuffers) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        allocated.decrementAndGet();
+        return ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * @param buffer acquired before, direct buffers are kept for reuse.
+     */
+    void release(ByteBuffer buffer) {
+        if (buffer.isDirect()) {
+            idle.offer(buffer);
+        }
+    }
+
+    /**
+     * @return the number of direct buffers allocated so far.
+     */
+    int getAllocated() {
+        return Math.min(allocated.get(), maxDirectBuffers);
+    }
+
+    /**
+     * @return the size of every buffer.
+     */
+    int getBufferSize() {
+        return bufferSize;
+    }
+}
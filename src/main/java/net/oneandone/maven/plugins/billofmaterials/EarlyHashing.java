@@ -0,0 +1,144 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.hash.HashCode;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Hashes files of all modules of a reactor in the background, so hashing overlaps with the rest of the build.
+ *
+ * <p>A result is only handed out when size, last modification time and file key of the file are unchanged since it
+ * was submitted, otherwise the caller has to hash the file again.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+final class EarlyHashing {
+
+    /**
+     * Calculates the digests in the background.
+     */
+    private final ListeningExecutorService executor;
+
+    /**
+     * Submitted files by algorithms and canonical path.
+     */
+    private final ConcurrentMap<String, Submission> submissions = new ConcurrentHashMap<>();
+
+    /**
+     * @param executor calculates the digests in the background.
+     */
+    EarlyHashing(ListeningExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Starts hashing the file unless it was submitted already and did not change since.
+     *
+     * @param fileHasher calculates the digests
+     * @param file to hash
+     * @return true when the file was submitted.
+     * @throws IOException when the attributes of the file could not be read.
+     */
+    boolean submit(final FileHasher fileHasher, final File file) throws IOException {
+        final HashCache.FileState state = HashCache.FileState.of(file);
+        final String key = key(fileHasher.getAlgorithms(), state);
+        final Submission previous = submissions.get(key);
+        if (previous != null && previous.state.equals(state)) {
+            return false;
+        }
+        final ListenableFuture<Map<String, HashCode>> future = executor.submit(
+                new Callable<Map<String, HashCode>>() {
+                    @Override
+                    public Map<String, HashCode> call() throws IOException {
+                        return fileHasher.hash(file);
+                    }
+                });
+        submissions.put(key, new Submission(state, future));
+        return true;
+    }
+
+    /**
+     * Waits for the digests of a submitted file.
+     *
+     * @param algorithms of the digests
+     * @param file to look up
+     * @return the digests or <tt>null</tt> when the file was not submitted, changed since or could not be hashed.
+     * @throws IOException when the attributes of the file could not be read or the thread was interrupted.
+     */
+    Map<String, HashCode> get(List<String> algorithms, File file) throws IOException {
+        final HashCache.FileState state = HashCache.FileState.of(file);
+        final Submission submission = submissions.get(key(algorithms, state));
+        if (submission == null || !submission.state.equals(state)) {
+            return null;
+        }
+        try {
+            final Map<String, HashCode> hashes = submission.future.get();
+            // the file may have been changed while it was hashed.
+            return state.equals(HashCache.FileState.of(file)) ? hashes : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the hashes of " + file);
+        } catch (ExecutionException e) {
+            // hashing again reports the failure in the context of the caller.
+            return null;
+        }
+    }
+
+    /**
+     * @param algorithms of the digests
+     * @param state of the file
+     * @return key of the submission.
+     */
+    private static String key(List<String> algorithms, HashCache.FileState state) {
+        return algorithms + "\t" + state.getPath();
+    }
+
+    /**
+     * State of a submitted file and the pending digests.
+     */
+    private static final class Submission {
+
+        /**
+         * State of the file when it was submitted.
+         */
+        private final HashCache.FileState state;
+
+        /**
+         * Pending digests.
+         */
+        private final ListenableFuture<Map<String, HashCode>> future;
+
+        /**
+         * @param state of the file when it was submitted
+         * @param future pending digests
+         */
+        Submission(HashCache.FileState state, ListenableFuture<Map<String, HashCode>> future) {
+            this.state = state;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.hash.HashCode;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Takes the digests hashed in the background by {@link EarlyHashing} and only delegates for files which were not
+ * submitted or changed since.
+ *
+ * @author Mirko Friedenhagen
+ */
+final class EarlyHashingFileHasher implements FileHasher {
+
+    /**
+     * Calculates the digests of files not hashed in the background.
+     */
+    private final FileHasher delegate;
+
+    /**
+     * Digests hashed in the background.
+     */
+    private final EarlyHashing earlyHashing;
+
+    /**
+     * @param delegate calculates the digests of files not hashed in the background.
+     * @param earlyHashing digests hashed in the background.
+     */
+    EarlyHashingFileHasher(FileHasher delegate, EarlyHashing earlyHashing) {
+        this.delegate = delegate;
+        this.earlyHashing = earlyHashing;
+    }
+
+    @Override
+    public Map<String, HashCode> hash(File file) throws IOException {
+        final Map<String, HashCode> hashes = earlyHashing.get(getAlgorithms(), file);
+        return hashes != null ? hashes : delegate.hash(file);
+    }
+
+    @Override
+    public List<String> getAlgorithms() {
+        return delegate.getAlgorithms();
+    }
+}
@@ -15,39 +15,35 @@
  */
 package net.oneandone.maven.plugins.billofmaterials;
 
-import com.google.common.base.Function;
 import com.google.common.hash.HashCode;
-import com.google.common.hash.HashFunction;
-import com.google.common.io.Files;
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 
 /**
- * Creates a hashsum check for a single artifact.
+ * Calculates the digests of a file.
+ *
  * @author Mirko Friedenhagen
  */
-final class ToBomStringFunction implements Function<File, String> {
+interface FileHasher {
+
     /**
-     * SHA1 algorithm.
+     * Standard algorithm used in Maven.
      */
-    private final HashFunction hashFunction;
+    String SHA1 = "SHA-1";
 
     /**
-     * @param hashFunction to use.
+     * Calculates the digests of the given file.
+     *
+     * @param file to hash
+     * @return the digests by algorithm, in the order of {@link #getAlgorithms()}.
+     * @throws IOException when the file could not be read.
      */
-    ToBomStringFunction(HashFunction hashFunction) {
-        this.hashFunction = hashFunction;
-    }
-
-    @Override
-    public String apply(final File file) {
-        final HashCode hash;
-        try {
-            hash = Files.asByteSource(file).hash(hashFunction);
-        } catch (IOException e) {
-            throw new IllegalArgumentException("Could not create hash for " + file, e);
-        }
-        return hash + "  " + file.getName();
-    }
+    Map<String, HashCode> hash(File file) throws IOException;
 
+    /**
+     * @return the names of the {@link java.security.MessageDigest} algorithms, the first one is the primary.
+     */
+    List<String> getAlgorithms();
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Supplier;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Starts hashing the artifacts and the POM in the background, so hashing overlaps with the rest of the build.
+ *
+ * <p>The goal returns immediately, {@link CreateBillOfMaterialsMojo} later on only collects the digests. Artifacts
+ * attached after this goal ran, or changed since, are hashed by <tt>create</tt> as usual. The goal may be bound to
+ * several phases, e.g. again after sources and javadoc have been attached.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+@Mojo(name = "hash", defaultPhase = LifecyclePhase.PACKAGE, threadSafe = true)
+public class HashBillOfMaterialsMojo extends AbstractBillOfMaterialsMojo {
+
+    /**
+     * Names of the digest algorithms, must be the same as for the <tt>create</tt> goal.
+     */
+    @Parameter(defaultValue = "SHA-1", property = "bill-of-materials.algorithms")
+    private List<String> algorithms = Collections.singletonList(FileHasher.SHA1);
+
+    /**
+     * Number of threads hashing in the background, shared by all modules of the reactor.
+     */
+    @Parameter(defaultValue = "2", property = "bill-of-materials.earlyHashingThreads")
+    private int earlyHashingThreads = 2;
+
+    /**
+     * Hash every distinct file only once per reactor, shared with the <tt>create</tt> goal, see there.
+     */
+    @Parameter(defaultValue = "true", property = "bill-of-materials.deduplicateHashing")
+    private boolean deduplicateHashing = true;
+
+    /**
+     * Maximum number of files hashed at the same time per file system, shared with the <tt>create</tt> goal, see
+     * there. <tt>0</tt> means no limit.
+     */
+    @Parameter(defaultValue = "0", property = "bill-of-materials.maxOpenFiles")
+    private int maxOpenFiles;
+
+    /**
+     * Maximum size in megabytes of the files hashed at the same time per file system, shared with the
+     * <tt>create</tt> goal, see there. <tt>0</tt> means no limit.
+     */
+    @Parameter(defaultValue = "0", property = "bill-of-materials.maxInFlightMegabytes")
+    private int maxInFlightMegabytes;
+
+    /**
+     * The Maven session.
+     */
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    /**
+     * Default constructor for maven.
+     */
+    HashBillOfMaterialsMojo() {
+        super();
+    }
+
+    /**
+     * Just for tests.
+     * @param project current project
+     * @param session current session
+     */
+    HashBillOfMaterialsMojo(MavenProject project, MavenSession session) {
+        super(null, project);
+        this.session = session;
+    }
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        final FileHasher fileHasher = createFileHasher();
+        final EarlyHashing earlyHashing = getEarlyHashing(session, getProject(), earlyHashingThreads);
+        final List<File> files = new ArrayList<>(getListOfArtifactsAsFiles());
+        files.add(getProject().getFile());
+        try {
+            int submitted = 0;
+            for (final File file : files) {
+                // the main artifact is not built yet when bound to an early phase.
+                if (file == null || !file.isFile()) {
+                    getLog().debug("Skipping " + file);
+                } else if (earlyHashing.submit(fileHasher, file)) {
+                    submitted++;
+                }
+            }
+            getLog().debug("Started hashing " + submitted + " files in the background");
+        } catch (IOException e) {
+            throw new MojoExecutionException(e.toString(), e);
+        }
+    }
+
+    /**
+     * Creates the hasher used in the background: throttled and sharing its digests with the reactor like the one
+     * of the <tt>create</tt> goal.
+     *
+     * @return the hasher.
+     */
+    FileHasher createFileHasher() {
+        FileHasher fileHasher = new ChannelFileHasher(algorithms);
+        if (maxOpenFiles > 0 || maxInFlightMegabytes > 0) {
+            fileHasher = new ThrottlingFileHasher(fileHasher, CreateBillOfMaterialsMojo.getThrottlingLimits(
+                    session, getProject(), maxOpenFiles, maxInFlightMegabytes));
+        }
+        if (deduplicateHashing) {
+            fileHasher = new SharedFileHasher(fileHasher,
+                    CreateBillOfMaterialsMojo.getSharedHashes(session, getProject()));
+        }
+        return fileHasher;
+    }
+
+    /**
+     * Just for tests.
+     * @param maxOpenFiles maximum number of files hashed at the same time per file system.
+     * @param maxInFlightMegabytes maximum size of the files hashed at the same time per file system.
+     */
+    void setThrottling(int maxOpenFiles, int maxInFlightMegabytes) {
+        this.maxOpenFiles = maxOpenFiles;
+        this.maxInFlightMegabytes = maxInFlightMegabytes;
+    }
+
+    /**
+     * Returns the early hashing of the reactor, creating it on first access.
+     *
+     * @param session current session
+     * @param project current project
+     * @param threads number of threads hashing in the background
+     * @return the early hashing of the reactor.
+     */
+    static EarlyHashing getEarlyHashing(MavenSession session, MavenProject project, final int threads) {
+        return ReactorScope.of(session, project).get(EarlyHashing.class.getName(), new Supplier<EarlyHashing>() {
+            @Override
+            public EarlyHashing get() {
+                return new EarlyHashing(HashingExecutors.newSharedThreadPool(threads));
+            }
+        });
+    }
+}
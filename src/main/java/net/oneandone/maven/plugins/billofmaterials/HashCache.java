@@ -0,0 +1,323 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.hash.HashCode;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Persistent cache of file digests, keyed by the canonical path and the algorithm.
+ *
+ * <p>A stored digest is only reused when size, last modification time and file key (the inode on
+ * Unix systems) of the file are unchanged. The cache keeps at most <tt>maxEntries</tt> entries
+ * and evicts the least recently used ones. Every line of the cache file looks like this:</p>
+ * <pre>
+ * SHA-1\tda39a3ee5e6b4b0d3255bfef95601890afd80709\t0\t1400000000000\t(dev=803,ino=42)\t/path/to/file
+ * </pre>
+ *
+ * @author Mirko Friedenhagen
+ */
+final class HashCache {
+
+    /**
+     * Separator of the columns in the cache file.
+     */
+    private static final char SEPARATOR = '\t';
+
+    /**
+     * Splits the lines of the cache file.
+     */
+    private static final Splitter SPLITTER = Splitter.on(SEPARATOR).limit(6);
+
+    /**
+     * File key written when the file system does not provide one.
+     */
+    private static final String NO_FILE_KEY = "-";
+
+    /**
+     * Location of the cache.
+     */
+    private final File cacheFile;
+
+    /**
+     * Cached entries in access order.
+     */
+    private final Map<String, Entry> entries;
+
+    /**
+     * Whether entries were added since loading.
+     */
+    private boolean modified;
+
+    /**
+     * @param cacheFile location of the cache.
+     * @param maxEntries maximum number of entries to keep.
+     */
+    HashCache(File cacheFile, final int maxEntries) {
+        this.cacheFile = cacheFile;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Reads the entries from {@link #cacheFile}, a missing cache file results in an empty cache.
+     *
+     * @throws IOException when the cache file could not be read or is corrupt.
+     */
+    synchronized void load() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(cacheFile.toPath(), Charsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final List<String> columns = SPLITTER.splitToList(line);
+                if (columns.size() != 6) {
+                    throw new IOException("Corrupt line in " + cacheFile + ": " + line);
+                }
+                try {
+                    final FileState state = new FileState(
+                            columns.get(5), Long.parseLong(columns.get(2)), Long.parseLong(columns.get(3)),
+                            columns.get(4));
+                    entries.put(key(columns.get(0), state.path), new Entry(state, HashCode.fromString(columns.get(1))));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Corrupt line in " + cacheFile + ": " + line, e);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            entries.clear();
+        }
+        modified = false;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    synchronized void clear() {
+        entries.clear();
+        modified = false;
+    }
+
+    /**
+     * Writes the entries to {@link #cacheFile} when the cache was modified, replacing the file atomically.
+     *
+     * @throws IOException when the cache file could not be written.
+     */
+    synchronized void save() throws IOException {
+        if (!modified) {
+            return;
+        }
+        AtomicFiles.write(cacheFile, new AtomicFiles.Content() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                try (BufferedWriter writer = AtomicFiles.newWriter(out)) {
+                    for (final Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+                        final Entry entry = mapEntry.getValue();
+                        final String algorithm = mapEntry.getKey().substring(0, mapEntry.getKey().indexOf(SEPARATOR));
+                        writer.append(algorithm).append(SEPARATOR)
+                                .append(entry.hash.toString()).append(SEPARATOR)
+                                .append(String.valueOf(entry.state.size)).append(SEPARATOR)
+                                .append(String.valueOf(entry.state.lastModified)).append(SEPARATOR)
+                                .append(entry.state.fileKey).append(SEPARATOR)
+                                .append(entry.state.path).append('\n');
+                    }
+                }
+            }
+        });
+        modified = false;
+    }
+
+    /**
+     * Returns the stored digest when the file did not change since it was stored.
+     *
+     * @param algorithm of the digest
+     * @param state current state of the file
+     * @return the stored digest or <tt>null</tt>.
+     */
+    synchronized HashCode get(String algorithm, FileState state) {
+        final Entry entry = entries.get(key(algorithm, state.path));
+        return entry != null && entry.state.equals(state) ? entry.hash : null;
+    }
+
+    /**
+     * Stores the digest of a file.
+     *
+     * @param algorithm of the digest
+     * @param state of the file at the time it was hashed
+     * @param hash digest of the file
+     */
+    synchronized void put(String algorithm, FileState state, HashCode hash) {
+        entries.put(key(algorithm, state.path), new Entry(state, hash));
+        modified = true;
+    }
+
+    /**
+     * @return the number of cached entries.
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @param algorithm of the digest
+     * @param path canonical path of the file
+     * @return key of the entry.
+     */
+    private static String key(String algorithm, String path) {
+        return algorithm + SEPARATOR + path;
+    }
+
+    /**
+     * Canonical path, size, last modification time and file key of a file.
+     */
+    static final class FileState {
+
+        /**
+         * Canonical path.
+         */
+        private final String path;
+
+        /**
+         * Size in bytes.
+         */
+        private final long size;
+
+        /**
+         * Last modification time in milliseconds.
+         */
+        private final long lastModified;
+
+        /**
+         * File key or {@link #NO_FILE_KEY}.
+         */
+        private final String fileKey;
+
+        /**
+         * @param path canonical path
+         * @param size in bytes
+         * @param lastModified in milliseconds
+         * @param fileKey file key or {@link #NO_FILE_KEY}
+         */
+        FileState(String path, long size, long lastModified, String fileKey) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.fileKey = fileKey;
+        }
+
+        /**
+         * Reads the current state of a file.
+         *
+         * @param file to inspect
+         * @return the current state.
+         * @throws IOException when the attributes could not be read.
+         */
+        static FileState of(File file) throws IOException {
+            final File canonicalFile = file.getCanonicalFile();
+            final BasicFileAttributes attributes = Files.readAttributes(
+                    canonicalFile.toPath(), BasicFileAttributes.class);
+            final Object fileKey = attributes.fileKey();
+            return new FileState(
+                    canonicalFile.getPath(),
+                    attributes.size(),
+                    attributes.lastModifiedTime().toMillis(),
+                    fileKey == null ? NO_FILE_KEY : fileKey.toString());
+        }
+
+        /**
+         * @return the canonical path.
+         */
+        String getPath() {
+            return path;
+        }
+
+        /**
+         * @return the file key when the file system provides one, the canonical path otherwise.
+         */
+        String getIdentity() {
+            return NO_FILE_KEY.equals(fileKey) ? path : fileKey;
+        }
+
+        /**
+         * @param other state of a file with the same {@link #getIdentity()}
+         * @return true when size and last modification time are unchanged, i.e. the content is the same.
+         */
+        boolean isUnchanged(FileState other) {
+            return getIdentity().equals(other.getIdentity()) && size == other.size
+                    && lastModified == other.lastModified;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FileState)) {
+                return false;
+            }
+            final FileState other = (FileState) obj;
+            return path.equals(other.path) && size == other.size && lastModified == other.lastModified
+                    && fileKey.equals(other.fileKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return path.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ENGLISH, "%s size=%d lastModified=%d fileKey=%s",
+                    path, size, lastModified, fileKey);
+        }
+    }
+
+    /**
+     * A cached digest together with the state of the file it was calculated for.
+     */
+    private static final class Entry {
+
+        /**
+         * State of the file when it was hashed.
+         */
+        private final FileState state;
+
+        /**
+         * Digest of the file.
+         */
+        private final HashCode hash;
+
+        /**
+         * @param state of the file when it was hashed
+         * @param hash digest of the file
+         */
+        Entry(FileState state, HashCode hash) {
+            this.state = state;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+/**
+ * What happens when a file of a module could not be hashed.
+ *
+ * @author Mirko Friedenhagen
+ */
+public enum HashingErrorPolicy {
+
+    /**
+     * The first failure stops the module, files still being hashed are cancelled.
+     */
+    FAIL_FAST,
+
+    /**
+     * All files are hashed, afterwards every failure is reported with its path and cause.
+     */
+    COLLECT_ALL
+}
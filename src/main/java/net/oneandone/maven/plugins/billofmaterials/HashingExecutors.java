@@ -0,0 +1,180 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.util.concurrent.ForwardingExecutorService;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the executors used to calculate hashes.
+ *
+ * @author Mirko Friedenhagen
+ */
+final class HashingExecutors {
+
+    /**
+     * <tt>Executors.newVirtualThreadPerTaskExecutor()</tt> of Java 21 and later or <tt>null</tt>.
+     */
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findNewVirtualThreadPerTaskExecutor();
+
+    /**
+     * No instances.
+     */
+    private HashingExecutors() {
+        super();
+    }
+
+    /**
+     * Creates a pool of daemon threads, callers must shut it down.
+     *
+     * @param threads maximum number of threads
+     * @param tasks number of tasks, no more threads than tasks are created
+     * @return a new executor.
+     */
+    static ListeningExecutorService newFixedThreadPool(int threads, int tasks) {
+        return MoreExecutors.listeningDecorator(
+                Executors.newFixedThreadPool(
+                        Math.max(1, Math.min(threads, tasks)),
+                        new ThreadFactoryBuilder().setNameFormat("bill-of-materials-hashing-%d").setDaemon(true).build()));
+    }
+
+    /**
+     * Creates a pool of daemon threads which terminate after being idle for some seconds, so it may be shared
+     * by all modules of a reactor without being shut down.
+     *
+     * @param threads maximum number of threads
+     * @return a new executor.
+     */
+    static ListeningExecutorService newSharedThreadPool(int threads) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                Math.max(1, threads), Math.max(1, threads), 10, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("bill-of-materials-early-hashing-%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        return MoreExecutors.listeningDecorator(executor);
+    }
+
+    /**
+     * Creates an executor for hashing files, which is mostly waiting for I/O. When <tt>virtualThreads</tt> is set
+     * and the JDK provides them, every task runs on a virtual thread of its own and a semaphore keeps at most
+     * <tt>threads</tt> tasks running, so blocked reads do not occupy platform threads. Otherwise a
+     * {@link #newFixedThreadPool(int, int) fixed pool} is created. Callers must shut it down.
+     *
+     * @param virtualThreads whether to use virtual threads when available
+     * @param threads maximum number of concurrently running tasks
+     * @param tasks number of tasks, no more threads than tasks are created for the fixed pool
+     * @return a new executor.
+     */
+    static ListeningExecutorService newHashingExecutor(boolean virtualThreads, int threads, int tasks) {
+        if (virtualThreads && isVirtualThreadsSupported()) {
+            return MoreExecutors.listeningDecorator(
+                    new ConcurrencyLimitingExecutorService(newVirtualThreadPerTaskExecutor(), Math.max(1, threads)));
+        }
+        return newFixedThreadPool(threads, tasks);
+    }
+
+    /**
+     * @return true when the JDK provides virtual threads.
+     */
+    static boolean isVirtualThreadsSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * @return a new executor starting a virtual thread for every task.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Could not create virtual thread executor", e);
+        }
+    }
+
+    /**
+     * @return <tt>Executors.newVirtualThreadPerTaskExecutor()</tt> or <tt>null</tt> on JDKs before Java 21.
+     */
+    private static Method findNewVirtualThreadPerTaskExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Runs at most a given number of tasks at the same time, waiting tasks block their own (virtual) thread.
+     */
+    private static final class ConcurrencyLimitingExecutorService extends ForwardingExecutorService {
+
+        /**
+         * Runs the tasks.
+         */
+        private final ExecutorService delegate;
+
+        /**
+         * One permit per running task.
+         */
+        private final Semaphore running;
+
+        /**
+         * @param delegate runs the tasks.
+         * @param concurrency maximum number of running tasks.
+         */
+        ConcurrencyLimitingExecutorService(ExecutorService delegate, int concurrency) {
+            this.delegate = delegate;
+            this.running = new Semaphore(concurrency);
+        }
+
+        @Override
+        protected ExecutorService delegate() {
+            return delegate;
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            delegate.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        running.acquire();
+                    } catch (InterruptedException e) {
+                        // shut down while waiting, the task still runs to complete its future but sees the
+                        // interrupt, so reading a channel fails immediately.
+                        Thread.currentThread().interrupt();
+                        command.run();
+                        return;
+                    }
+                    try {
+                        command.run();
+                    } finally {
+                        running.release();
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Collects the files which could not be hashed according to a {@link HashingErrorPolicy}, may be shared by the
+ * threads hashing the files of a module.
+ *
+ * @author Mirko Friedenhagen
+ */
+final class HashingFailures {
+
+    /**
+     * Decides whether a failure is thrown at once.
+     */
+    private final HashingErrorPolicy policy;
+
+    /**
+     * Failures collected with {@link HashingErrorPolicy#COLLECT_ALL}.
+     */
+    private final List<Failure> failures = new ArrayList<>();
+
+    /**
+     * @param policy decides whether a failure is thrown at once.
+     */
+    HashingFailures(HashingErrorPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Records a file which could not be hashed.
+     *
+     * @param file which could not be hashed
+     * @param cause of the failure
+     * @throws IOException the cause itself with {@link HashingErrorPolicy#FAIL_FAST}.
+     */
+    void add(File file, IOException cause) throws IOException {
+        if (policy == HashingErrorPolicy.FAIL_FAST) {
+            throw cause;
+        }
+        synchronized (failures) {
+            failures.add(new Failure(file, cause));
+        }
+    }
+
+    /**
+     * @return the number of collected failures.
+     */
+    int size() {
+        synchronized (failures) {
+            return failures.size();
+        }
+    }
+
+    /**
+     * Reports all collected failures at once, sorted by path, the causes are attached as suppressed exceptions.
+     *
+     * @throws IOException when at least one failure was collected.
+     */
+    void throwIfAny() throws IOException {
+        final List<Failure> sorted;
+        synchronized (failures) {
+            if (failures.isEmpty()) {
+                return;
+            }
+            sorted = new ArrayList<>(failures);
+        }
+        Collections.sort(sorted, new Comparator<Failure>() {
+            @Override
+            public int compare(Failure o1, Failure o2) {
+                return String.valueOf(o1.file).compareTo(String.valueOf(o2.file));
+            }
+        });
+        final StringBuilder message = new StringBuilder("Could not hash ").append(sorted.size())
+                .append(sorted.size() == 1 ? " file:" : " files:");
+        for (final Failure failure : sorted) {
+            message.append("\n  ").append(failure.file).append(": ").append(failure.cause);
+        }
+        final IOException exception = new IOException(message.toString());
+        for (final Failure failure : sorted) {
+            exception.addSuppressed(failure.cause);
+        }
+        throw exception;
+    }
+
+    /**
+     * A file which could not be hashed.
+     */
+    private static final class Failure {
+
+        /**
+         * Which could not be hashed.
+         */
+        private final File file;
+
+        /**
+         * Of the failure.
+         */
+        private final IOException cause;
+
+        /**
+         * @param file which could not be hashed.
+         * @param cause of the failure.
+         */
+        Failure(File file, IOException cause) {
+            this.file = file;
+            this.cause = cause;
+        }
+    }
+}
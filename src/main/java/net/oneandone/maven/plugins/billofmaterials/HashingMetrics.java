@@ -0,0 +1,301 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Collects the time spent hashing every file of all modules of a reactor.
+ *
+ * <p>The report is written as JSON with the totals, the slowest files and all samples:</p>
+ * <pre>
+ * {
+ *   "files": 2, "bytesRead": 1048576, "millis": 12.345, "megabytesPerSecond": 81.004,
+ *   "cacheHits": 1, "cacheMisses": 1,
+ *   "slowest": [ { "module": "g:a:v", "file": "/path/to/a-v.jar", "size": 1048576, ... } ],
+ *   "samples": [ ... ]
+ * }
+ * </pre>
+ *
+ * @author Mirko Friedenhagen
+ */
+final class HashingMetrics {
+
+    /**
+     * Whether a digest was taken from the {@link HashCache}.
+     */
+    enum CacheStatus {
+        /** Taken from the hash cache. */
+        HIT,
+        /** Not in the hash cache, the file was read. */
+        MISS,
+        /** No hash cache configured, the file was read. */
+        DISABLED
+    }
+
+    /**
+     * Bytes per megabyte.
+     */
+    private static final double MEGABYTE = 1024 * 1024;
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1000 * 1000;
+
+    /**
+     * Orders the slowest samples first.
+     */
+    private static final Comparator<Sample> SLOWEST_FIRST = new Comparator<Sample>() {
+        @Override
+        public int compare(Sample o1, Sample o2) {
+            return Long.compare(o2.nanos, o1.nanos);
+        }
+    };
+
+    /**
+     * Recorded samples in the order they were recorded.
+     */
+    private final List<Sample> samples = new ArrayList<>();
+
+    /**
+     * Modules which have finished hashing.
+     */
+    private final ReactorCompletion completion;
+
+    /**
+     * @param projects of the reactor.
+     */
+    HashingMetrics(List<MavenProject> projects) {
+        this.completion = new ReactorCompletion(projects);
+    }
+
+    /**
+     * Records hashing a single file.
+     *
+     * @param module <tt>groupId:artifactId:version</tt> of the module
+     * @param file which was hashed
+     * @param bytesRead number of bytes read, <tt>0</tt> for a cache hit
+     * @param nanos time spent
+     * @param cacheStatus whether the digests were taken from the cache
+     */
+    synchronized void record(String module, File file, long bytesRead, long nanos, CacheStatus cacheStatus) {
+        samples.add(new Sample(module, file, file.length(), bytesRead, nanos, cacheStatus));
+    }
+
+    /**
+     * Marks a module as finished.
+     *
+     * @param project which finished hashing
+     * @return true when this was the last module of the reactor.
+     */
+    boolean finish(MavenProject project) {
+        return completion.finish(project);
+    }
+
+    /**
+     * @return the modules which did not finish hashing when the metrics have to be reported at the end of the
+     * session, otherwise <tt>null</tt>.
+     */
+    List<String> completeAtSessionEnd() {
+        return completion.completeAtSessionEnd() ? completion.getMissing() : null;
+    }
+
+    /**
+     * @param module <tt>groupId:artifactId:version</tt> of the module
+     * @return the samples of the module.
+     */
+    synchronized List<Sample> getSamples(String module) {
+        final List<Sample> moduleSamples = new ArrayList<>();
+        for (final Sample sample : samples) {
+            if (sample.module.equals(module)) {
+                moduleSamples.add(sample);
+            }
+        }
+        return moduleSamples;
+    }
+
+    /**
+     * @param limit maximum number of samples
+     * @return the slowest samples of all modules, the slowest first.
+     */
+    synchronized List<Sample> getSlowest(int limit) {
+        final List<Sample> sorted = new ArrayList<>(samples);
+        Collections.sort(sorted, SLOWEST_FIRST);
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+
+    /**
+     * Replaces the report atomically.
+     *
+     * @param report target file
+     * @param limit maximum number of slowest files listed
+     * @throws IOException when the report could not be written.
+     */
+    synchronized void write(File report, int limit) throws IOException {
+        AtomicFiles.write(report, toJson(limit));
+    }
+
+    /**
+     * @param limit maximum number of slowest files listed
+     * @return the report.
+     */
+    synchronized String toJson(int limit) {
+        long bytesRead = 0;
+        long nanos = 0;
+        int cacheHits = 0;
+        int cacheMisses = 0;
+        for (final Sample sample : samples) {
+            bytesRead += sample.bytesRead;
+            nanos += sample.nanos;
+            if (sample.cacheStatus == CacheStatus.HIT) {
+                cacheHits++;
+            } else if (sample.cacheStatus == CacheStatus.MISS) {
+                cacheMisses++;
+            }
+        }
+        final StringBuilder json = new StringBuilder();
+        json.append(String.format(Locale.ENGLISH,
+                "{\n  \"files\": %d,\n  \"bytesRead\": %d,\n  \"millis\": %.3f,\n  \"megabytesPerSecond\": %.3f,\n"
+                + "  \"cacheHits\": %d,\n  \"cacheMisses\": %d,\n",
+                samples.size(), bytesRead, nanos / NANOS_PER_MILLI, megabytesPerSecond(bytesRead, nanos),
+                cacheHits, cacheMisses));
+        appendSamples(json, "slowest", getSlowest(limit));
+        json.append(",\n");
+        appendSamples(json, "samples", samples);
+        return json.append("\n}\n").toString();
+    }
+
+    /**
+     * @param json to append to
+     * @param name of the array
+     * @param values samples to append
+     */
+    private static void appendSamples(StringBuilder json, String name, List<Sample> values) {
+        json.append("  \"").append(name).append("\": [");
+        for (int i = 0; i < values.size(); i++) {
+            json.append(i == 0 ? "\n    " : ",\n    ").append(values.get(i).toJson());
+        }
+        json.append(values.isEmpty() ? "]" : "\n  ]");
+    }
+
+    /**
+     * @param bytesRead number of bytes read
+     * @param nanos time spent
+     * @return the throughput, <tt>0</tt> when no time was measured.
+     */
+    static double megabytesPerSecond(long bytesRead, long nanos) {
+        return nanos == 0 ? 0 : bytesRead / MEGABYTE / (nanos / (NANOS_PER_MILLI * 1000));
+    }
+
+    /**
+     * Time spent hashing a single file.
+     */
+    static final class Sample {
+
+        /**
+         * <tt>groupId:artifactId:version</tt> of the module.
+         */
+        private final String module;
+
+        /**
+         * File which was hashed.
+         */
+        private final File file;
+
+        /**
+         * Size of the file.
+         */
+        private final long size;
+
+        /**
+         * Number of bytes read, <tt>0</tt> for a cache hit.
+         */
+        private final long bytesRead;
+
+        /**
+         * Time spent.
+         */
+        private final long nanos;
+
+        /**
+         * Whether the digests were taken from the cache.
+         */
+        private final CacheStatus cacheStatus;
+
+        /**
+         * @param module <tt>groupId:artifactId:version</tt> of the module
+         * @param file which was hashed
+         * @param size of the file
+         * @param bytesRead number of bytes read
+         * @param nanos time spent
+         * @param cacheStatus whether the digests were taken from the cache
+         */
+        Sample(String module, File file, long size, long bytesRead, long nanos, CacheStatus cacheStatus) {
+            this.module = module;
+            this.file = file;
+            this.size = size;
+            this.bytesRead = bytesRead;
+            this.nanos = nanos;
+            this.cacheStatus = cacheStatus;
+        }
+
+        /**
+         * @return the file which was hashed.
+         */
+        File getFile() {
+            return file;
+        }
+
+        /**
+         * @return the number of bytes read.
+         */
+        long getBytesRead() {
+            return bytesRead;
+        }
+
+        /**
+         * @return whether the digests were taken from the cache.
+         */
+        CacheStatus getCacheStatus() {
+            return cacheStatus;
+        }
+
+        /**
+         * @return the sample as JSON object.
+         */
+        String toJson() {
+            return String.format(Locale.ENGLISH,
+                    "{\"module\": %s, \"file\": %s, \"size\": %d, \"bytesRead\": %d, \"millis\": %.3f, "
+                    + "\"megabytesPerSecond\": %.3f, \"cache\": \"%s\"}",
+                    JsonStrings.quote(module), JsonStrings.quote(file.getPath()), size, bytesRead,
+                    nanos / NANOS_PER_MILLI, megabytesPerSecond(bytesRead, nanos), cacheStatus);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ENGLISH, "%s: %d bytes read in %.3f ms (%.3f MB/s, cache %s)",
+                    file, bytesRead, nanos / NANOS_PER_MILLI, megabytesPerSecond(bytesRead, nanos), cacheStatus);
+        }
+    }
+}
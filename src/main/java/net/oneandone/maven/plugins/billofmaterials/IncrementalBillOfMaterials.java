@@ -0,0 +1,235 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Replaces the section of a single module in an existing bill of materials.
+ *
+ * <p>The existing file is split into sections keyed by the <tt>groupId:artifactId:version</tt> of the
+ * <tt># g:a:v user=...</tt> comment. The section of the module is replaced at its position or appended when it is
+ * new, all other sections are kept unchanged. The result is written to a temporary file in the same directory first
+ * and then renamed, so readers either see the previous or the complete new bill of materials.</p>
+ *
+ * <p>The existing file is read twice: the first pass only records the position of the last section of every module,
+ * the second one copies the sections line by line to the temporary file. So only one line at a time and an index
+ * of the modules is held in memory, independent of the size of the bill of materials.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+final class IncrementalBillOfMaterials {
+
+    /**
+     * Target file.
+     */
+    private final File bomFile;
+
+    /**
+     * Compression of the target file.
+     */
+    private final Compression compression;
+
+    /**
+     * @param bomFile target file.
+     * @param compression of the target file.
+     */
+    IncrementalBillOfMaterials(File bomFile, Compression compression) {
+        this.bomFile = bomFile;
+        this.compression = compression;
+    }
+
+    /**
+     * Replaces or appends the section of a module.
+     *
+     * @param coordinates <tt>groupId:artifactId:version</tt> of the module
+     * @param section comment and hash lines of the module
+     * @throws IOException when the bill of materials could not be read or written.
+     */
+    void replace(final String coordinates, final String section) throws IOException {
+        final Map<String, Integer> lastSections = indexSections();
+        AtomicFiles.write(bomFile, new AtomicFiles.Content() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                try (BufferedWriter writer = AtomicFiles.newWriter(compression.wrap(out))) {
+                    if (!lastSections.isEmpty()) {
+                        final CopyingHandler handler = new CopyingHandler(writer, lastSections, coordinates, section);
+                        new BillOfMaterialsReader(handler).read(bomFile);
+                        handler.rethrow();
+                    }
+                    if (!lastSections.containsKey(coordinates)) {
+                        writer.write(section);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the position of the last section of every module in the existing bill of materials, starting with
+     * <tt>1</tt>, empty when there is none.
+     * @throws IOException when the bill of materials could not be read.
+     */
+    Map<String, Integer> indexSections() throws IOException {
+        if (!bomFile.isFile()) {
+            return Collections.emptyMap();
+        }
+        final IndexingHandler handler = new IndexingHandler();
+        new BillOfMaterialsReader(handler).read(bomFile);
+        return handler.lastSections;
+    }
+
+    /**
+     * Records the position of the last section of every module, lines before the first section count as section
+     * <tt>0</tt> under {@link BillOfMaterials#NO_COORDINATES}.
+     */
+    private static final class IndexingHandler implements BillOfMaterialsReader.Handler {
+
+        /**
+         * Position of the last section by coordinates.
+         */
+        private final Map<String, Integer> lastSections = new HashMap<>();
+
+        /**
+         * Position of the section read last.
+         */
+        private int position;
+
+        @Override
+        public void section(String coordinates, String line) {
+            lastSections.put(coordinates, ++position);
+        }
+
+        @Override
+        public void entry(String algorithm, String hash, String fileName, String line) {
+            if (position == 0) {
+                lastSections.put(BillOfMaterials.NO_COORDINATES, 0);
+            }
+        }
+
+        @Override
+        public void digest(String algorithm, String hash, String fileName, String line) {
+            entry(algorithm, hash, fileName, line);
+        }
+    }
+
+    /**
+     * Copies the raw lines of every section, skipping all but the last section of a module listed twice, e.g. by
+     * repeated appends, and writing the new section instead of the last one of the replaced module.
+     */
+    private static final class CopyingHandler implements BillOfMaterialsReader.Handler {
+
+        /**
+         * Receives the lines.
+         */
+        private final Writer writer;
+
+        /**
+         * Position of the last section by coordinates.
+         */
+        private final Map<String, Integer> lastSections;
+
+        /**
+         * Coordinates of the replaced module.
+         */
+        private final String coordinates;
+
+        /**
+         * New section of the replaced module.
+         */
+        private final String section;
+
+        /**
+         * Position of the section read last.
+         */
+        private int position;
+
+        /**
+         * Whether the lines of the current section are copied.
+         */
+        private boolean copy = true;
+
+        /**
+         * First failure while writing, as the handler may not throw.
+         */
+        private IOException failure;
+
+        /**
+         * @param writer receives the lines
+         * @param lastSections position of the last section by coordinates
+         * @param coordinates of the replaced module
+         * @param section new section of the replaced module
+         */
+        CopyingHandler(Writer writer, Map<String, Integer> lastSections, String coordinates, String section) {
+            this.writer = writer;
+            this.lastSections = lastSections;
+            this.coordinates = coordinates;
+            this.section = section;
+        }
+
+        @Override
+        public void section(String sectionCoordinates, String line) {
+            copy = lastSections.get(sectionCoordinates) == ++position;
+            if (copy && coordinates.equals(sectionCoordinates)) {
+                write(section);
+                copy = false;
+            } else if (copy) {
+                write(line + '\n');
+            }
+        }
+
+        @Override
+        public void entry(String algorithm, String hash, String fileName, String line) {
+            if (copy) {
+                write(line + '\n');
+            }
+        }
+
+        @Override
+        public void digest(String algorithm, String hash, String fileName, String line) {
+            entry(algorithm, hash, fileName, line);
+        }
+
+        /**
+         * @param text to write unless writing failed before
+         */
+        private void write(String text) {
+            if (failure == null) {
+                try {
+                    writer.write(text);
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        }
+
+        /**
+         * @throws IOException the first failure while writing.
+         */
+        void rethrow() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
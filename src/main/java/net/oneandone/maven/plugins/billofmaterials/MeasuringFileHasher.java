@@ -0,0 +1,85 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.hash.HashCode;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the time spent in the delegate for every file in {@link HashingMetrics}.
+ *
+ * <p>It wraps the hasher reading the file directly, so only files actually read are recorded, under the module
+ * which read them. Waiting for throttling permits or for digests calculated by another module is not recorded, and
+ * neither are digests taken from the hash cache, see {@link CachingFileHasher}, or hashed ahead of time by the
+ * <tt>hash</tt> goal.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+final class MeasuringFileHasher implements FileHasher {
+
+    /**
+     * Reads the file.
+     */
+    private final FileHasher delegate;
+
+    /**
+     * Receives the samples.
+     */
+    private final HashingMetrics metrics;
+
+    /**
+     * <tt>groupId:artifactId:version</tt> of the module.
+     */
+    private final String module;
+
+    /**
+     * Recorded for every sample, {@link HashingMetrics.CacheStatus#MISS} when the delegate is only called on
+     * cache misses.
+     */
+    private final HashingMetrics.CacheStatus cacheStatus;
+
+    /**
+     * @param delegate reads the file.
+     * @param metrics receives the samples.
+     * @param module <tt>groupId:artifactId:version</tt> of the module.
+     * @param cacheStatus recorded for every sample.
+     */
+    MeasuringFileHasher(
+            FileHasher delegate, HashingMetrics metrics, String module, HashingMetrics.CacheStatus cacheStatus) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.module = module;
+        this.cacheStatus = cacheStatus;
+    }
+
+    @Override
+    public Map<String, HashCode> hash(File file) throws IOException {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final Map<String, HashCode> hashes = delegate.hash(file);
+        metrics.record(module, file, file.length(), stopwatch.elapsed(TimeUnit.NANOSECONDS), cacheStatus);
+        return hashes;
+    }
+
+    @Override
+    public List<String> getAlgorithms() {
+        return delegate.getAlgorithms();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Collects the sections of all modules of a reactor and writes the bill of materials exactly once.
+ *
+ * <p>The file is written to a temporary file in the same directory first and then renamed, so readers either see
+ * the previous or the complete new bill of materials. Sections are written in reactor order, regardless of the
+ * order in which the modules finished. When some modules never hand over their section, the bill of materials is
+ * written with the available sections at the end of the session.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+final class ReactorBillOfMaterials {
+
+    /**
+     * Target file.
+     */
+    private final File bomFile;
+
+    /**
+     * Compression of the target file.
+     */
+    private final Compression compression;
+
+    /**
+     * Projects of the reactor in build order.
+     */
+    private final List<MavenProject> projects;
+
+    /**
+     * Sections by project key.
+     */
+    private final Map<String, String> sections = new HashMap<>();
+
+    /**
+     * Modules which handed over their section.
+     */
+    private final ReactorCompletion completion;
+
+    /**
+     * @param bomFile target file.
+     * @param compression of the target file.
+     * @param projects of the reactor in build order.
+     */
+    ReactorBillOfMaterials(File bomFile, Compression compression, List<MavenProject> projects) {
+        this.bomFile = bomFile;
+        this.compression = compression;
+        this.projects = projects;
+        this.completion = new ReactorCompletion(projects);
+    }
+
+    /**
+     * Adds the section of a project.
+     *
+     * @param project the section belongs to
+     * @param section comment and hash lines of the project
+     * @return true when this was the last missing section, the caller should invoke {@link #write()} then.
+     */
+    synchronized boolean add(MavenProject project, String section) {
+        sections.put(ReactorScope.projectKey(project), section);
+        return completion.finish(project);
+    }
+
+    /**
+     * @return the modules which did not hand over their section when the bill of materials has to be written at
+     * the end of the session, the caller should invoke {@link #write()} then, otherwise <tt>null</tt>.
+     */
+    List<String> completeAtSessionEnd() {
+        return completion.completeAtSessionEnd() ? completion.getMissing() : null;
+    }
+
+    /**
+     * Replaces the bill of materials atomically with all collected sections in reactor order.
+     *
+     * @throws IOException when the bill of materials could not be written.
+     */
+    synchronized void write() throws IOException {
+        AtomicFiles.write(bomFile, new AtomicFiles.Content() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                try (BufferedWriter writer = AtomicFiles.newWriter(compression.wrap(out))) {
+                    for (final MavenProject project : projects) {
+                        final String section = sections.get(ReactorScope.projectKey(project));
+                        if (section != null) {
+                            writer.write(section);
+                        }
+                    }
+                }
+            }
+        });
+    }
+}
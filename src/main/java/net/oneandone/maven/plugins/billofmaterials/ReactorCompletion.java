@@ -0,0 +1,97 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Tracks which modules of a reactor have finished a step, so the work for the whole reactor is done exactly once:
+ * either by the last module or, when some modules never finish because they failed or were skipped, at the end of
+ * the session, see {@link ReactorScope#onSessionEnd(String, Runnable)}.
+ *
+ * @author Mirko Friedenhagen
+ */
+final class ReactorCompletion {
+
+    /**
+     * Projects of the reactor in build order.
+     */
+    private final List<MavenProject> projects;
+
+    /**
+     * Keys of the finished projects.
+     */
+    private final Set<String> finished = new HashSet<>();
+
+    /**
+     * Whether the work for the whole reactor was claimed already.
+     */
+    private boolean completed;
+
+    /**
+     * @param projects of the reactor in build order.
+     */
+    ReactorCompletion(List<MavenProject> projects) {
+        this.projects = projects;
+    }
+
+    /**
+     * Marks a project as finished.
+     *
+     * @param project which finished the step
+     * @return true when this was the last project of the reactor, the caller does the work for the reactor then.
+     */
+    synchronized boolean finish(MavenProject project) {
+        finished.add(ReactorScope.projectKey(project));
+        if (!completed && finished.size() == projects.size()) {
+            completed = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Claims the work for the reactor at the end of the session.
+     *
+     * @return true when at least one but not every project finished, the caller does the work for the reactor then
+     * and should report {@link #getMissing()}.
+     */
+    synchronized boolean completeAtSessionEnd() {
+        if (completed || finished.isEmpty()) {
+            return false;
+        }
+        completed = true;
+        return true;
+    }
+
+    /**
+     * @return the keys of the projects which did not finish, in build order.
+     */
+    synchronized List<String> getMissing() {
+        final List<String> missing = new ArrayList<>();
+        for (final MavenProject project : projects) {
+            final String key = ReactorScope.projectKey(project);
+            if (!finished.contains(key)) {
+                missing.add(key);
+            }
+        }
+        return missing;
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Supplier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Holds state shared by all modules of one reactor build.
+ *
+ * <p>The parallel builder hands a clone of the {@link MavenSession} to every module, so the scope is bound to
+ * the {@link org.apache.maven.execution.MavenExecutionRequest} which all clones share. Scopes are only weakly
+ * referenced and vanish together with the request.</p>
+ *
+ * <p>Work which has to be done once for the whole reactor, even when not every module reaches the mojo, is
+ * registered with {@link #onSessionEnd(String, Runnable)}. A listener chained into the
+ * {@link ExecutionListener} of the request runs it when Maven ends the session.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+final class ReactorScope {
+
+    /**
+     * Scopes by execution request.
+     */
+    private static final Map<Object, ReactorScope> SCOPES =
+            Collections.synchronizedMap(new WeakHashMap<Object, ReactorScope>());
+
+    /**
+     * Projects of the reactor in build order.
+     */
+    private final List<MavenProject> projects;
+
+    /**
+     * Shared components by key.
+     */
+    private final ConcurrentMap<String, Object> components = new ConcurrentHashMap<>();
+
+    /**
+     * Tasks run at the end of the session by key, in the order of their registration.
+     */
+    private final Map<String, Runnable> sessionEndTasks = new LinkedHashMap<>();
+
+    /**
+     * @param projects of the reactor in build order.
+     */
+    private ReactorScope(List<MavenProject> projects) {
+        this.projects = projects;
+    }
+
+    /**
+     * Returns the scope of the current reactor build. Without a session, e.g. in tests, the project
+     * is treated as a reactor on its own.
+     *
+     * @param session current session, may be <tt>null</tt>.
+     * @param project current project
+     * @return the scope of the current reactor build.
+     */
+    static ReactorScope of(MavenSession session, MavenProject project) {
+        if (session == null || session.getRequest() == null) {
+            return new ReactorScope(Collections.singletonList(project));
+        }
+        synchronized (SCOPES) {
+            ReactorScope scope = SCOPES.get(session.getRequest());
+            if (scope == null) {
+                scope = new ReactorScope(session.getProjects());
+                SCOPES.put(session.getRequest(), scope);
+                final MavenExecutionRequest request = session.getRequest();
+                request.setExecutionListener(new SessionEndListener(request.getExecutionListener(), scope));
+            }
+            return scope;
+        }
+    }
+
+    /**
+     * @return the projects of the reactor in build order.
+     */
+    List<MavenProject> getProjects() {
+        return projects;
+    }
+
+    /**
+     * Returns the component registered under the given key, creating it on first access.
+     *
+     * @param <T> type of the component
+     * @param key of the component
+     * @param factory creates the component
+     * @return the component registered under the given key.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T get(String key, Supplier<T> factory) {
+        final Object component = components.get(key);
+        if (component != null) {
+            return (T) component;
+        }
+        final T created = factory.get();
+        final Object previous = components.putIfAbsent(key, created);
+        return previous == null ? created : (T) previous;
+    }
+
+    /**
+     * @param <T> type of the component
+     * @param key of the component
+     * @return the component registered under the given key or <tt>null</tt>.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T getIfPresent(String key) {
+        return (T) components.get(key);
+    }
+
+    /**
+     * Registers a task run once at the end of the session. Tasks run in the order of their registration, a task
+     * registered again under the same key is ignored. Tasks must handle their failures themselves.
+     *
+     * @param key of the task
+     * @param task to run
+     */
+    void onSessionEnd(String key, Runnable task) {
+        synchronized (sessionEndTasks) {
+            if (!sessionEndTasks.containsKey(key)) {
+                sessionEndTasks.put(key, task);
+            }
+        }
+    }
+
+    /**
+     * Runs and removes the tasks registered with {@link #onSessionEnd(String, Runnable)}.
+     */
+    void sessionEnded() {
+        final List<Runnable> tasks;
+        synchronized (sessionEndTasks) {
+            tasks = new ArrayList<>(sessionEndTasks.values());
+            sessionEndTasks.clear();
+        }
+        for (final Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    /**
+     * Returns a key for the project which is stable across the clones of the model.
+     *
+     * @param project to identify
+     * @return groupId:artifactId:version of the project.
+     */
+    static String projectKey(MavenProject project) {
+        return project.getGroupId() + ":" + project.getArtifactId() + ":" + project.getVersion();
+    }
+
+    /**
+     * Runs the tasks of a scope at the end of the session and forwards every event to the listener it replaced.
+     */
+    private static final class SessionEndListener implements ExecutionListener {
+
+        /**
+         * Listener of the request before, may be <tt>null</tt>.
+         */
+        private final ExecutionListener delegate;
+
+        /**
+         * Scope whose tasks are run.
+         */
+        private final ReactorScope scope;
+
+        /**
+         * @param delegate listener of the request before, may be <tt>null</tt>.
+         * @param scope whose tasks are run.
+         */
+        SessionEndListener(ExecutionListener delegate, ReactorScope scope) {
+            this.delegate = delegate;
+            this.scope = scope;
+        }
+
+        @Override
+        public void sessionEnded(ExecutionEvent event) {
+            try {
+                scope.sessionEnded();
+            } finally {
+                if (delegate != null) {
+                    delegate.sessionEnded(event);
+                }
+            }
+        }
+
+        @Override
+        public void projectDiscoveryStarted(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.projectDiscoveryStarted(event);
+            }
+        }
+
+        @Override
+        public void sessionStarted(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.sessionStarted(event);
+            }
+        }
+
+        @Override
+        public void projectSkipped(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.projectSkipped(event);
+            }
+        }
+
+        @Override
+        public void projectStarted(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.projectStarted(event);
+            }
+        }
+
+        @Override
+        public void projectSucceeded(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.projectSucceeded(event);
+            }
+        }
+
+        @Override
+        public void projectFailed(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.projectFailed(event);
+            }
+        }
+
+        @Override
+        public void mojoSkipped(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.mojoSkipped(event);
+            }
+        }
+
+        @Override
+        public void mojoStarted(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.mojoStarted(event);
+            }
+        }
+
+        @Override
+        public void mojoSucceeded(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.mojoSucceeded(event);
+            }
+        }
+
+        @Override
+        public void mojoFailed(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.mojoFailed(event);
+            }
+        }
+
+        @Override
+        public void forkStarted(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.forkStarted(event);
+            }
+        }
+
+        @Override
+        public void forkSucceeded(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.forkSucceeded(event);
+            }
+        }
+
+        @Override
+        public void forkFailed(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.forkFailed(event);
+            }
+        }
+
+        @Override
+        public void forkedProjectStarted(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.forkedProjectStarted(event);
+            }
+        }
+
+        @Override
+        public void forkedProjectSucceeded(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.forkedProjectSucceeded(event);
+            }
+        }
+
+        @Override
+        public void forkedProjectFailed(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.forkedProjectFailed(event);
+            }
+        }
+    }
+}
@@ -16,20 +16,42 @@
 package net.oneandone.maven.plugins.billofmaterials;
 
 import com.google.common.base.Charsets;
+import com.google.common.hash.HashCode;
+import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 
 /**
- * Reads a bill of materials for all installed artifacts and puts it's content in a property
- * called <tt>qaBillOfMaterials</tt> of the project which may be reused by templating plugins.
+ * Reads a bill of materials for all installed artifacts and puts information about it into properties
+ * of the project which may be reused by templating plugins:
+ * <ul>
+ * <li><tt>qaBillOfMaterials.entries</tt>: number of hash lines.</li>
+ * <li><tt>qaBillOfMaterials.modules</tt>: number of module sections.</li>
+ * <li><tt>qaBillOfMaterials.sha1</tt>: SHA1 of the bill of materials.</li>
+ * <li><tt>qaBillOfMaterials.section.groupId:artifactId:version</tt>: the section of every module given
+ * in <tt>sections</tt>.</li>
+ * <li><tt>qaBillOfMaterials</tt>: the complete content, only with <tt>includeContent</tt>.</li>
+ * </ul>
  *
+ * The file is read line by line and only the requested parts are kept in memory. With <tt>includeContent</tt> the
+ * text is kept verbatim, decompressed when needed. A binary bill of materials has no text, so its text layout is
+ * rebuilt from the parsed lines then.
  * Spits out a warning when the file does not exist. For usage see the integration tests.
  *
  * <p>This in the standard format for the <tt>sha1sum</tt> command including meta information:</p>
@@ -48,9 +70,28 @@ import org.apache.maven.project.MavenProject;
  *
  * @author Mirko Friedenhagen &lt;mirko.friedenhagen@1und1.de&gt;
  */
-@Mojo(name = "read", defaultPhase = LifecyclePhase.INSTALL)
+@Mojo(name = "read", defaultPhase = LifecyclePhase.INSTALL, threadSafe = true)
 public class ReadBillOfMaterialsMojo extends AbstractBillOfMaterialsMojo {
 
+    /**
+     * Name of the property holding the complete content, prefix of all other properties.
+     */
+    static final String PROPERTY = "qaBillOfMaterials";
+
+    /**
+     * Put the complete content of the bill of materials into the property <tt>qaBillOfMaterials</tt>,
+     * as done by previous versions. For large reactors this keeps a big string in the properties of every module.
+     */
+    @Parameter(defaultValue = "false", property = "bill-of-materials.includeContent")
+    private boolean includeContent;
+
+    /**
+     * Coordinates <tt>groupId:artifactId:version</tt> of the modules whose sections should be put into the property
+     * <tt>qaBillOfMaterials.section.groupId:artifactId:version</tt>.
+     */
+    @Parameter
+    private List<String> sections = Collections.emptyList();
+
     /**
      * Default constructor for maven.
      */
@@ -72,12 +113,137 @@ public class ReadBillOfMaterialsMojo extends AbstractBillOfMaterialsMojo {
         final File bomFile = calculateBillOfMaterialsFile();
         getLog().info("Reading bill of materials from " + bomFile);
         try {
-            final String qaBillOfMaterials = Files.asCharSource(bomFile, Charsets.UTF_8).read();
-            getProject().getProperties().put("qaBillOfMaterials", qaBillOfMaterials);
+            if (includeContent) {
+                final byte[] raw = Files.toByteArray(bomFile);
+                final String text = readText(raw);
+                final PropertiesHandler handler = new PropertiesHandler(text == null, sections);
+                final HashCode sha1 = new BillOfMaterialsReader(handler).read(new ByteArrayInputStream(raw));
+                handler.exportTo(getProject().getProperties(), sha1);
+                if (text != null) {
+                    getProject().getProperties().put(PROPERTY, text);
+                }
+            } else {
+                final PropertiesHandler handler = new PropertiesHandler(false, sections);
+                final HashCode sha1 = new BillOfMaterialsReader(handler).read(bomFile);
+                handler.exportTo(getProject().getProperties(), sha1);
+            }
         } catch (IOException e) {
             getLog().warn(String.format(
                         Locale.ENGLISH, "Could not read content '%s', did you run bill-of-materials:create?", e));
         }
     }
 
+    /**
+     * @param raw content of the bill of materials, possibly compressed
+     * @return the decompressed text, <tt>null</tt> for a binary bill of materials.
+     * @throws IOException when the content could not be decompressed.
+     */
+    static String readText(byte[] raw) throws IOException {
+        try (InputStream in = new BufferedInputStream(
+                Compression.decompress(new ByteArrayInputStream(raw)))) {
+            return BinaryBillOfMaterials.isBinary(in) ? null : new String(ByteStreams.toByteArray(in), Charsets.UTF_8);
+        }
+    }
+
+    /**
+     * Just for tests.
+     * @param includeContent whether to put the complete content into a property.
+     * @param sections coordinates of the modules whose sections should be put into properties.
+     */
+    void setProperties(boolean includeContent, List<String> sections) {
+        this.includeContent = includeContent;
+        this.sections = sections;
+    }
+
+    /**
+     * Keeps only the counts and the requested parts of the bill of materials.
+     */
+    static final class PropertiesHandler implements BillOfMaterialsReader.Handler {
+
+        /**
+         * Content rebuilt from the parsed lines or <tt>null</tt>.
+         */
+        private final StringBuilder content;
+
+        /**
+         * Requested sections by coordinates.
+         */
+        private final Map<String, StringBuilder> requestedSections = new HashMap<>();
+
+        /**
+         * Section of the current module when requested, <tt>null</tt> otherwise.
+         */
+        private StringBuilder currentSection;
+
+        /**
+         * Number of hash lines.
+         */
+        private int entries;
+
+        /**
+         * Number of module sections.
+         */
+        private int modules;
+
+        /**
+         * @param rebuildContent whether to rebuild the complete content from the parsed lines, only needed when
+         * there is no text to keep verbatim.
+         * @param sections coordinates of the modules whose sections should be kept.
+         */
+        PropertiesHandler(boolean rebuildContent, List<String> sections) {
+            content = rebuildContent ? new StringBuilder() : null;
+            for (final String coordinates : sections) {
+                requestedSections.put(coordinates, new StringBuilder());
+            }
+        }
+
+        @Override
+        public void section(String coordinates, String line) {
+            modules++;
+            currentSection = requestedSections.get(coordinates);
+            append(line);
+        }
+
+        @Override
+        public void entry(String algorithm, String hash, String fileName, String line) {
+            entries++;
+            append(line);
+        }
+
+        @Override
+        public void digest(String algorithm, String hash, String fileName, String line) {
+            append(line);
+        }
+
+        /**
+         * Puts the collected information into the given properties.
+         *
+         * @param properties of the project
+         * @param sha1 of the bill of materials
+         */
+        void exportTo(Properties properties, HashCode sha1) {
+            if (content != null) {
+                properties.put(PROPERTY, content.toString());
+            }
+            properties.put(PROPERTY + ".entries", String.valueOf(entries));
+            properties.put(PROPERTY + ".modules", String.valueOf(modules));
+            properties.put(PROPERTY + ".sha1", sha1.toString());
+            for (final Map.Entry<String, StringBuilder> section : requestedSections.entrySet()) {
+                properties.put(PROPERTY + ".section." + section.getKey(), section.getValue().toString());
+            }
+        }
+
+        /**
+         * @param line to append to the content and the current section when requested.
+         */
+        private void append(String line) {
+            if (content != null) {
+                content.append(line).append('\n');
+            }
+            if (currentSection != null) {
+                currentSection.append(line).append('\n');
+            }
+        }
+    }
+
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Rewrites the bill of materials in a canonical form after the last module of the reactor has finished, or at the
+ * end of the session when some modules never finish, so identical inputs result in an identical file whose digest
+ * may serve as fingerprint of the build.
+ *
+ * <p>Sections are sorted by their coordinates, entries by file name and duplicate entries are dropped. Comments
+ * only hold the coordinates, without user name or time. The SHA-256 of the file as written is stored next to it
+ * in the format of <tt>sha256sum</tt>, e.g. in <tt>bill-of-materials.txt.sha256</tt>.</p>
+ *
+ * <p>Sorting needs all entries, so the parsed bill of materials is held in memory during the rewrite. The canonical
+ * text is streamed section by section through the compression and the digest into the temporary file, so no further
+ * copy of the complete file is built.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+final class ReproducibleBillOfMaterials {
+
+    /**
+     * Orders sections by their coordinates.
+     */
+    private static final Comparator<BillOfMaterials.Section> BY_COORDINATES =
+            new Comparator<BillOfMaterials.Section>() {
+                @Override
+                public int compare(BillOfMaterials.Section o1, BillOfMaterials.Section o2) {
+                    return o1.getCoordinates().compareTo(o2.getCoordinates());
+                }
+            };
+
+    /**
+     * Target file.
+     */
+    private final File bomFile;
+
+    /**
+     * Compression of the target file.
+     */
+    private final Compression compression;
+
+    /**
+     * Finished projects.
+     */
+    private final ReactorCompletion completion;
+
+    /**
+     * @param bomFile target file.
+     * @param compression of the target file.
+     * @param projects of the reactor in build order.
+     */
+    ReproducibleBillOfMaterials(File bomFile, Compression compression, List<MavenProject> projects) {
+        this.bomFile = bomFile;
+        this.compression = compression;
+        this.completion = new ReactorCompletion(projects);
+    }
+
+    /**
+     * Marks a project as finished.
+     *
+     * @param project which wrote its section
+     * @return true when this was the last project of the reactor, the caller should invoke {@link #write()} then.
+     */
+    boolean finish(MavenProject project) {
+        return completion.finish(project);
+    }
+
+    /**
+     * @return the projects which did not finish when the bill of materials has to be rewritten at the end of the
+     * session, the caller should invoke {@link #write()} then, otherwise <tt>null</tt>.
+     */
+    List<String> completeAtSessionEnd() {
+        return completion.completeAtSessionEnd() ? completion.getMissing() : null;
+    }
+
+    /**
+     * Replaces the bill of materials atomically with its canonical form and writes the fingerprint.
+     *
+     * @return the SHA-256 of the file.
+     * @throws IOException when the bill of materials could not be read or written.
+     */
+    HashCode write() throws IOException {
+        final BillOfMaterials billOfMaterials = BillOfMaterials.parse(bomFile);
+        final HashCode[] fingerprint = new HashCode[1];
+        AtomicFiles.write(bomFile, new AtomicFiles.Content() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                final HashingOutputStream hashing = new HashingOutputStream(Hashing.sha256(), out);
+                try (BufferedWriter writer = AtomicFiles.newWriter(compression.wrap(hashing))) {
+                    writeCanonicalText(billOfMaterials, writer);
+                }
+                fingerprint[0] = hashing.hash();
+            }
+        });
+        AtomicFiles.write(fingerprintFileFor(bomFile), fingerprint[0] + "  " + bomFile.getName() + "\n");
+        return fingerprint[0];
+    }
+
+    /**
+     * @param bomFile bill of materials
+     * @return the file holding the fingerprint, e.g. <tt>bill-of-materials.txt.sha256</tt>.
+     */
+    static File fingerprintFileFor(File bomFile) {
+        return new File(bomFile.getPath() + ".sha256");
+    }
+
+    /**
+     * @param billOfMaterials to render
+     * @return the canonical text of the bill of materials.
+     */
+    static String toCanonicalText(BillOfMaterials billOfMaterials) {
+        final StringBuilder text = new StringBuilder();
+        try {
+            writeCanonicalText(billOfMaterials, text);
+        } catch (IOException e) {
+            throw new IllegalStateException("StringBuilder does not throw", e);
+        }
+        return text.toString();
+    }
+
+    /**
+     * @param billOfMaterials to render
+     * @param text receives the canonical text of the bill of materials section by section
+     * @throws IOException when the text could not be written.
+     */
+    static void writeCanonicalText(BillOfMaterials billOfMaterials, Appendable text) throws IOException {
+        final List<BillOfMaterials.Section> sections = new ArrayList<>(billOfMaterials.getSections());
+        Collections.sort(sections, BY_COORDINATES);
+        for (final BillOfMaterials.Section section : sections) {
+            if (!BillOfMaterials.NO_COORDINATES.equals(section.getCoordinates())) {
+                text.append("# ").append(section.getCoordinates()).append('\n');
+            }
+            final Map<String, String> lines = new LinkedHashMap<>();
+            for (final BillOfMaterials.Entry entry : section.getEntries()) {
+                final String entryLines = toBomString(entry);
+                lines.put(entry.getFileName() + '\n' + entryLines, entryLines);
+            }
+            final List<String> keys = new ArrayList<>(lines.keySet());
+            Collections.sort(keys);
+            for (final String key : keys) {
+                text.append(lines.get(key)).append('\n');
+            }
+        }
+    }
+
+    /**
+     * @param entry to render
+     * @return the lines of the entry as written by the <tt>create</tt> goal.
+     */
+    private static String toBomString(BillOfMaterials.Entry entry) {
+        final Map<String, HashCode> hashes = new LinkedHashMap<>();
+        for (final Map.Entry<String, String> digest : entry.getDigests().entrySet()) {
+            hashes.put(digest.getKey(), HashCode.fromString(digest.getValue()));
+        }
+        return BillOfMaterials.toBomString(hashes, entry.getFileName());
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Throwables;
+import com.google.common.hash.HashCode;
+import com.google.common.util.concurrent.SettableFuture;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Hashes every distinct file only once per reactor, even when several modules attach it.
+ *
+ * <p>Files are identified by their file key (the inode on Unix systems, so hard links are found as well) or by
+ * their canonical path when the file system provides no file key. The first thread asking for a file hashes it,
+ * all other threads of a parallel build wait for its result. A file whose size or last modification time changed
+ * since is hashed again. Failures are not shared: when the first thread fails, e.g. because its module was
+ * cancelled, the waiting threads hash the file themselves.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+final class SharedFileHasher implements FileHasher {
+
+    /**
+     * Calculates the digests of files not hashed yet.
+     */
+    private final FileHasher delegate;
+
+    /**
+     * Digests of the reactor.
+     */
+    private final Registry registry;
+
+    /**
+     * @param delegate calculates the digests of files not hashed yet.
+     * @param registry digests of the reactor.
+     */
+    SharedFileHasher(FileHasher delegate, Registry registry) {
+        this.delegate = delegate;
+        this.registry = registry;
+    }
+
+    @Override
+    public Map<String, HashCode> hash(File file) throws IOException {
+        final HashCache.FileState state = HashCache.FileState.of(file);
+        final String key = getAlgorithms() + "\t" + state.getIdentity();
+        while (true) {
+            final Shared existing = registry.hashes.get(key);
+            if (existing != null && existing.state.isUnchanged(state)) {
+                final Map<String, HashCode> hashes = existing.get(file);
+                if (hashes != null) {
+                    return hashes;
+                }
+                // the owner failed and removed its entry, try to become the owner.
+                continue;
+            }
+            final Shared created = new Shared(state);
+            final boolean added = existing == null
+                    ? registry.hashes.putIfAbsent(key, created) == null
+                    : registry.hashes.replace(key, existing, created);
+            if (added) {
+                return calculate(file, key, created);
+            }
+        }
+    }
+
+    @Override
+    public List<String> getAlgorithms() {
+        return delegate.getAlgorithms();
+    }
+
+    /**
+     * @param file to hash
+     * @param key of the file in the registry
+     * @param shared receives the digests
+     * @return the digests.
+     * @throws IOException when the file could not be read.
+     */
+    private Map<String, HashCode> calculate(File file, String key, Shared shared) throws IOException {
+        try {
+            final Map<String, HashCode> hashes = delegate.hash(file);
+            shared.future.set(hashes);
+            return hashes;
+        } catch (IOException | RuntimeException | Error e) {
+            // the failure may be an interrupt of this thread only, waiting threads hash the file themselves.
+            registry.hashes.remove(key, shared);
+            shared.future.set(null);
+            throw e;
+        }
+    }
+
+    /**
+     * Digests of all files hashed in a reactor.
+     */
+    static final class Registry {
+
+        /**
+         * Pending or calculated digests by algorithms and identity of the file.
+         */
+        private final ConcurrentMap<String, Shared> hashes = new ConcurrentHashMap<>();
+
+        /**
+         * @return the number of distinct files.
+         */
+        int size() {
+            return hashes.size();
+        }
+    }
+
+    /**
+     * Pending or calculated digests of a file.
+     */
+    private static final class Shared {
+
+        /**
+         * State of the file when hashing started.
+         */
+        private final HashCache.FileState state;
+
+        /**
+         * Receives the digests or <tt>null</tt> when the owner failed.
+         */
+        private final SettableFuture<Map<String, HashCode>> future = SettableFuture.create();
+
+        /**
+         * @param state of the file when hashing started
+         */
+        Shared(HashCache.FileState state) {
+            this.state = state;
+        }
+
+        /**
+         * @param file which is hashed
+         * @return the digests or <tt>null</tt> when the owner failed.
+         * @throws IOException when the thread was interrupted.
+         */
+        Map<String, HashCode> get(File file) throws IOException {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the hashes of " + file);
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                Throwables.throwIfInstanceOf(cause, IOException.class);
+                Throwables.throwIfUnchecked(cause);
+                throw new IOException(cause);
+            }
+        }
+    }
+}
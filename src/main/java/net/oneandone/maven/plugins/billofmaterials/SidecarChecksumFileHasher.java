@@ -0,0 +1,160 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Takes the digests of a file from the checksum files next to it, e.g. <tt>a-v.jar.sha1</tt> and
+ * <tt>a-v.jar.sha256</tt>, instead of reading the file, following a {@link ChecksumPolicy}.
+ *
+ * <p>Checksum files are only used when there is one for every requested algorithm and none of them is older than
+ * the file. Otherwise, and for files chosen to be checked, the delegate reads the file; a mismatch with the
+ * checksum files is reported as {@link IOException}.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+final class SidecarChecksumFileHasher implements FileHasher {
+
+    /**
+     * First token of a checksum file, which may be followed by the file name.
+     */
+    private static final Pattern CHECKSUM = Pattern.compile("^\\s*(\\p{XDigit}+)(?:\\s.*)?$", Pattern.DOTALL);
+
+    /**
+     * Calculates the digests when the checksum files may not be used or are checked.
+     */
+    private final FileHasher delegate;
+
+    /**
+     * When checksum files are used.
+     */
+    private final ChecksumPolicy policy;
+
+    /**
+     * Percentage of the files read nevertheless with {@link ChecksumPolicy#SAMPLE}.
+     */
+    private final int samplePercent;
+
+    /**
+     * @param delegate calculates the digests when the checksum files may not be used or are checked.
+     * @param policy when checksum files are used.
+     * @param samplePercent percentage of the files read nevertheless with {@link ChecksumPolicy#SAMPLE}.
+     */
+    SidecarChecksumFileHasher(FileHasher delegate, ChecksumPolicy policy, int samplePercent) {
+        this.delegate = delegate;
+        this.policy = policy;
+        this.samplePercent = samplePercent;
+    }
+
+    @Override
+    public Map<String, HashCode> hash(File file) throws IOException {
+        final Map<String, HashCode> checksums = policy == ChecksumPolicy.IGNORE ? null : readChecksums(file);
+        if (checksums == null) {
+            return delegate.hash(file);
+        }
+        if (!isChecked()) {
+            return checksums;
+        }
+        final Map<String, HashCode> hashes = delegate.hash(file);
+        for (final Map.Entry<String, HashCode> checksum : checksums.entrySet()) {
+            final HashCode hash = hashes.get(checksum.getKey());
+            if (!checksum.getValue().equals(hash)) {
+                throw new IOException(String.format(Locale.ENGLISH, "%s: %s %s does not match %s (%s)",
+                        file, checksum.getKey(), hash, checksumFileFor(file, checksum.getKey()).getName(),
+                        checksum.getValue()));
+            }
+        }
+        return hashes;
+    }
+
+    @Override
+    public List<String> getAlgorithms() {
+        return delegate.getAlgorithms();
+    }
+
+    /**
+     * @return true when the current file should be read and compared with its checksum files.
+     */
+    private boolean isChecked() {
+        switch (policy) {
+            case VERIFY:
+                return true;
+            case SAMPLE:
+                return ThreadLocalRandom.current().nextInt(100) < samplePercent;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @param file to look up
+     * @return the digests from the checksum files or <tt>null</tt> when they are missing, stale or malformed, e.g. a
+     * digest with the wrong length for the algorithm.
+     * @throws IOException when a checksum file could not be read.
+     */
+    Map<String, HashCode> readChecksums(File file) throws IOException {
+        final long lastModified = file.lastModified();
+        final ImmutableMap.Builder<String, HashCode> checksums = ImmutableMap.builder();
+        for (final String algorithm : getAlgorithms()) {
+            final File checksumFile = checksumFileFor(file, algorithm);
+            if (!checksumFile.isFile() || checksumFile.lastModified() < lastModified) {
+                return null;
+            }
+            final Matcher matcher = CHECKSUM.matcher(
+                    new String(Files.readAllBytes(checksumFile.toPath()), Charsets.UTF_8));
+            if (!matcher.matches() || matcher.group(1).length() != 2 * digestLength(algorithm)) {
+                return null;
+            }
+            checksums.put(algorithm, HashCode.fromString(matcher.group(1).toLowerCase(Locale.ENGLISH)));
+        }
+        return checksums.build();
+    }
+
+    /**
+     * @param algorithm name of the {@link MessageDigest} algorithm
+     * @return the length of the digest in bytes.
+     */
+    private static int digestLength(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm).getDigestLength();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unknown digest algorithm " + algorithm, e);
+        }
+    }
+
+    /**
+     * @param file the checksum belongs to
+     * @param algorithm name of the {@link MessageDigest} algorithm
+     * @return the checksum file, e.g. <tt>a-v.jar.sha256</tt> for <tt>SHA-256</tt>.
+     */
+    static File checksumFileFor(File file, String algorithm) {
+        return new File(file.getPath() + "." + DigestAlgorithms.toTag(algorithm).toLowerCase(Locale.ENGLISH));
+    }
+}
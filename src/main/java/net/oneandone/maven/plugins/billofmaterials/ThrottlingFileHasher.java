@@ -0,0 +1,230 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.hash.HashCode;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits the number of files hashed at the same time and the number of bytes in flight per file system.
+ *
+ * <p>Every file system, as reported by {@link Files#getFileStore(java.nio.file.Path)} for the directory of a file,
+ * gets its own semaphores. A file counts with its size against the bytes in flight, a file larger than the limit
+ * takes all permits and is hashed alone. The limits are shared by all modules of a reactor.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+final class ThrottlingFileHasher implements FileHasher {
+
+    /**
+     * Bytes in flight are counted in units of this size, so the permits fit into an <tt>int</tt>.
+     */
+    private static final long UNIT = 1024;
+
+    /**
+     * Reads the file.
+     */
+    private final FileHasher delegate;
+
+    /**
+     * Permits of the reactor.
+     */
+    private final Limits limits;
+
+    /**
+     * @param delegate reads the file.
+     * @param limits permits of the reactor.
+     */
+    ThrottlingFileHasher(FileHasher delegate, Limits limits) {
+        this.delegate = delegate;
+        this.limits = limits;
+    }
+
+    @Override
+    public Map<String, HashCode> hash(File file) throws IOException {
+        final Permits permits = limits.permitsFor(file);
+        final int units = permits.unitsOf(file.length());
+        permits.acquire(units, file);
+        try {
+            return delegate.hash(file);
+        } finally {
+            permits.release(units);
+        }
+    }
+
+    @Override
+    public List<String> getAlgorithms() {
+        return delegate.getAlgorithms();
+    }
+
+    /**
+     * Permits of all file systems, shared by the modules of a reactor.
+     */
+    static final class Limits {
+
+        /**
+         * Maximum number of files hashed at the same time per file system, <tt>0</tt> for no limit.
+         */
+        private final int maxOpenFiles;
+
+        /**
+         * Maximum number of bytes in flight per file system, <tt>0</tt> for no limit.
+         */
+        private final long maxInFlightBytes;
+
+        /**
+         * Permits by file system.
+         */
+        private final ConcurrentMap<Object, Permits> permitsByFileStore = new ConcurrentHashMap<>();
+
+        /**
+         * File system by directory, as looking it up reads the mount table.
+         */
+        private final ConcurrentMap<String, Object> fileStoreByDirectory = new ConcurrentHashMap<>();
+
+        /**
+         * @param maxOpenFiles maximum number of files hashed at the same time per file system, <tt>0</tt> for no
+         * limit.
+         * @param maxInFlightBytes maximum number of bytes in flight per file system, <tt>0</tt> for no limit.
+         */
+        Limits(int maxOpenFiles, long maxInFlightBytes) {
+            this.maxOpenFiles = maxOpenFiles;
+            this.maxInFlightBytes = maxInFlightBytes;
+        }
+
+        /**
+         * @param file to hash
+         * @return the permits of the file system of the file.
+         * @throws IOException when the file system could not be determined.
+         */
+        Permits permitsFor(File file) throws IOException {
+            final File directory = file.getAbsoluteFile().getParentFile();
+            Object fileStore = fileStoreByDirectory.get(directory.getPath());
+            if (fileStore == null) {
+                fileStore = Files.getFileStore(directory.toPath());
+                fileStoreByDirectory.putIfAbsent(directory.getPath(), fileStore);
+            }
+            Permits permits = permitsByFileStore.get(fileStore);
+            if (permits == null) {
+                final Permits created = new Permits(maxOpenFiles, maxInFlightBytes);
+                permits = permitsByFileStore.putIfAbsent(fileStore, created);
+                if (permits == null) {
+                    permits = created;
+                }
+            }
+            return permits;
+        }
+
+        /**
+         * @return the number of file systems seen.
+         */
+        int size() {
+            return permitsByFileStore.size();
+        }
+    }
+
+    /**
+     * Semaphores of a single file system.
+     */
+    static final class Permits {
+
+        /**
+         * One permit per file being hashed or <tt>null</tt>.
+         */
+        private final Semaphore openFiles;
+
+        /**
+         * One permit per {@link #UNIT} bytes in flight or <tt>null</tt>.
+         */
+        private final Semaphore inFlight;
+
+        /**
+         * Number of permits of {@link #inFlight}.
+         */
+        private final int inFlightUnits;
+
+        /**
+         * @param maxOpenFiles maximum number of files hashed at the same time, <tt>0</tt> for no limit.
+         * @param maxInFlightBytes maximum number of bytes in flight, <tt>0</tt> for no limit.
+         */
+        Permits(int maxOpenFiles, long maxInFlightBytes) {
+            openFiles = maxOpenFiles > 0 ? new Semaphore(maxOpenFiles, true) : null;
+            inFlightUnits = (int) Math.min(Integer.MAX_VALUE, Math.max(1, maxInFlightBytes / UNIT));
+            inFlight = maxInFlightBytes > 0 ? new Semaphore(inFlightUnits, true) : null;
+        }
+
+        /**
+         * @param size of the file in bytes
+         * @return the number of permits of {@link #inFlight} needed for the file, at most all of them.
+         */
+        int unitsOf(long size) {
+            return inFlight == null ? 0 : (int) Math.min(inFlightUnits, Math.max(1, (size + UNIT - 1) / UNIT));
+        }
+
+        /**
+         * @param units permits of {@link #inFlight} to acquire
+         * @param file which is hashed
+         * @throws InterruptedIOException when interrupted while waiting.
+         */
+        void acquire(int units, File file) throws InterruptedIOException {
+            try {
+                if (openFiles != null) {
+                    openFiles.acquire();
+                }
+                try {
+                    if (inFlight != null) {
+                        inFlight.acquire(units);
+                    }
+                } catch (InterruptedException e) {
+                    if (openFiles != null) {
+                        openFiles.release();
+                    }
+                    throw e;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to hash " + file);
+            }
+        }
+
+        /**
+         * @param units permits of {@link #inFlight} to release
+         */
+        void release(int units) {
+            if (inFlight != null) {
+                inFlight.release(units);
+            }
+            if (openFiles != null) {
+                openFiles.release();
+            }
+        }
+
+        /**
+         * @return the number of files which may start hashing now, {@link Integer#MAX_VALUE} without a limit.
+         */
+        int availableOpenFiles() {
+            return openFiles == null ? Integer.MAX_VALUE : openFiles.availablePermits();
+        }
+    }
+}
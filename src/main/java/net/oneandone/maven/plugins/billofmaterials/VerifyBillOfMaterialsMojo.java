@@ -0,0 +1,250 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Joiner;
+import com.google.common.hash.HashCode;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Verifies the files listed in a bill of materials against their SHA1 and all additional digests.
+ *
+ * <p>Every file is searched in the reactor first and in the local repository afterwards, using the coordinates of
+ * the module section it is listed in. The files are hashed concurrently and all mismatches and missing files are
+ * reported together.</p>
+ *
+ * @author Mirko Friedenhagen
+ */
+@Mojo(name = "verify", aggregator = true, threadSafe = true)
+public class VerifyBillOfMaterialsMojo extends AbstractBillOfMaterialsMojo {
+
+    /**
+     * Number of threads used to hash the files, <tt>0</tt> uses one thread per available processor.
+     */
+    @Parameter(defaultValue = "0", property = "bill-of-materials.verifyThreads")
+    private int verifyThreads;
+
+    /**
+     * Fail when a file listed in the bill of materials could neither be found in the reactor nor in the local
+     * repository.
+     */
+    @Parameter(defaultValue = "true", property = "bill-of-materials.failOnMissing")
+    private boolean failOnMissing = true;
+
+    /**
+     * The Maven session.
+     */
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    /**
+     * Default constructor for maven.
+     */
+    VerifyBillOfMaterialsMojo() {
+        super();
+    }
+
+    /**
+     * Just for tests.
+     * @param billOfMaterialsPath path to bom.
+     * @param project current project
+     * @param session current session
+     */
+    VerifyBillOfMaterialsMojo(File billOfMaterialsPath, MavenProject project, MavenSession session) {
+        super(billOfMaterialsPath, project);
+        this.session = session;
+    }
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        final File bomFile = calculateBillOfMaterialsFile();
+        final BillOfMaterials billOfMaterials;
+        try {
+            billOfMaterials = BillOfMaterials.parse(bomFile);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not read " + bomFile, e);
+        }
+        final List<String> failures = verify(billOfMaterials.getEntries(), collectReactorFiles());
+        if (!failures.isEmpty()) {
+            throw new MojoFailureException(String.format(Locale.ENGLISH,
+                    "Verification of %d of %d files from %s failed:%n%s",
+                    failures.size(), billOfMaterials.size(), bomFile, Joiner.on(String.format("%n")).join(failures)));
+        }
+        getLog().info(String.format(Locale.ENGLISH, "Verified %d files from %s", billOfMaterials.size(), bomFile));
+    }
+
+    /**
+     * Hashes the files of all entries concurrently.
+     *
+     * @param entries to verify
+     * @param reactorFiles files of the reactor by name
+     * @return descriptions of all failures, empty when everything is fine.
+     * @throws MojoExecutionException when the verification was interrupted.
+     */
+    List<String> verify(List<BillOfMaterials.Entry> entries, Map<String, File> reactorFiles)
+            throws MojoExecutionException {
+        final int threads = verifyThreads > 0 ? verifyThreads : Runtime.getRuntime().availableProcessors();
+        final ListeningExecutorService executor = HashingExecutors.newFixedThreadPool(threads, entries.size());
+        try {
+            final List<ListenableFuture<String>> futures = new ArrayList<>(entries.size());
+            for (final BillOfMaterials.Entry entry : entries) {
+                final File file = locate(entry, reactorFiles);
+                futures.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return verify(entry, file);
+                    }
+                }));
+            }
+            final List<String> failures = new ArrayList<>();
+            for (final String failure : Futures.allAsList(futures).get()) {
+                if (failure != null) {
+                    failures.add(failure);
+                }
+            }
+            return failures;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while verifying", e);
+        } catch (ExecutionException e) {
+            throw new MojoExecutionException("Could not verify", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Verifies a single entry.
+     *
+     * @param entry to verify
+     * @param file located for the entry, <tt>null</tt> when it could not be found
+     * @return description of the failure or <tt>null</tt>.
+     */
+    String verify(BillOfMaterials.Entry entry, File file) {
+        if (file == null) {
+            final String message = String.format(Locale.ENGLISH, "%s (%s): not found in reactor or local repository",
+                    entry.getFileName(), entry.getCoordinates());
+            if (failOnMissing) {
+                return message;
+            }
+            getLog().warn(message);
+            return null;
+        }
+        try {
+            final Map<String, String> expected = entry.getDigests();
+            final Map<String, HashCode> actual = new ChannelFileHasher(new ArrayList<>(expected.keySet())).hash(file);
+            for (final Map.Entry<String, String> digest : expected.entrySet()) {
+                final String actualDigest = actual.get(digest.getKey()).toString();
+                if (!actualDigest.equals(digest.getValue())) {
+                    return String.format(Locale.ENGLISH, "%s (%s): expected %s %s but was %s",
+                            entry.getFileName(), file, digest.getKey(), digest.getValue(), actualDigest);
+                }
+            }
+            getLog().debug("Verified " + file);
+            return null;
+        } catch (IOException | IllegalArgumentException e) {
+            return String.format(Locale.ENGLISH, "%s (%s): %s", entry.getFileName(), file, e);
+        }
+    }
+
+    /**
+     * Locates the file of an entry in the reactor or the local repository. Entries of dependencies are listed under
+     * their path in the local repository.
+     *
+     * @param entry to locate
+     * @param reactorFiles files of the reactor by name
+     * @return the file or <tt>null</tt>.
+     */
+    File locate(BillOfMaterials.Entry entry, Map<String, File> reactorFiles) {
+        final File reactorFile = reactorFiles.get(entry.getFileName());
+        if (reactorFile != null && reactorFile.isFile()) {
+            return reactorFile;
+        }
+        if (session == null || session.getLocalRepository() == null) {
+            return null;
+        }
+        if (entry.getFileName().indexOf('/') != -1) {
+            // dependencies are listed under their path in the local repository.
+            final File dependencyFile = new File(session.getLocalRepository().getBasedir(), entry.getFileName());
+            return dependencyFile.isFile() ? dependencyFile : null;
+        }
+        final String[] coordinates = entry.getCoordinates().split(":");
+        if (coordinates.length != 3) {
+            return null;
+        }
+        final File localRepositoryFile = new File(session.getLocalRepository().getBasedir(),
+                coordinates[0].replace('.', '/') + '/' + coordinates[1] + '/' + coordinates[2] + '/'
+                        + entry.getFileName());
+        return localRepositoryFile.isFile() ? localRepositoryFile : null;
+    }
+
+    /**
+     * Collects the artifacts and POMs of all projects in the reactor under the names used in the bill of materials.
+     *
+     * @return files of the reactor by name.
+     */
+    Map<String, File> collectReactorFiles() {
+        final Map<String, File> reactorFiles = new HashMap<>();
+        final List<MavenProject> projects = session == null ? null : session.getProjects();
+        if (projects == null) {
+            return reactorFiles;
+        }
+        for (final MavenProject project : projects) {
+            reactorFiles.put(project.getArtifactId() + "-" + project.getVersion() + ".pom", project.getFile());
+            addArtifactFile(reactorFiles, project.getArtifact());
+            for (final Artifact attachedArtifact : project.getAttachedArtifacts()) {
+                addArtifactFile(reactorFiles, attachedArtifact);
+            }
+        }
+        return reactorFiles;
+    }
+
+    /**
+     * @param reactorFiles to add the file to
+     * @param artifact whose file should be added, if any
+     */
+    private void addArtifactFile(Map<String, File> reactorFiles, Artifact artifact) {
+        if (artifact != null && artifact.getFile() != null) {
+            reactorFiles.put(artifact.getFile().getName(), artifact.getFile());
+        }
+    }
+
+    /**
+     * Just for tests.
+     * @param failOnMissing whether missing files fail the build.
+     */
+    void setFailOnMissing(boolean failOnMissing) {
+        this.failOnMissing = failOnMissing;
+    }
+}
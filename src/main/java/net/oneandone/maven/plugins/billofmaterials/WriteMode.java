@@ -0,0 +1,51 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+/**
+ * How the bill of materials is written.
+ *
+ * @author Mirko Friedenhagen
+ */
+public enum WriteMode {
+
+    /**
+     * Every module appends its section to the bill of materials as soon as it is finished.
+     */
+    APPEND,
+
+    /**
+     * Every module hands its section to a collector for the whole reactor. After the last module has finished,
+     * the bill of materials is replaced atomically with all sections in reactor order. When some modules fail or
+     * are skipped, it is written with the available sections at the end of the session and a warning lists the
+     * missing modules.
+     */
+    AGGREGATE,
+
+    /**
+     * Every module replaces its own section in the existing bill of materials, keeping the sections of all other
+     * modules, and the file is replaced atomically. Rebuilding some modules with <tt>-pl</tt> neither loses nor
+     * duplicates the sections of the modules not built.
+     */
+    INCREMENTAL,
+
+    /**
+     * Every module hands its section to a single background writer for the whole reactor, which appends the queued
+     * sections in batches, so modules do not wait for the file system. The file is closed after the last module
+     * has finished, or at the end of the session when some modules fail or are skipped.
+     */
+    ASYNC
+}
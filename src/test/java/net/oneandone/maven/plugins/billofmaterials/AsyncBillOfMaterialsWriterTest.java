@@ -0,0 +1,130 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.maven.project.MavenProject;
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.mockito.Mockito.*;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class AsyncBillOfMaterialsWriterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testWritesAllRecordsOfTheReactor() throws Exception {
+        final File bomFile = new File(temporaryFolder.getRoot(), "tickets/bill-of-materials.txt");
+        final List<MavenProject> projects = createProjects(20);
+        final AsyncBillOfMaterialsWriter sut = new AsyncBillOfMaterialsWriter(
+                bomFile, new ReentrantLock(), projects, 2, true);
+        final List<Thread> threads = new ArrayList<>();
+        final boolean[] last = new boolean[projects.size()];
+        for (int i = 0; i < projects.size(); i++) {
+            final int index = i;
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        last[index] = sut.add(projects.get(index), ("# g:m" + index + ":v\n").getBytes(Charsets.UTF_8));
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+        }
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        int lastCount = 0;
+        for (final boolean isLast : last) {
+            lastCount += isLast ? 1 : 0;
+        }
+        assertEquals(1, lastCount);
+        sut.close();
+        final String content = Files.toString(bomFile, Charsets.UTF_8);
+        for (int i = 0; i < projects.size(); i++) {
+            assertTrue(content, content.contains("# g:m" + i + ":v\n"));
+        }
+        assertEquals(20 * "# g:m0:v\n".length() + 10, content.length());
+        assertTrue(sut.getBatches() <= projects.size());
+    }
+
+    @Test
+    public void testReportsFailureOfTheWriter() throws Exception {
+        final File bomFile = temporaryFolder.newFolder("bill-of-materials.txt");
+        final List<MavenProject> projects = createProjects(2);
+        final AsyncBillOfMaterialsWriter sut = new AsyncBillOfMaterialsWriter(
+                bomFile, new ReentrantLock(), projects, 1, false);
+        sut.add(projects.get(0), "# g:m0:v\n".getBytes(Charsets.UTF_8));
+        try {
+            sut.close();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Could not write"));
+        }
+        try {
+            sut.add(projects.get(1), "# g:m1:v\n".getBytes(Charsets.UTF_8));
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Could not write"));
+        }
+    }
+
+    @Test
+    public void testClosesAtSessionEndWithMissingProjects() throws Exception {
+        final File bomFile = new File(temporaryFolder.getRoot(), "bill-of-materials.txt");
+        final List<MavenProject> projects = createProjects(3);
+        final AsyncBillOfMaterialsWriter sut = new AsyncBillOfMaterialsWriter(
+                bomFile, new ReentrantLock(), projects, 1, false);
+        assertFalse(sut.add(projects.get(1), "# g:m1:v\n".getBytes(Charsets.UTF_8)));
+        assertEquals(Arrays.asList("g:m0:v", "g:m2:v"), sut.completeAtSessionEnd());
+        assertNull(sut.completeAtSessionEnd());
+        sut.close();
+        // closing again must not wait for a writer which has ended already.
+        sut.close();
+        assertEquals("# g:m1:v\n", Files.toString(bomFile, Charsets.UTF_8));
+    }
+
+    private static List<MavenProject> createProjects(int count) {
+        final List<MavenProject> projects = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final MavenProject project = mock(MavenProject.class);
+            when(project.getGroupId()).thenReturn("g");
+            when(project.getArtifactId()).thenReturn("m" + i);
+            when(project.getVersion()).thenReturn("v");
+            projects.add(project);
+        }
+        return projects;
+    }
+}
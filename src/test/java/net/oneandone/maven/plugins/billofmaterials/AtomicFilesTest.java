@@ -0,0 +1,65 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class AtomicFilesTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testWriteCreatesDirectoriesAndReplaces() throws IOException {
+        final File target = new File(temporaryFolder.getRoot(), "sub/dir/file.txt");
+        AtomicFiles.write(target, "first\n");
+        AtomicFiles.write(target, "second\n");
+        assertEquals("second\n", new String(Files.readAllBytes(target.toPath()), Charsets.UTF_8));
+        assertArrayEquals(new String[] {"file.txt"}, target.getParentFile().list());
+    }
+
+    @Test
+    public void testFailureKeepsPreviousContent() throws IOException {
+        final File target = temporaryFolder.newFile("file.txt");
+        AtomicFiles.write(target, "previous\n");
+        try {
+            AtomicFiles.write(target, new AtomicFiles.Content() {
+                @Override
+                public void writeTo(OutputStream out) throws IOException {
+                    out.write("partial".getBytes(Charsets.UTF_8));
+                    throw new IOException("failed");
+                }
+            });
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("failed", e.getMessage());
+        }
+        assertEquals("previous\n", new String(Files.readAllBytes(target.toPath()), Charsets.UTF_8));
+        assertArrayEquals(new String[] {"file.txt"}, temporaryFolder.getRoot().list());
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class BillOfMaterialsDiffTest {
+
+    private static final String FROM = "# company:child1:1.0 user=mirko\n"
+            + "ed5b932c3157b347d0f7a4ec773ae5d5890c1ada  child1-1.0-sources.jar\n"
+            + "8294565e2a5d99b548b111fe6262719331436143  child1-1.0.jar\n"
+            + "082fa2206c4a00e3f428e9100199a0337ad42fdb  child1-1.0.pom\n"
+            + "# company:child2:1.0 user=mirko\n"
+            + "df633b963220ba124ffa80eb6ceab676934bb387  child2-1.0.jar\n";
+
+    private static final String TO = "# company:child3:1.1 user=jenkins\n"
+            + "5661e9270a02c5359be47615bb6ed9911105d878  child3-1.1.pom\n"
+            + "# company:child1:1.1 user=jenkins\n"
+            + "082fa2206c4a00e3f428e9100199a0337ad42fdb  child1-1.1.pom\n"
+            + "05d419cf53e175c6e84ddc1cf2fccdc9dd109c6b  child1-1.1.jar\n"
+            + "ed5b932c3157b347d0f7a4ec773ae5d5890c1ada  child1-1.1-sources.jar\n";
+
+    @Test
+    public void testIgnoringVersions() throws IOException {
+        final BillOfMaterialsDiff sut = BillOfMaterialsDiff.of(parse(FROM), parse(TO), true);
+        assertEquals("1 added, 1 removed, 1 changed, 2 unchanged", sut.getSummary());
+        assertEquals("child3-1.1.pom", sut.getAdded().get(0).getFileName());
+        assertEquals("child2-1.0.jar", sut.getRemoved().get(0).getFileName());
+        assertEquals("child1-1.0.jar", sut.getChanged().get(0).getFrom().getFileName());
+        assertEquals("child1-1.1.jar", sut.getChanged().get(0).getTo().getFileName());
+        assertEquals("child1-1.1-sources.jar", sut.getUnchanged().get(0).getFileName());
+        assertEquals("+ company:child3:1.1 5661e9270a02c5359be47615bb6ed9911105d878  child3-1.1.pom\n"
+                + "- company:child2:1.0 df633b963220ba124ffa80eb6ceab676934bb387  child2-1.0.jar\n"
+                + "~ company:child1:1.0 8294565e2a5d99b548b111fe6262719331436143  child1-1.0.jar"
+                + " -> company:child1:1.1 05d419cf53e175c6e84ddc1cf2fccdc9dd109c6b  child1-1.1.jar\n"
+                + "1 added, 1 removed, 1 changed, 2 unchanged\n", sut.toText());
+    }
+
+    @Test
+    public void testWithVersions() throws IOException {
+        final BillOfMaterialsDiff sut = BillOfMaterialsDiff.of(parse(FROM), parse(TO), false);
+        assertEquals("4 added, 4 removed, 0 changed, 0 unchanged", sut.getSummary());
+    }
+
+    @Test
+    public void testIdenticalIndependentOfOrder() throws IOException {
+        final String reordered = "# company:child2:1.0 user=jenkins\n"
+                + "df633b963220ba124ffa80eb6ceab676934bb387  child2-1.0.jar\n"
+                + "# company:child1:1.0 user=jenkins\n"
+                + "082fa2206c4a00e3f428e9100199a0337ad42fdb  child1-1.0.pom\n"
+                + "8294565e2a5d99b548b111fe6262719331436143  child1-1.0.jar\n"
+                + "ed5b932c3157b347d0f7a4ec773ae5d5890c1ada  child1-1.0-sources.jar\n";
+        final BillOfMaterialsDiff sut = BillOfMaterialsDiff.of(parse(FROM), parse(reordered), true);
+        assertTrue(sut.isEmpty());
+        assertEquals(4, sut.getUnchanged().size());
+    }
+
+    @Test
+    public void testAdditionalDigestsAreCompared() throws IOException {
+        final String from = "# g:a:1 user=u\n"
+                + "da39a3ee5e6b4b0d3255bfef95601890afd80709  a-1.jar\n"
+                + "SHA256 (a-1.jar) = e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855\n";
+        final String to = "# g:a:1 user=u\n"
+                + "da39a3ee5e6b4b0d3255bfef95601890afd80709  a-1.jar\n"
+                + "SHA256 (a-1.jar) = 0000000000000000000000000000000000000000000000000000000000000000\n";
+        assertEquals(1, BillOfMaterialsDiff.of(parse(from), parse(to), true).getChanged().size());
+        assertTrue(BillOfMaterialsDiff.of(parse(from), parse(from), true).toJson().contains(
+                "\"unchangedEntries\": [\n    {\"module\": \"g:a:1\", \"file\": \"a-1.jar\", \"digests\": "
+                + "{\"SHA-1\": \"da39a3ee5e6b4b0d3255bfef95601890afd80709\", "
+                + "\"SHA-256\": \"e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855\"}}\n  ]"));
+    }
+
+    @Test
+    public void testLargeBillsOfMaterials() throws IOException {
+        final StringBuilder from = new StringBuilder();
+        final StringBuilder to = new StringBuilder();
+        for (int module = 0; module < 2500; module++) {
+            from.append("# g:m").append(module).append(":1 user=u\n");
+            to.append("# g:m").append(module).append(":2 user=u\n");
+            for (final String suffix : new String[] {".jar", ".pom", "-sources.jar", "-javadoc.jar"}) {
+                final String hash = String.format("%040x", module * 4 + suffix.length());
+                from.append(hash).append("  m").append(module).append("-1").append(suffix).append('\n');
+                to.append(module % 10 == 0 ? String.format("%040x", 0) : hash)
+                        .append("  m").append(module).append("-2").append(suffix).append('\n');
+            }
+        }
+        final BillOfMaterialsDiff sut = BillOfMaterialsDiff.of(
+                parse(from.toString()), parse(to.toString()), true);
+        assertEquals("0 added, 0 removed, 1000 changed, 9000 unchanged", sut.getSummary());
+    }
+
+    @Test
+    public void testDuplicateEntries() throws IOException {
+        final String from = "# g:a:1 user=u\n"
+                + "da39a3ee5e6b4b0d3255bfef95601890afd80709  a-1.jar\n"
+                + "# g:a:1 user=u\n"
+                + "8294565e2a5d99b548b111fe6262719331436143  a-1.jar\n";
+        final String to = "# g:a:1 user=u\n"
+                + "8294565e2a5d99b548b111fe6262719331436143  a-1.jar\n";
+        final BillOfMaterialsDiff sut = BillOfMaterialsDiff.of(parse(from), parse(to), false);
+        assertEquals("0 added, 1 removed, 0 changed, 1 unchanged", sut.getSummary());
+        assertEquals("da39a3ee5e6b4b0d3255bfef95601890afd80709", sut.getRemoved().get(0).getHash());
+        assertEquals("1 added, 0 removed, 0 changed, 1 unchanged",
+                BillOfMaterialsDiff.of(parse(to), parse(from), false).getSummary());
+        assertEquals("0 added, 0 removed, 0 changed, 2 unchanged",
+                BillOfMaterialsDiff.of(parse(from), parse(from), false).getSummary());
+    }
+
+    @Test
+    public void testIgnoringVersionsOfDependencies() throws IOException {
+        final String from = "# g:a:1 user=u\n"
+                + "da39a3ee5e6b4b0d3255bfef95601890afd80709  org/slf4j/slf4j-api/1.7.25/slf4j-api-1.7.25.jar\n"
+                + "8294565e2a5d99b548b111fe6262719331436143  g/b/1.0-SNAPSHOT/b-1.0-20170101.120000-1-tests.jar\n";
+        final String to = "# g:a:2 user=u\n"
+                + "082fa2206c4a00e3f428e9100199a0337ad42fdb  org/slf4j/slf4j-api/1.7.26/slf4j-api-1.7.26.jar\n"
+                + "8294565e2a5d99b548b111fe6262719331436143  g/b/1.1-SNAPSHOT/b-1.1-SNAPSHOT-tests.jar\n";
+        final BillOfMaterialsDiff sut = BillOfMaterialsDiff.of(parse(from), parse(to), true);
+        assertEquals("0 added, 0 removed, 1 changed, 1 unchanged", sut.getSummary());
+        assertEquals("org/slf4j/slf4j-api/1.7.26/slf4j-api-1.7.26.jar",
+                sut.getChanged().get(0).getTo().getFileName());
+        assertEquals("2 added, 2 removed, 0 changed, 0 unchanged",
+                BillOfMaterialsDiff.of(parse(from), parse(to), false).getSummary());
+    }
+
+    @Test
+    public void testWithoutRepositoryVersion() {
+        assertEquals("org/slf4j/slf4j-api/slf4j-api.jar",
+                BillOfMaterialsDiff.withoutRepositoryVersion("org/slf4j/slf4j-api/1.7.25/slf4j-api-1.7.25.jar"));
+        assertEquals("g/b/b-tests.jar",
+                BillOfMaterialsDiff.withoutRepositoryVersion("g/b/1.0-SNAPSHOT/b-1.0-20170101.120000-1-tests.jar"));
+        assertEquals("g/b/b.jar", BillOfMaterialsDiff.withoutRepositoryVersion("g/b/1.0-SNAPSHOT/b-1.0-SNAPSHOT.jar"));
+        assertEquals("b/1.0/other.jar", BillOfMaterialsDiff.withoutRepositoryVersion("b/1.0/other.jar"));
+        assertEquals("a-1.0.jar", BillOfMaterialsDiff.withoutRepositoryVersion("a-1.0.jar"));
+    }
+
+    private static BillOfMaterials parse(String content) throws IOException {
+        return BillOfMaterials.parse(new ByteArrayInputStream(content.getBytes(Charsets.UTF_8)));
+    }
+}
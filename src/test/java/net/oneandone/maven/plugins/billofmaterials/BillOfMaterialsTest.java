@@ -0,0 +1,152 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashCode;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class BillOfMaterialsTest {
+
+    private static final File BOM_FILE = new File(
+            BillOfMaterialsTest.class.getResource("/BillOfMaterialsTest/bill-of-materials.txt").getFile());
+
+    private BillOfMaterials sut;
+
+    @Before
+    public void parse() throws IOException {
+        sut = BillOfMaterials.parse(BOM_FILE);
+    }
+
+    @Test
+    public void testSections() {
+        assertEquals(3, sut.getSections().size());
+        final BillOfMaterials.Section child1 = sut.getSection("company:child1:1.0-SNAPSHOT");
+        assertEquals("# company:child1:1.0-SNAPSHOT user=mirko", child1.getComment());
+        assertEquals(3, child1.getEntries().size());
+        assertEquals("child1-1.0-SNAPSHOT-sources.jar", child1.getEntries().get(0).getFileName());
+        assertNull(sut.getSection("company:child3:1.0-SNAPSHOT"));
+    }
+
+    @Test
+    public void testEntries() {
+        assertEquals(7, sut.size());
+        final List<BillOfMaterials.Entry> entries = sut.getEntries();
+        assertEquals(7, entries.size());
+        assertEquals("2dcb20b977ff170dd802c30b804229264c97ebf6  company-parent-pom-1.0-SNAPSHOT.pom",
+                entries.get(0).toString());
+        assertEquals("5661e9270a02c5359be47615bb6ed9911105d878  child2-1.0-SNAPSHOT.pom",
+                entries.get(6).toString());
+    }
+
+    @Test
+    public void testFindByFileName() {
+        final List<BillOfMaterials.Entry> entries = sut.findByFileName("child2-1.0-SNAPSHOT.jar");
+        assertEquals(1, entries.size());
+        assertEquals("df633b963220ba124ffa80eb6ceab676934bb387", entries.get(0).getHash());
+        assertEquals("company:child2:1.0-SNAPSHOT", entries.get(0).getCoordinates());
+        assertTrue(sut.findByFileName("unknown.jar").isEmpty());
+    }
+
+    @Test
+    public void testFindByHash() {
+        final List<BillOfMaterials.Entry> entries = sut.findByHash("8294565E2A5D99B548B111FE6262719331436143");
+        assertEquals(1, entries.size());
+        assertEquals("child1-1.0-SNAPSHOT.jar", entries.get(0).getFileName());
+    }
+
+    @Test
+    public void testEntriesWithoutSection() throws IOException {
+        final BillOfMaterials withoutSection = BillOfMaterials.parse(new ByteArrayInputStream(
+                "da39a3ee5e6b4b0d3255bfef95601890afd80709  a-v.pom\n\nnot a hash line\n".getBytes(Charsets.UTF_8)));
+        assertEquals(1, withoutSection.size());
+        assertEquals(1, withoutSection.getSection(BillOfMaterials.NO_COORDINATES).getEntries().size());
+        assertEquals("122371ac1befffc53d0a4d06e23aea6c6827fb4b", withoutSection.getSha1().toString());
+    }
+
+    @Test
+    public void testAdditionalDigests() throws IOException {
+        final BillOfMaterials withDigests = BillOfMaterials.parse(new ByteArrayInputStream((
+                "# g:a:v user=mirko\n"
+                + "da39a3ee5e6b4b0d3255bfef95601890afd80709  a-v.pom\n"
+                + "SHA256 (a-v.pom) = E3B0C44298FC1C149AFBF4C8996FB92427AE41E4649B934CA495991B7852B855\n")
+                .getBytes(Charsets.UTF_8)));
+        assertEquals(1, withDigests.size());
+        final BillOfMaterials.Entry entry = withDigests.getEntries().get(0);
+        final Map<String, String> digests = entry.getDigests();
+        assertEquals(Arrays.asList("SHA-1", "SHA-256"), new ArrayList<>(digests.keySet()));
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", digests.get("SHA-256"));
+        assertEquals(Collections.singletonList(entry),
+                withDigests.findByHash("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855"));
+    }
+
+    @Test
+    public void testTagsOfSha3AndTruncatedSha512() throws IOException {
+        final BillOfMaterials withDigests = BillOfMaterials.parse(new ByteArrayInputStream((
+                "# g:a:v user=mirko\n"
+                + "da39a3ee5e6b4b0d3255bfef95601890afd80709  a-v.pom\n"
+                + "SHA3-256 (a-v.pom) = a7ffc6f8bf1ed76651c14756a061d662f580ff4de43b49fa82d80a4b80f8434a\n"
+                + "SHA512t256 (a-v.pom) = c672b8d1ef56ed28ab87c3622c5114069bdd3ad7b8f9737498d0c01ecef0967a\n")
+                .getBytes(Charsets.UTF_8)));
+        final Map<String, String> digests = withDigests.getEntries().get(0).getDigests();
+        assertEquals(Arrays.asList("SHA-1", "SHA3-256", "SHA-512/256"), new ArrayList<>(digests.keySet()));
+    }
+
+    @Test
+    public void testTaggedPrimaryDigests() throws IOException {
+        final BillOfMaterials withTags = BillOfMaterials.parse(new ByteArrayInputStream((
+                "# g:a:v user=mirko\n"
+                + "SHA3-256 (a-v.pom) = a7ffc6f8bf1ed76651c14756a061d662f580ff4de43b49fa82d80a4b80f8434a\n"
+                + "SHA256 (a-v.pom) = e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855\n"
+                + "SHA256 (a-v.jar) = e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855\n")
+                .getBytes(Charsets.UTF_8)));
+        assertEquals(2, withTags.size());
+        final Map<String, String> digests = withTags.getEntries().get(0).getDigests();
+        assertEquals(Arrays.asList("SHA3-256", "SHA-256"), new ArrayList<>(digests.keySet()));
+        assertEquals("a7ffc6f8bf1ed76651c14756a061d662f580ff4de43b49fa82d80a4b80f8434a", digests.get("SHA3-256"));
+        assertEquals(Collections.singletonMap("SHA-256",
+                "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855"),
+                withTags.getEntries().get(1).getDigests());
+    }
+
+    @Test
+    public void testToBomStringTagsPrimaryDigestsWhichCannotBeGuessed() {
+        final Map<String, HashCode> hashes = new LinkedHashMap<>();
+        hashes.put("SHA-224", HashCode.fromString("d14a028c2a3a2bc9476102bb288234c415a2b01f828ea62ac5b3e42f"));
+        hashes.put("SHA-1", HashCode.fromString("da39a3ee5e6b4b0d3255bfef95601890afd80709"));
+        assertEquals("SHA224 (a-v.pom) = d14a028c2a3a2bc9476102bb288234c415a2b01f828ea62ac5b3e42f\n"
+                + "SHA1 (a-v.pom) = da39a3ee5e6b4b0d3255bfef95601890afd80709",
+                BillOfMaterials.toBomString(hashes, "a-v.pom"));
+        assertEquals("da39a3ee5e6b4b0d3255bfef95601890afd80709  a-v.pom", BillOfMaterials.toBomString(
+                Collections.singletonMap("SHA-1", HashCode.fromString("da39a3ee5e6b4b0d3255bfef95601890afd80709")),
+                "a-v.pom"));
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class BinaryBillOfMaterialsTest {
+
+    private static final File BOM_FILE = new File(
+            BinaryBillOfMaterialsTest.class.getResource("/BillOfMaterialsTest/bill-of-materials.txt").getFile());
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final File binaryFile = new File(temporaryFolder.getRoot(), "bill-of-materials.bin");
+        final File textFile = new File(temporaryFolder.getRoot(), "bill-of-materials.txt");
+        BinaryBillOfMaterials.convertToBinary(BOM_FILE, binaryFile);
+        assertTrue(binaryFile.length() < BOM_FILE.length());
+        BinaryBillOfMaterials.convertToText(binaryFile, textFile);
+        assertEquals(Files.toString(BOM_FILE, Charsets.UTF_8), Files.toString(textFile, Charsets.UTF_8));
+    }
+
+    @Test
+    public void testReadIndex() throws IOException {
+        final File binaryFile = new File(temporaryFolder.getRoot(), "bill-of-materials.bin");
+        BinaryBillOfMaterials.convertToBinary(BOM_FILE, binaryFile);
+        final Map<String, Integer> index = BinaryBillOfMaterials.readIndex(binaryFile);
+        assertEquals(3, index.size());
+        assertEquals(Integer.valueOf(1), index.get("company:company-parent-pom:1.0-SNAPSHOT"));
+        assertEquals(Integer.valueOf(3), index.get("company:child2:1.0-SNAPSHOT"));
+    }
+
+    @Test
+    public void testParseBinary() throws IOException {
+        final File binaryFile = new File(temporaryFolder.getRoot(), "bill-of-materials.bin");
+        BinaryBillOfMaterials.convertToBinary(BOM_FILE, binaryFile);
+        final BillOfMaterials text = BillOfMaterials.parse(BOM_FILE);
+        final BillOfMaterials binary = BillOfMaterials.parse(binaryFile);
+        assertEquals(text.getEntries().toString(), binary.getEntries().toString());
+        assertEquals("# company:child1:1.0-SNAPSHOT user=mirko",
+                binary.getSection("company:child1:1.0-SNAPSHOT").getComment());
+        assertEquals(Files.asByteSource(binaryFile).hash(sha1()), binary.getSha1());
+    }
+
+    @Test
+    public void testAdditionalDigestsAndEntriesWithoutSection() throws IOException {
+        final File textFile = temporaryFolder.newFile("bill-of-materials.txt");
+        final String content = "da39a3ee5e6b4b0d3255bfef95601890afd80709  other.txt\n"
+                + "# g:a:v\n"
+                + "da39a3ee5e6b4b0d3255bfef95601890afd80709  a-v.pom\n"
+                + "SHA256 (a-v.pom) = e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855\n";
+        Files.write(content, textFile, Charsets.UTF_8);
+        final File binaryFile = BinaryBillOfMaterials.binaryFileFor(textFile);
+        assertEquals("bill-of-materials.bin", binaryFile.getName());
+        assertEquals("bill-of-materials.bin",
+                BinaryBillOfMaterials.binaryFileFor(new File("bill-of-materials.txt.gz")).getName());
+        BinaryBillOfMaterials.convertToBinary(textFile, binaryFile);
+        final File exported = new File(temporaryFolder.getRoot(), "exported.txt");
+        BinaryBillOfMaterials.convertToText(binaryFile, exported);
+        assertEquals(content, Files.toString(exported, Charsets.UTF_8));
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnsupportedVersion() throws IOException {
+        final File binaryFile = temporaryFolder.newFile("bill-of-materials.bin");
+        Files.write(new byte[] {'B', 'O', 'M', 'B', 99}, binaryFile);
+        BinaryBillOfMaterials.readIndex(binaryFile);
+    }
+
+    @Test
+    public void testCountsMustFitTheFileSize() throws IOException {
+        final File binaryFile = temporaryFolder.newFile("bill-of-materials.bin");
+        Files.write(new byte[] {'B', 'O', 'M', 'B', 1, 0x7f, -1, -1, -1}, binaryFile);
+        try {
+            BinaryBillOfMaterials.readIndex(binaryFile);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Invalid number of strings 2147483647 in binary bill of materials", e.getMessage());
+        }
+        // one empty string, one section referencing it with a million entries, but no entries.
+        Files.write(new byte[] {'B', 'O', 'M', 'B', 1, 0, 0, 0, 1, 0, 0, 0, 0, 0, 1,
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0x0f, 0x42, 0x40}, binaryFile);
+        try {
+            BinaryBillOfMaterials.readIndex(binaryFile);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid number of entries 1000000"));
+        }
+        try {
+            BillOfMaterials.parse(binaryFile);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // the size of a stream is unknown, so the missing entries are detected while reading.
+            assertTrue(e.toString(), e instanceof EOFException);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidDigest() throws IOException {
+        final File textFile = temporaryFolder.newFile("bill-of-materials.txt");
+        Files.write("abc  a-v.pom\n", textFile, Charsets.UTF_8);
+        BinaryBillOfMaterials.convertToBinary(textFile, BinaryBillOfMaterials.binaryFileFor(textFile));
+    }
+
+    @Test
+    public void testInvalidDigestIsDetectedBeforeWriting() throws IOException {
+        final File textFile = temporaryFolder.newFile("bill-of-materials.txt");
+        final File binaryFile = BinaryBillOfMaterials.binaryFileFor(textFile);
+        Files.write("# g:a:v\nda39a3ee5e6b4b0d3255bfef95601890afd80709  a-v.pom\n"
+                + "SHA256 (a-v.pom) = e3b0c\n", textFile, Charsets.UTF_8);
+        try {
+            BinaryBillOfMaterials.checkDigests(textFile);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Invalid digest of a-v.pom: e3b0c", e.getMessage());
+        }
+        try {
+            BinaryBillOfMaterials.convertToBinary(textFile, binaryFile);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Invalid digest of a-v.pom: e3b0c", e.getMessage());
+        }
+        assertFalse(binaryFile.exists());
+        assertEquals(1, temporaryFolder.getRoot().list().length);
+    }
+
+    @SuppressWarnings("deprecation") // Standard Hash used in Maven
+    private static com.google.common.hash.HashFunction sha1() {
+        return com.google.common.hash.Hashing.sha1();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class ChannelFileHasherTest {
+
+    @SuppressWarnings("deprecation") // Standard Hash used in Maven
+    private final HashFunction sha1 = Hashing.sha1();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testHashBuffered() throws IOException {
+        final File file = createRandomFile(3 * 1024 * 1024 + 17);
+        final FileHasher sut = new ChannelFileHasher(FileHasher.SHA1);
+        assertEquals(Files.asByteSource(file).hash(sha1), sut.hash(file).get(FileHasher.SHA1));
+    }
+
+    @Test
+    public void testHashInSmallReads() throws IOException {
+        final File file = createRandomFile(100 * 1024 + 17);
+        final FileHasher sut = new ChannelFileHasher(Collections.singletonList(FileHasher.SHA1), 4096);
+        assertEquals(Files.asByteSource(file).hash(sha1), sut.hash(file).get(FileHasher.SHA1));
+    }
+
+    @Test
+    public void testHashEmptyFile() throws IOException {
+        final File file = createRandomFile(0);
+        final FileHasher sut = new ChannelFileHasher(Collections.singletonList(FileHasher.SHA1), 4096);
+        assertEquals("da39a3ee5e6b4b0d3255bfef95601890afd80709", sut.hash(file).get(FileHasher.SHA1).toString());
+    }
+
+    @Test
+    public void testHashMultipleAlgorithmsInOnePass() throws IOException {
+        final File file = createRandomFile(100 * 1024 + 17);
+        for (final FileHasher sut : Arrays.<FileHasher>asList(
+                new ChannelFileHasher(Arrays.asList(FileHasher.SHA1, "SHA-256", "SHA-512")),
+                new ChannelFileHasher(Arrays.asList(FileHasher.SHA1, "SHA-256", "SHA-512"), 4096))) {
+            final Map<String, HashCode> hashes = sut.hash(file);
+            assertEquals(Arrays.asList(FileHasher.SHA1, "SHA-256", "SHA-512"), new ArrayList<>(hashes.keySet()));
+            assertEquals(Files.asByteSource(file).hash(sha1), hashes.get(FileHasher.SHA1));
+            assertEquals(Files.asByteSource(file).hash(Hashing.sha256()), hashes.get("SHA-256"));
+            assertEquals(Files.asByteSource(file).hash(Hashing.sha512()), hashes.get("SHA-512"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testHashNonExistingFile() throws IOException {
+        new ChannelFileHasher(FileHasher.SHA1).hash(new File(temporaryFolder.getRoot(), "I DO NOT EXIST"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    @SuppressWarnings("ResultOfObjectAllocationIgnored")
+    public void testUnknownAlgorithm() {
+        new ChannelFileHasher("NO-SUCH-DIGEST");
+    }
+
+    private File createRandomFile(int size) throws IOException {
+        final byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        final File file = temporaryFolder.newFile();
+        Files.write(content, file);
+        return file;
+    }
+}
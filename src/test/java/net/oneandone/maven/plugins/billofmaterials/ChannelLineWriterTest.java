@@ -0,0 +1,75 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class ChannelLineWriterTest {
+
+    @Test
+    public void testLinesLargerThanTheBuffer() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final StringBuilder expected = new StringBuilder();
+        try (ChannelLineWriter sut = ChannelLineWriter.of(Channels.newChannel(bytes), Compression.NONE, 7)) {
+            sut.append("# g:a:v user=wwhite\n");
+            expected.append("# g:a:v user=wwhite\n");
+            for (int i = 0; i < 1000; i++) {
+                final String line = "da39a3ee5e6b4b0d3255bfef95601890afd80709  ä-€-😀-" + i + ".jar";
+                sut.appendLine(line);
+                expected.append(line).append('\n');
+            }
+        }
+        assertEquals(expected.toString(), new String(bytes.toByteArray(), Charsets.UTF_8));
+    }
+
+    @Test
+    public void testUnpairedSurrogateIsReplaced() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ChannelLineWriter sut = ChannelLineWriter.of(Channels.newChannel(bytes), Compression.NONE)) {
+            sut.appendLine("a\ud83d").appendLine("b");
+        }
+        assertArrayEquals("a?\nb\n".getBytes(Charsets.UTF_8), bytes.toByteArray());
+    }
+
+    @Test
+    public void testGzipLeavesChannelOpen() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final WritableByteChannel channel = Channels.newChannel(bytes);
+        try (ChannelLineWriter sut = ChannelLineWriter.of(channel, Compression.GZIP, 16)) {
+            for (int i = 0; i < 100; i++) {
+                sut.appendLine("line" + i);
+            }
+        }
+        assertTrue(channel.isOpen());
+        final InputStream in = Compression.decompress(new ByteArrayInputStream(bytes.toByteArray()));
+        final String content = new String(ByteStreams.toByteArray(in), Charsets.UTF_8);
+        assertTrue(content.startsWith("line0\nline1\n"));
+        assertTrue(content.endsWith("line98\nline99\n"));
+    }
+}
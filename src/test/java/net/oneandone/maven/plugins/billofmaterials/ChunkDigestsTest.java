@@ -0,0 +1,124 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class ChunkDigestsTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final ListeningExecutorService executor = HashingExecutors.newFixedThreadPool(3, 3);
+
+    private File artifact;
+
+    @Before
+    public void createArtifact() throws IOException {
+        artifact = temporaryFolder.newFile("a-v.jar");
+        Files.write("0123456789", artifact, Charsets.UTF_8);
+    }
+
+    @After
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testCalculate() throws IOException {
+        final ChunkDigests sut = ChunkDigests.calculate(artifact, FileHasher.SHA1, 4, executor);
+        assertEquals("a-v.jar", sut.getFileName());
+        assertEquals(10, sut.getSize());
+        assertEquals(Arrays.asList(
+                Hashing.sha1().hashString("0123", Charsets.UTF_8),
+                Hashing.sha1().hashString("4567", Charsets.UTF_8),
+                Hashing.sha1().hashString("89", Charsets.UTF_8)), sut.getChunks());
+    }
+
+    @Test
+    public void testInterruptedChunkDoesNotCloseTheOtherChunks() throws IOException {
+        final List<HashCode> expected = ChunkDigests.calculate(artifact, FileHasher.SHA1, 4, executor).getChunks();
+        Thread.currentThread().interrupt();
+        try {
+            ChunkDigests.hashChunk(artifact, FileHasher.SHA1, 4, 0);
+            fail("Expected ClosedByInterruptException");
+        } catch (ClosedByInterruptException e) {
+            assertTrue(Thread.interrupted());
+        }
+        assertEquals(expected.subList(1, 3),
+                ChunkDigests.hashChunks(artifact, FileHasher.SHA1, 4, Arrays.asList(1, 2), executor));
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        final File chunksFile = new File(temporaryFolder.getRoot(), "bill-of-materials/chunks.txt");
+        final ChunkDigests sut = ChunkDigests.calculate(artifact, "SHA-256", 3, executor);
+        ChunkDigests.write(chunksFile, Collections.singletonList(sut));
+        final List<ChunkDigests> read = ChunkDigests.read(chunksFile);
+        assertEquals(1, read.size());
+        assertEquals(sut.getChunks(), read.get(0).getChunks());
+        assertEquals(sut.getRoot(), read.get(0).getRoot());
+        assertEquals(3, read.get(0).getChunkSize());
+        assertEquals("SHA-256", read.get(0).getAlgorithm());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadDetectsModifiedChunk() throws IOException {
+        final File chunksFile = temporaryFolder.newFile("chunks.txt");
+        ChunkDigests.write(chunksFile, Collections.singletonList(
+                ChunkDigests.calculate(artifact, FileHasher.SHA1, 4, executor)));
+        final String content = Files.toString(chunksFile, Charsets.UTF_8);
+        final String firstChunk = Hashing.sha1().hashString("0123", Charsets.UTF_8).toString();
+        Files.write(content.replace(firstChunk, Hashing.sha1().hashString("x", Charsets.UTF_8).toString()),
+                chunksFile, Charsets.UTF_8);
+        ChunkDigests.read(chunksFile);
+    }
+
+    @Test
+    public void testSampleIndices() throws IOException {
+        final ChunkDigests sut = ChunkDigests.calculate(artifact, FileHasher.SHA1, 1, executor);
+        assertEquals(10, sut.sampleIndices(0).size());
+        assertEquals(Arrays.asList(0), Arrays.asList(sut.sampleIndices(1).toArray()));
+        assertEquals(Arrays.asList(0, 4, 9), Arrays.asList(sut.sampleIndices(3).toArray()));
+    }
+
+    @Test
+    public void testEmptyFileHasNoChunks() throws IOException {
+        final ChunkDigests sut = ChunkDigests.calculate(
+                temporaryFolder.newFile("empty.jar"), FileHasher.SHA1, 4, executor);
+        assertTrue(sut.getChunks().isEmpty());
+    }
+}
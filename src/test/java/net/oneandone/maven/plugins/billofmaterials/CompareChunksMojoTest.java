@@ -0,0 +1,99 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.maven.plugin.MojoFailureException;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class CompareChunksMojoTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File chunksFile;
+
+    private File artifact;
+
+    @Before
+    public void createChunksFile() throws IOException {
+        artifact = temporaryFolder.newFile("a-v.jar");
+        Files.write("0123456789", artifact, Charsets.UTF_8);
+        chunksFile = new File(temporaryFolder.getRoot(), "reference/chunks.txt");
+        final ListeningExecutorService executor = HashingExecutors.newFixedThreadPool(2, 2);
+        try {
+            ChunkDigests.write(chunksFile, Collections.singletonList(
+                    ChunkDigests.calculate(artifact, FileHasher.SHA1, 2, executor)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testMatchingFile() throws Exception {
+        new CompareChunksMojo(chunksFile, temporaryFolder.getRoot(), 0).execute();
+    }
+
+    @Test
+    public void testReportsDifferingRanges() throws Exception {
+        Files.write("0x2345678x", artifact, Charsets.UTF_8);
+        try {
+            new CompareChunksMojo(chunksFile, temporaryFolder.getRoot(), 0).execute();
+            fail("Expected MojoFailureException");
+        } catch (MojoFailureException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("a-v.jar: bytes 0-1, 8-9"));
+        }
+    }
+
+    @Test
+    public void testSampleSkipsChunksInTheMiddle() throws Exception {
+        Files.write("0123x56789", artifact, Charsets.UTF_8);
+        new CompareChunksMojo(chunksFile, temporaryFolder.getRoot(), 2).execute();
+    }
+
+    @Test
+    public void testReportsSizeAndMissingFiles() throws Exception {
+        Files.write("0123", artifact, Charsets.UTF_8);
+        try {
+            new CompareChunksMojo(chunksFile, temporaryFolder.getRoot(), 0).execute();
+            fail("Expected MojoFailureException");
+        } catch (MojoFailureException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("a-v.jar: size 4 instead of 10 bytes 4-"));
+        }
+        final CompareChunksMojo sut = new CompareChunksMojo(chunksFile, temporaryFolder.newFolder("empty"), 0);
+        sut.setFailOnDifference(false);
+        sut.execute();
+    }
+
+    @Test
+    public void testToRanges() {
+        assertEquals("0-3, 8-9", CompareChunksMojo.toRanges(Arrays.asList(0, 1, 4), 2, 10));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class CompressionTest {
+
+    private static final byte[] CONTENT = "da39a3ee5e6b4b0d3255bfef95601890afd80709  a-v.pom\n".getBytes(Charsets.UTF_8);
+
+    @Test
+    public void testDecompressConcatenatedMembers() throws IOException {
+        final byte[] first = Compression.GZIP.compress(CONTENT);
+        final byte[] both = new byte[first.length * 2];
+        System.arraycopy(first, 0, both, 0, first.length);
+        System.arraycopy(first, 0, both, first.length, first.length);
+        final InputStream in = Compression.decompress(new BufferedInputStream(new ByteArrayInputStream(both)));
+        assertEquals(CONTENT.length * 2, ByteStreams.toByteArray(in).length);
+    }
+
+    @Test
+    public void testUncompressedIsUnchanged() throws IOException {
+        final InputStream raw = new BufferedInputStream(new ByteArrayInputStream(Compression.NONE.compress(CONTENT)));
+        assertSame(raw, Compression.decompress(raw));
+        assertArrayEquals(CONTENT, ByteStreams.toByteArray(raw));
+    }
+
+    @Test
+    public void testShortContentIsUncompressed() throws IOException {
+        final InputStream raw = new BufferedInputStream(new ByteArrayInputStream(new byte[] {0x1f}));
+        assertSame(raw, Compression.decompress(raw));
+    }
+
+    @Test(expected = IOException.class)
+    public void testZstdIsNotSupported() throws IOException {
+        Compression.decompress(new BufferedInputStream(new ByteArrayInputStream(
+                new byte[] {(byte) 0x28, (byte) 0xb5, (byte) 0x2f, (byte) 0xfd, 0})));
+    }
+
+    @Test
+    public void testSha1CoversCompressedContent() throws IOException {
+        final byte[] compressed = Compression.GZIP.compress(CONTENT);
+        final BillOfMaterials billOfMaterials = BillOfMaterials.parse(new ByteArrayInputStream(compressed));
+        assertEquals(1, billOfMaterials.size());
+        assertEquals(sha1(compressed), billOfMaterials.getSha1().toString());
+    }
+
+    @SuppressWarnings("deprecation") // Standard Hash used in Maven
+    private static String sha1(byte[] content) {
+        return com.google.common.hash.Hashing.sha1().hashBytes(content).toString();
+    }
+}
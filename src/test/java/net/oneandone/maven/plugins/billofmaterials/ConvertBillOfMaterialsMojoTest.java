@@ -0,0 +1,54 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import java.io.File;
+import org.apache.maven.plugin.MojoExecutionException;
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class ConvertBillOfMaterialsMojoTest {
+
+    private static final File BOM_FILE = new File(
+            ConvertBillOfMaterialsMojoTest.class.getResource("/BillOfMaterialsTest/bill-of-materials.txt").getFile());
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testConvertBothWays() throws Exception {
+        final File binaryFile = new File(temporaryFolder.getRoot(), "binary/bill-of-materials.bin");
+        final File textFile = new File(temporaryFolder.getRoot(), "text/bill-of-materials.txt");
+        new ConvertBillOfMaterialsMojo(BOM_FILE, binaryFile).execute();
+        new ConvertBillOfMaterialsMojo(binaryFile, textFile).execute();
+        assertEquals(Files.toString(BOM_FILE, Charsets.UTF_8), Files.toString(textFile, Charsets.UTF_8));
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void testMissingSource() throws Exception {
+        new ConvertBillOfMaterialsMojo(
+                new File(temporaryFolder.getRoot(), "I DO NOT EXIST"), new File(temporaryFolder.getRoot(), "t.txt"))
+                .execute();
+    }
+}
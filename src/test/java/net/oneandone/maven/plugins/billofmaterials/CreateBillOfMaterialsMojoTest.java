@@ -15,19 +15,48 @@
  */
 package net.oneandone.maven.plugins.billofmaterials;
 
-import com.google.common.hash.HashFunction;
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashCode;
 import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.Security;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.DependencyResolutionRequest;
+import org.apache.maven.project.DependencyResolutionResult;
 import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.ProjectDependenciesResolver;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyFilter;
+import org.eclipse.aether.graph.DependencyNode;
 import static org.junit.Assert.*;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import static org.mockito.Mockito.*;
 
 /**
@@ -38,8 +67,7 @@ public class CreateBillOfMaterialsMojoTest {
 
     private static final String EMPTY_FILE_FOR_SHA1 = CreateBillOfMaterialsMojoTest.class.getResource("/sha1-test-dummy.txt").getFile();
 
-    @SuppressWarnings("deprecation") // Standard Hash used in Maven
-    private final HashFunction sha1 = Hashing.sha1();
+    private final FileHasher sha1 = new ChannelFileHasher(FileHasher.SHA1);
 
     @Before
     public void setLogging() {
@@ -75,6 +103,690 @@ public class CreateBillOfMaterialsMojoTest {
         when(projectMock.getPackaging()).thenReturn("pom");
         instance.execute();
     }
+    /**
+     * Test of execute method with several hashing threads, of class CreateBillOfMaterialsMojo.
+     */
+    @Test
+    public void testExecuteInParallelKeepsOrder() throws Exception {
+        final MavenProject projectMock = createProjectWithAttachedArtifacts();
+        final StringBuilder sequential = new StringBuilder();
+        createCapturingMojo(projectMock, sequential).execute();
+        final StringBuilder parallel = new StringBuilder();
+        final CreateBillOfMaterialsMojo sut = createCapturingMojo(projectMock, parallel);
+        sut.setHashingThreads(4);
+        sut.execute();
+        assertEquals(sequential.toString(), parallel.toString());
+        assertTrue(parallel.toString().endsWith(
+                "da39a3ee5e6b4b0d3255bfef95601890afd80709  sha1-test-dummy.txt\n"
+                + "da39a3ee5e6b4b0d3255bfef95601890afd80709  a-v.pom\n"));
+    }
+
+    /**
+     * Test of execute method with limits per file system, of class CreateBillOfMaterialsMojo.
+     */
+    @Test
+    public void testExecuteThrottledKeepsOrder() throws Exception {
+        final MavenProject projectMock = createProjectWithAttachedArtifacts();
+        final StringBuilder sequential = new StringBuilder();
+        createCapturingMojo(projectMock, sequential).execute();
+        final MavenSession session = mock(MavenSession.class);
+        when(session.getRequest()).thenReturn(mock(MavenExecutionRequest.class));
+        when(session.getProjects()).thenReturn(Collections.singletonList(projectMock));
+        final StringBuilder throttled = new StringBuilder();
+        final CreateBillOfMaterialsMojo sut = createCapturingMojo(projectMock, throttled);
+        sut.setHashingThreads(4);
+        sut.setThrottling(1, 1, session);
+        sut.execute();
+        assertEquals(sequential.toString(), throttled.toString());
+        assertEquals(1, sut.getThrottlingLimits().size());
+    }
+
+    /**
+     * Test of execute method with additional algorithms, of class CreateBillOfMaterialsMojo.
+     */
+    @Test
+    public void testExecuteWithAdditionalAlgorithms() throws Exception {
+        final MavenProject projectMock = createProjectWithAttachedArtifacts();
+        final StringBuilder result = new StringBuilder();
+        final CreateBillOfMaterialsMojo sut = createCapturingMojo(projectMock, result);
+        sut.setAlgorithms(Arrays.asList(FileHasher.SHA1, "SHA-256"));
+        sut.execute();
+        assertTrue(result.toString().endsWith(
+                "da39a3ee5e6b4b0d3255bfef95601890afd80709  sha1-test-dummy.txt\n"
+                + "SHA256 (sha1-test-dummy.txt) = e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855\n"
+                + "da39a3ee5e6b4b0d3255bfef95601890afd80709  a-v.pom\n"
+                + "SHA256 (a-v.pom) = e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855\n"));
+    }
+
+    /**
+     * Test of execute method with dependencies, of class CreateBillOfMaterialsMojo.
+     */
+    @Test
+    public void testExecuteWithDependencies() throws Exception {
+        final File localRepository = new File("target/CreateBillOfMaterialsMojoTest/repository");
+        final Artifact runtime = createDependency(localRepository, "runtime", Artifact.SCOPE_RUNTIME,
+                "0000000000000000000000000000000000000001");
+        final Artifact test = createDependency(localRepository, "test", Artifact.SCOPE_TEST, null);
+        final MavenProject projectMock = createMinimalProject();
+        when(projectMock.getPackaging()).thenReturn("pom");
+        when(projectMock.getArtifacts()).thenReturn(new LinkedHashSet<>(Arrays.asList(test, runtime)));
+        final ArtifactRepository repository = mock(ArtifactRepository.class);
+        when(repository.getBasedir()).thenReturn(localRepository.getPath());
+        when(repository.pathOf(runtime)).thenReturn("g/runtime/1.0/runtime-1.0.jar");
+        final MavenSession session = mock(MavenSession.class);
+        when(session.getLocalRepository()).thenReturn(repository);
+        final StringBuilder ignored = new StringBuilder();
+        final CreateBillOfMaterialsMojo byDefault = createCapturingMojo(projectMock, ignored);
+        byDefault.setDependencyScope(DependencyScope.RUNTIME, session);
+        byDefault.execute();
+        // the .sha1 file is ignored by default, the test dependency is out of scope.
+        assertTrue(ignored.toString(), ignored.toString().endsWith("da39a3ee5e6b4b0d3255bfef95601890afd80709  a-v.pom\n"
+                + "da39a3ee5e6b4b0d3255bfef95601890afd80709  g/runtime/1.0/runtime-1.0.jar\n"));
+        final StringBuilder result = new StringBuilder();
+        final CreateBillOfMaterialsMojo sut = createCapturingMojo(projectMock, result);
+        sut.setDependencyScope(DependencyScope.RUNTIME, session);
+        sut.setChecksumPolicy(ChecksumPolicy.TRUST, 0);
+        sut.execute();
+        // the checksum is taken from the .sha1 file.
+        assertTrue(result.toString(), result.toString().endsWith("da39a3ee5e6b4b0d3255bfef95601890afd80709  a-v.pom\n"
+                + "0000000000000000000000000000000000000001  g/runtime/1.0/runtime-1.0.jar\n"));
+        final CreateBillOfMaterialsMojo all = createCapturingMojo(projectMock, new StringBuilder());
+        all.setDependencyScope(DependencyScope.ALL, session);
+        all.setChecksumPolicy(ChecksumPolicy.VERIFY, 0);
+        try {
+            all.execute();
+            fail("Expected MojoExecutionException");
+        } catch (MojoExecutionException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("does not match runtime-1.0.jar.sha1"));
+        }
+    }
+
+    /**
+     * Test of execute method with a dependency resolver, of class CreateBillOfMaterialsMojo.
+     */
+    @Test
+    public void testExecuteResolvesDependenciesOnDemand() throws Exception {
+        final File localRepository = new File("target/CreateBillOfMaterialsMojoTest/repository");
+        final File runtimeFile = createDependency(localRepository, "runtime", Artifact.SCOPE_RUNTIME, null).getFile();
+        final Dependency runtime = new Dependency(
+                new DefaultArtifact("g", "runtime", "jar", "1.0").setFile(runtimeFile), Artifact.SCOPE_RUNTIME);
+        final Dependency test = new Dependency(new DefaultArtifact("g", "test", "jar", "1.0"), Artifact.SCOPE_TEST);
+        final MavenProject projectMock = createMinimalProject();
+        when(projectMock.getPackaging()).thenReturn("pom");
+        final ArtifactRepository repository = mock(ArtifactRepository.class);
+        when(repository.getBasedir()).thenReturn(localRepository.getPath());
+        final MavenSession session = mock(MavenSession.class);
+        when(session.getLocalRepository()).thenReturn(repository);
+        final DependencyResolutionResult resolutionResult = mock(DependencyResolutionResult.class);
+        when(resolutionResult.getResolvedDependencies()).thenReturn(Collections.singletonList(runtime));
+        final ProjectDependenciesResolver resolver = mock(ProjectDependenciesResolver.class);
+        when(resolver.resolve(any(DependencyResolutionRequest.class))).thenReturn(resolutionResult);
+        final CreateBillOfMaterialsMojo none = createCapturingMojo(projectMock, new StringBuilder());
+        none.setDependenciesResolver(resolver);
+        none.execute();
+        verifyZeroInteractions(resolver);
+        final StringBuilder result = new StringBuilder();
+        final CreateBillOfMaterialsMojo sut = createCapturingMojo(projectMock, result);
+        sut.setDependenciesResolver(resolver);
+        sut.setDependencyScope(DependencyScope.RUNTIME, session);
+        sut.execute();
+        assertTrue(result.toString(), result.toString().endsWith(
+                "da39a3ee5e6b4b0d3255bfef95601890afd80709  g/runtime/1.0/runtime-1.0.jar\n"));
+        final ArgumentCaptor<DependencyResolutionRequest> request =
+                ArgumentCaptor.forClass(DependencyResolutionRequest.class);
+        verify(resolver).resolve(request.capture());
+        assertSame(projectMock, request.getValue().getMavenProject());
+        final DependencyFilter filter = request.getValue().getResolutionFilter();
+        final List<DependencyNode> parents = Collections.emptyList();
+        assertTrue(filter.accept(new DefaultDependencyNode(runtime), parents));
+        assertFalse(filter.accept(new DefaultDependencyNode(test), parents));
+        verify(projectMock, never()).getArtifacts();
+    }
+
+    /**
+     * Test of execute method with chunk digests, of class CreateBillOfMaterialsMojo.
+     */
+    @Test
+    public void testExecuteWithChunkDigests() throws Exception {
+        final File chunksFile = new File("target/CreateBillOfMaterialsMojoTest/chunks.txt");
+        final MavenProject projectMock = createProjectWithAttachedArtifacts();
+        final CreateBillOfMaterialsMojo sut = createCapturingMojo(projectMock, new StringBuilder());
+        sut.setChunks(1, 16, chunksFile);
+        sut.execute();
+        // the empty dummy file is below the threshold.
+        final List<ChunkDigests> chunkDigests = ChunkDigests.read(chunksFile);
+        assertEquals(1, chunkDigests.size());
+        assertEquals("bill-of-materials.txt", chunkDigests.get(0).getFileName());
+        assertEquals(16, chunkDigests.get(0).getChunkSize());
+        // throttled, the chunks are hashed within the same limits as the files.
+        final MavenSession session = mock(MavenSession.class);
+        when(session.getRequest()).thenReturn(mock(MavenExecutionRequest.class));
+        when(session.getProjects()).thenReturn(Arrays.asList(projectMock));
+        final CreateBillOfMaterialsMojo throttled = createCapturingMojo(projectMock, new StringBuilder());
+        throttled.setChunks(1, 16, chunksFile);
+        throttled.setThrottling(1, 1, session);
+        throttled.execute();
+        assertEquals(chunkDigests.get(0).getRoot(), ChunkDigests.read(chunksFile).get(0).getRoot());
+        assertEquals(1, throttled.getThrottlingLimits().size());
+    }
+
+    /**
+     * Test of execute method with the hash cache, of class CreateBillOfMaterialsMojo.
+     */
+    @Test
+    public void testExecuteWithHashCache() throws Exception {
+        final File hashCacheFile = new File("target/CreateBillOfMaterialsMojoTest/hash-cache.txt");
+        hashCacheFile.delete();
+        final MavenProject projectMock = createProjectWithAttachedArtifacts();
+        final StringBuilder result = new StringBuilder();
+        final CreateBillOfMaterialsMojo sut = createCapturingMojo(projectMock, result);
+        sut.setHashCache(true, hashCacheFile, false);
+        sut.execute();
+        final HashCache hashCache = new HashCache(hashCacheFile, 10);
+        hashCache.load();
+        // the POM of the minimal project is one of the attached artifacts as well.
+        assertEquals(2, hashCache.size());
+        final StringBuilder cachedResult = new StringBuilder();
+        final CreateBillOfMaterialsMojo cached = createCapturingMojo(projectMock, cachedResult);
+        cached.setHashCache(true, hashCacheFile, false);
+        cached.execute();
+        assertEquals(result.toString(), cachedResult.toString());
+    }
+
+    /**
+     * Test of execute method with metrics, of class CreateBillOfMaterialsMojo.
+     */
+    @Test
+    public void testExecuteWithMetrics() throws Exception {
+        final File hashCacheFile = new File("target/CreateBillOfMaterialsMojoTest/metrics/hash-cache.txt");
+        final File metricsReport = new File("target/CreateBillOfMaterialsMojoTest/metrics/metrics.json");
+        hashCacheFile.delete();
+        metricsReport.delete();
+        final MavenProject projectMock = createProjectWithAttachedArtifacts();
+        final MavenProject otherMock = createProjectWithAttachedArtifacts();
+        when(otherMock.getArtifactId()).thenReturn("b");
+        final MavenSession session = mock(MavenSession.class);
+        when(session.getRequest()).thenReturn(mock(MavenExecutionRequest.class));
+        when(session.getProjects()).thenReturn(Arrays.asList(projectMock, otherMock));
+        for (final MavenProject project : Arrays.asList(projectMock, otherMock)) {
+            // the report is written once, after the last module.
+            assertFalse(metricsReport.exists());
+            final CreateBillOfMaterialsMojo sut = createCapturingMojo(project, new StringBuilder());
+            sut.setHashCache(true, hashCacheFile, false);
+            sut.setMetrics(true, metricsReport, session);
+            sut.execute();
+        }
+        final String report = Files.toString(metricsReport, Charsets.UTF_8);
+        // the POM is the same file as an attached artifact, so it is a cache hit in the first execution already.
+        assertTrue(report, report.contains("\"files\": 6,"));
+        assertTrue(report, report.contains("\"cacheHits\": 4,"));
+        assertTrue(report, report.contains("\"cacheMisses\": 2,"));
+        assertTrue(report, report.contains("\"module\": \"g:a:v\""));
+    }
+
+    /**
+     * Test of execute method with metrics for files shared by modules, of class CreateBillOfMaterialsMojo.
+     */
+    @Test
+    public void testMetricsOnlyRecordFilesActuallyRead() throws Exception {
+        final MavenProject projectMock = createProjectWithAttachedArtifacts();
+        final MavenProject otherMock = createProjectWithAttachedArtifacts();
+        when(otherMock.getArtifactId()).thenReturn("b");
+        final MavenSession session = mock(MavenSession.class);
+        when(session.getRequest()).thenReturn(mock(MavenExecutionRequest.class));
+        when(session.getProjects()).thenReturn(Arrays.asList(projectMock, otherMock));
+        CreateBillOfMaterialsMojo sut = null;
+        for (final MavenProject project : Arrays.asList(projectMock, otherMock)) {
+            sut = createCapturingMojo(project, new StringBuilder());
+            sut.setMetrics(true, new File("target/CreateBillOfMaterialsMojoTest/shared-metrics.json"), session);
+            sut.execute();
+        }
+        // the POM and an attached artifact are the same file, which is read once for the whole reactor.
+        assertEquals(2, sut.getHashingMetrics().getSamples("g:a:v").size());
+        assertEquals(0, sut.getHashingMetrics().getSamples("g:b:v").size());
+    }
+
+    /**
+     * Test of execute method with WriteMode.INCREMENTAL, of class CreateBillOfMaterialsMojo.
+     */
+    @Test
+    public void testExecuteIncremental() throws Exception {
+        final File bomFile = new File("target/CreateBillOfMaterialsMojoTest/incremental/bill-of-materials.txt");
+        Files.createParentDirs(bomFile);
+        Files.write("# g:parent:v user=other\n"
+                + "0000000000000000000000000000000000000000  parent-v.pom\n"
+                + "# g:a:v user=other\n"
+                + "1111111111111111111111111111111111111111  a-v.pom\n"
+                + "# g:b:v user=other\n"
+                + "2222222222222222222222222222222222222222  b-v.pom\n"
+                + "SHA256 (b-v.pom) = 3333333333333333333333333333333333333333333333333333333333333333\n"
+                + "# g:a:v user=other\n"
+                + "4444444444444444444444444444444444444444  a-v.pom\n", bomFile, Charsets.UTF_8);
+        final MavenProject projectMock = createMinimalProject();
+        when(projectMock.getPackaging()).thenReturn("pom");
+        final CreateBillOfMaterialsMojo sut = new CreateBillOfMaterialsMojo(bomFile, projectMock);
+        sut.setWriteMode(WriteMode.INCREMENTAL, null);
+        sut.execute();
+        final String userName = System.getProperty("user.name");
+        assertEquals("# g:parent:v user=other\n"
+                + "0000000000000000000000000000000000000000  parent-v.pom\n"
+                + "# g:b:v user=other\n"
+                + "2222222222222222222222222222222222222222  b-v.pom\n"
+                + "SHA256 (b-v.pom) = 3333333333333333333333333333333333333333333333333333333333333333\n"
+                + "# g:a:v user=" + userName + "\n"
+                + "da39a3ee5e6b4b0d3255bfef95601890afd80709  a-v.pom\n",
+                Files.toString(bomFile, Charsets.UTF_8));
+        final String once = Files.toString(bomFile, Charsets.UTF_8);
+        sut.execute();
+        assertEquals(once, Files.toString(bomFile, Charsets.UTF_8));
+    }
+
+    /**
+     * Test of execute method with gzip compression, of class CreateBillOfMaterialsMojo.
+     */
+    @Test
+    public void testExecuteCompressed() throws Exception {
+        final File bomFile = new File("target/CreateBillOfMaterialsMojoTest/compressed/bill-of-materials.txt.gz");
+        bomFile.delete();
+        final MavenProject projectMock = createProjectWithAttachedArtifacts();
+        final MavenProject otherProjectMock = createProjectWithAttachedArtifacts();
+        when(otherProjectMock.getArtifactId()).thenReturn("other");
+        for (final MavenProject project : Arrays.asList(projectMock, otherProjectMock)) {
+            final CreateBillOfMaterialsMojo sut = new CreateBillOfMaterialsMojo(bomFile, project);
+            sut.setCompression(Compression.GZIP);
+            sut.execute();
+        }
+        final byte[] compressed = Files.toByteArray(bomFile);
+        assertEquals((byte) 0x1f, compressed[0]);
+        // every module appends a gzip member of its own.
+        final BillOfMaterials billOfMaterials = BillOfMaterials.parse(bomFile);
+        assertEquals(2, billOfMaterials.getSections().size());
+        assertEquals(6, billOfMaterials.size());
+        final CreateBillOfMaterialsMojo incremental = new CreateBillOfMaterialsMojo(bomFile, otherProjectMock);
+        incremental.setCompression(Compression.GZIP);
+        incremental.setWriteMode(WriteMode.INCREMENTAL, null);
+        incremental.execute();
+        assertEquals(billOfMaterials.getEntries().toString(), BillOfMaterials.parse(bomFile).getEntries().toString());
+    }
+
+    /**
+     * Test of write method with many lines, of class CreateBillOfMaterialsMojo.
+     */
+    @Test
+    public void testWriteManyLines() throws Exception {
+        final File bomFile = new File("target/CreateBillOfMaterialsMojoTest/many/bill-of-materials.txt");
+        bomFile.delete();
+        final List<String> hashBaseNames = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            hashBaseNames.add("da39a3ee5e6b4b0d3255bfef95601890afd80709  a-" + i + ".jar");
+        }
+        final CreateBillOfMaterialsMojo sut = new CreateBillOfMaterialsMojo(bomFile, createMinimalProject());
+        sut.write("# g:a:v user=wwhite\n", hashBaseNames);
+        final List<String> lines = Files.readLines(bomFile, Charsets.UTF_8);
+        assertEquals(20001, lines.size());
+        assertEquals("# g:a:v user=wwhite", lines.get(0));
+        assertEquals(hashBaseNames, lines.subList(1, lines.size()));
+    }
+
+    /**
+     * Test of execute method writing the binary bill of materials as well.
+     */
+    @Test
+    public void testExecuteWriteBinary() throws Exception {
+        final File bomFile = new File("target/CreateBillOfMaterialsMojoTest/binary/bill-of-materials.txt");
+        final File binaryFile = new File("target/CreateBillOfMaterialsMojoTest/binary/bill-of-materials.bin");
+        bomFile.delete();
+        final MavenProject projectMock = createProjectWithAttachedArtifacts();
+        final CreateBillOfMaterialsMojo sut = new CreateBillOfMaterialsMojo(bomFile, projectMock);
+        sut.setWriteBinary(true);
+        sut.execute();
+        assertEquals(BillOfMaterials.parse(bomFile).getEntries().toString(),
+                BillOfMaterials.parse(binaryFile).getEntries().toString());
+    }
+
+    /**
+     * Test of execute method with an existing bill of materials holding a malformed digest.
+     */
+    @Test
+    public void testExecuteWriteBinaryChecksExistingDigestsBeforeWriting() throws Exception {
+        final File bomFile = new File("target/CreateBillOfMaterialsMojoTest/invalid/bill-of-materials.txt");
+        final File binaryFile = BinaryBillOfMaterials.binaryFileFor(bomFile);
+        final String existing = "# g:other:v user=other\nabc  other-v.pom\n";
+        Files.createParentDirs(bomFile);
+        Files.write(existing, bomFile, Charsets.UTF_8);
+        binaryFile.delete();
+        for (final WriteMode writeMode : Arrays.asList(WriteMode.APPEND, WriteMode.INCREMENTAL)) {
+            final MavenProject projectMock = createMinimalProject();
+            when(projectMock.getPackaging()).thenReturn("pom");
+            final CreateBillOfMaterialsMojo sut = new CreateBillOfMaterialsMojo(bomFile, projectMock);
+            sut.setWriteMode(writeMode, null);
+            sut.setWriteBinary(true);
+            try {
+                sut.execute();
+                fail("Expected MojoExecutionException");
+            } catch (MojoExecutionException e) {
+                assertEquals("java.io.IOException: Invalid digest of other-v.pom: abc", e.getMessage());
+            }
+            assertEquals(existing, Files.toString(bomFile, Charsets.UTF_8));
+            assertFalse(binaryFile.exists());
+        }
+    }
+
+    /**
+     * Test of execute and verify with a first algorithm whose digest length is shared with another algorithm.
+     */
+    @Test
+    public void testExecuteAndVerifyWithTaggedPrimaryDigest() throws Exception {
+        for (final String algorithm : Arrays.asList("SHA3-256", "SHA-224")) {
+            if (!Security.getAlgorithms("MessageDigest").contains(algorithm)) {
+                // SHA3-256 is only available starting with Java 9.
+                continue;
+            }
+            final File bomFile = new File("target/CreateBillOfMaterialsMojoTest/tagged-" + algorithm
+                    + "/bill-of-materials.txt");
+            bomFile.delete();
+            final MavenProject projectMock = createProjectWithAttachedArtifacts();
+            final CreateBillOfMaterialsMojo create = new CreateBillOfMaterialsMojo(bomFile, projectMock);
+            create.setAlgorithms(Arrays.asList(algorithm, FileHasher.SHA1));
+            create.setWriteBinary(true);
+            create.execute();
+            assertTrue(Files.toString(bomFile, Charsets.UTF_8).contains(
+                    DigestAlgorithms.toTag(algorithm) + " (a-v.pom) = "));
+            assertEquals(BillOfMaterials.parse(bomFile).getEntries().toString(),
+                    BillOfMaterials.parse(BinaryBillOfMaterials.binaryFileFor(bomFile)).getEntries().toString());
+            final MavenSession session = mock(MavenSession.class);
+            when(session.getProjects()).thenReturn(Collections.singletonList(projectMock));
+            final Log log = mock(Log.class);
+            final VerifyBillOfMaterialsMojo verify = new VerifyBillOfMaterialsMojo(bomFile, null, session);
+            verify.setLog(log);
+            verify.execute();
+            verify(log).info("Verified 3 files from " + bomFile);
+        }
+    }
+
+    /**
+     * Test of execute method converting to the binary format once for the reactor.
+     */
+    @Test
+    public void testExecuteWriteBinaryAfterLastModule() throws Exception {
+        final MavenProject parent = createMinimalProject();
+        when(parent.getPackaging()).thenReturn("pom");
+        final MavenProject child = createMinimalProject();
+        when(child.getArtifactId()).thenReturn("child");
+        when(child.getPackaging()).thenReturn("pom");
+        for (final WriteMode writeMode : Arrays.asList(WriteMode.APPEND, WriteMode.INCREMENTAL)) {
+            final File bomFile = new File("target/CreateBillOfMaterialsMojoTest/binary-" + writeMode
+                    + "/bill-of-materials.txt");
+            final File binaryFile = BinaryBillOfMaterials.binaryFileFor(bomFile);
+            bomFile.delete();
+            binaryFile.delete();
+            final MavenSession session = mock(MavenSession.class);
+            when(session.getRequest()).thenReturn(new DefaultMavenExecutionRequest());
+            when(session.getProjects()).thenReturn(Arrays.asList(parent, child));
+            final CreateBillOfMaterialsMojo childMojo = new CreateBillOfMaterialsMojo(bomFile, child);
+            childMojo.setWriteMode(writeMode, session);
+            childMojo.setWriteBinary(true);
+            childMojo.execute();
+            assertFalse(writeMode.toString(), binaryFile.exists());
+            final CreateBillOfMaterialsMojo parentMojo = new CreateBillOfMaterialsMojo(bomFile, parent);
+            parentMojo.setWriteMode(writeMode, session);
+            parentMojo.setWriteBinary(true);
+            parentMojo.execute();
+            assertEquals(2, BillOfMaterials.parse(binaryFile).getSections().size());
+        }
+    }
+
+    /**
+     * Test of execute method with WriteMode.INCREMENTAL without an existing bill of materials.
+     */
+    @Test
+    public void testExecuteIncrementalWithoutBillOfMaterials() throws Exception {
+        final File bomFile = new File("target/CreateBillOfMaterialsMojoTest/incremental-new/bill-of-materials.txt");
+        bomFile.delete();
+        final MavenProject projectMock = createMinimalProject();
+        when(projectMock.getPackaging()).thenReturn("pom");
+        final CreateBillOfMaterialsMojo sut = new CreateBillOfMaterialsMojo(bomFile, projectMock);
+        sut.setWriteMode(WriteMode.INCREMENTAL, null);
+        sut.execute();
+        assertEquals(1, BillOfMaterials.parse(bomFile).size());
+    }
+
+    /**
+     * Test of execute method with WriteMode.ASYNC, of class CreateBillOfMaterialsMojo.
+     */
+    @Test
+    public void testExecuteAsync() throws Exception {
+        final File bomFile = new File("target/CreateBillOfMaterialsMojoTest/async/bill-of-materials.txt");
+        bomFile.delete();
+        final MavenProject parent = createMinimalProject();
+        when(parent.getPackaging()).thenReturn("pom");
+        final MavenProject child = createMinimalProject();
+        when(child.getArtifactId()).thenReturn("child");
+        when(child.getPackaging()).thenReturn("pom");
+        final MavenSession session = mock(MavenSession.class);
+        when(session.getRequest()).thenReturn(mock(MavenExecutionRequest.class));
+        when(session.getProjects()).thenReturn(Arrays.asList(parent, child));
+        for (final MavenProject project : Arrays.asList(child, parent)) {
+            final CreateBillOfMaterialsMojo sut = new CreateBillOfMaterialsMojo(bomFile, project);
+            sut.setWriteMode(WriteMode.ASYNC, session);
+            sut.execute();
+        }
+        // the last module waits for the writer, so the file is complete now.
+        final BillOfMaterials billOfMaterials = BillOfMaterials.parse(bomFile);
+        assertEquals(2, billOfMaterials.getSections().size());
+        assertNotNull(billOfMaterials.getSection("g:child:v"));
+        assertNotNull(billOfMaterials.getSection("g:a:v"));
+    }
+
+    /**
+     * Test of execute method with a reproducible bill of materials, of class CreateBillOfMaterialsMojo.
+     */
+    @Test
+    public void testExecuteReproducible() throws Exception {
+        final File bomFile = new File("target/CreateBillOfMaterialsMojoTest/reproducible/bill-of-materials.txt");
+        final MavenProject parent = createProjectWithAttachedArtifacts();
+        final MavenProject child = createProjectWithAttachedArtifacts();
+        when(child.getArtifactId()).thenReturn("child");
+        final List<String> results = new ArrayList<>();
+        for (final List<MavenProject> finishingOrder : Arrays.asList(
+                Arrays.asList(parent, child), Arrays.asList(child, parent))) {
+            bomFile.delete();
+            final MavenSession session = mock(MavenSession.class);
+            when(session.getRequest()).thenReturn(mock(MavenExecutionRequest.class));
+            when(session.getProjects()).thenReturn(Arrays.asList(parent, child));
+            for (final MavenProject project : finishingOrder) {
+                final CreateBillOfMaterialsMojo sut = new CreateBillOfMaterialsMojo(bomFile, project);
+                sut.setWriteMode(WriteMode.APPEND, session);
+                sut.setReproducible(true);
+                sut.execute();
+            }
+            results.add(Files.toString(bomFile, Charsets.UTF_8));
+        }
+        assertEquals(results.get(0), results.get(1));
+        assertTrue(results.get(0), results.get(0).startsWith("# g:a:v\n"));
+        assertFalse(results.get(0), results.get(0).contains("user="));
+        assertEquals(Hashing.sha256().hashString(results.get(0), Charsets.UTF_8) + "  bill-of-materials.txt\n",
+                Files.toString(ReproducibleBillOfMaterials.fingerprintFileFor(bomFile), Charsets.UTF_8));
+    }
+
+    /**
+     * Test of execute method with WriteMode.AGGREGATE, of class CreateBillOfMaterialsMojo.
+     */
+    @Test
+    public void testExecuteAggregate() throws Exception {
+        final File bomFile = new File("target/CreateBillOfMaterialsMojoTest/aggregate/bill-of-materials.txt");
+        Files.createParentDirs(bomFile);
+        Files.write("# stale content of a previous build\n", bomFile, Charsets.UTF_8);
+        final MavenProject parent = createMinimalProject();
+        when(parent.getPackaging()).thenReturn("pom");
+        final MavenProject child = createMinimalProject();
+        when(child.getArtifactId()).thenReturn("child");
+        when(child.getPackaging()).thenReturn("pom");
+        final MavenSession session = mock(MavenSession.class);
+        when(session.getRequest()).thenReturn(mock(MavenExecutionRequest.class));
+        when(session.getProjects()).thenReturn(Arrays.asList(parent, child));
+        // modules finish in a different order than the reactor order.
+        final CreateBillOfMaterialsMojo childMojo = new CreateBillOfMaterialsMojo(bomFile, child);
+        childMojo.setWriteMode(WriteMode.AGGREGATE, session);
+        childMojo.execute();
+        assertEquals("# stale content of a previous build\n", Files.toString(bomFile, Charsets.UTF_8));
+        final CreateBillOfMaterialsMojo parentMojo = new CreateBillOfMaterialsMojo(bomFile, parent);
+        parentMojo.setWriteMode(WriteMode.AGGREGATE, session);
+        parentMojo.execute();
+        final List<String> lines = Files.readLines(bomFile, Charsets.UTF_8);
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(0).startsWith("# g:a:v user="));
+        assertEquals("da39a3ee5e6b4b0d3255bfef95601890afd80709  a-v.pom", lines.get(1));
+        assertTrue(lines.get(2).startsWith("# g:child:v user="));
+        assertEquals("da39a3ee5e6b4b0d3255bfef95601890afd80709  child-v.pom", lines.get(3));
+    }
+
+    /**
+     * Test of execute method with a module which never finishes, of class CreateBillOfMaterialsMojo.
+     */
+    @Test
+    public void testMissingModulesAreWrittenAtSessionEnd() throws Exception {
+        final MavenProject parent = createMinimalProject();
+        when(parent.getPackaging()).thenReturn("pom");
+        final MavenProject child = createMinimalProject();
+        when(child.getArtifactId()).thenReturn("child");
+        when(child.getPackaging()).thenReturn("pom");
+        for (final WriteMode writeMode : Arrays.asList(WriteMode.AGGREGATE, WriteMode.ASYNC)) {
+            final File bomFile = new File("target/CreateBillOfMaterialsMojoTest/session-end/" + writeMode
+                    + "/bill-of-materials.txt");
+            bomFile.delete();
+            final ExecutionListener previous = mock(ExecutionListener.class);
+            final MavenExecutionRequest request = new DefaultMavenExecutionRequest();
+            request.setExecutionListener(previous);
+            final MavenSession session = mock(MavenSession.class);
+            when(session.getRequest()).thenReturn(request);
+            when(session.getProjects()).thenReturn(Arrays.asList(parent, child));
+            final CreateBillOfMaterialsMojo childMojo = new CreateBillOfMaterialsMojo(bomFile, child);
+            childMojo.setWriteMode(writeMode, session);
+            childMojo.setMetrics(true, new File(bomFile.getParentFile(), "metrics.json"), session);
+            childMojo.execute();
+            // the parent fails, so only the end of the session writes the bill of materials.
+            request.getExecutionListener().sessionEnded(null);
+            final BillOfMaterials billOfMaterials = BillOfMaterials.parse(bomFile);
+            assertEquals(writeMode.toString(), 1, billOfMaterials.getSections().size());
+            assertNotNull(billOfMaterials.getSection("g:child:v"));
+            verify(previous).sessionEnded(null);
+        }
+    }
+
+    /**
+     * Test of write method from many threads, of class CreateBillOfMaterialsMojo.
+     */
+    @Test
+    public void testConcurrentWritesDoNotInterleave() throws Exception {
+        final File bomFile = new File("target/CreateBillOfMaterialsMojoTest/concurrent/bill-of-materials.txt");
+        bomFile.delete();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                final String record = String.format("# g:a%1$d:v user=wwhite\nline1-%1$d\nline2-%1$d\n", i);
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        new CreateBillOfMaterialsMojo(bomFile, null).write(record);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        final List<String> lines = Files.readLines(bomFile, Charsets.UTF_8);
+        assertEquals(64 * 3, lines.size());
+        for (int i = 0; i < lines.size(); i += 3) {
+            final String number = lines.get(i).replaceAll("# g:a(\\d+):v user=wwhite", "$1");
+            assertEquals("line1-" + number, lines.get(i + 1));
+            assertEquals("line2-" + number, lines.get(i + 2));
+        }
+    }
+
+    /**
+     * Test of calculateHashesInParallel method, of class CreateBillOfMaterialsMojo.
+     */
+    @Test(expected = IOException.class)
+    public void testCalculateHashesInParallelIOException() throws Exception {
+        final MavenProject projectMock = createMinimalProject();
+        final CreateBillOfMaterialsMojo sut = new CreateBillOfMaterialsMojo(null, projectMock) {
+            @Override
+            void addHashEntryForPom(List<String> hashBaseNames) throws IOException {
+                throw new IOException("Oops");
+            }
+        };
+        sut.setHashingThreads(2);
+        sut.calculateHashesInParallel(Arrays.asList(new File(EMPTY_FILE_FOR_SHA1)),
+                new HashingFailures(HashingErrorPolicy.FAIL_FAST));
+    }
+
+    /**
+     * Test of execute method reporting every file which could not be hashed, of class CreateBillOfMaterialsMojo.
+     */
+    @Test
+    public void testExecuteCollectAllReportsEveryFailure() throws Exception {
+        final MavenProject projectMock = createMinimalProject();
+        final List<Artifact> attachedArtifacts = new ArrayList<>();
+        final File directory = new File("target/CreateBillOfMaterialsMojoTest/failures");
+        directory.mkdirs();
+        for (final String name : Arrays.asList("broken-1.jar", "ok.jar", "broken-2.jar")) {
+            final File file = new File(directory, name);
+            Files.write(name, file, Charsets.UTF_8);
+            final Artifact artifact = mock(Artifact.class);
+            when(artifact.getFile()).thenReturn(file);
+            attachedArtifacts.add(artifact);
+        }
+        when(projectMock.getAttachedArtifacts()).thenReturn(attachedArtifacts);
+        when(projectMock.getPackaging()).thenReturn("pom");
+        for (final int threads : new int[] {1, 4}) {
+            final CreateBillOfMaterialsMojo sut = createCapturingMojo(projectMock, new StringBuilder());
+            sut.setFileHasher(new FailingFileHasher(null));
+            sut.setChecksumPolicy(ChecksumPolicy.IGNORE, 0);
+            sut.setHashingErrorPolicy(HashingErrorPolicy.COLLECT_ALL);
+            sut.setHashingThreads(threads);
+            try {
+                sut.execute();
+                fail("Expected MojoExecutionException");
+            } catch (MojoExecutionException e) {
+                final String message = e.getMessage();
+                assertTrue(message, message.contains("Could not hash 2 files:"));
+                assertTrue(message, message.indexOf("broken-1.jar: java.io.IOException: Oops")
+                        < message.indexOf("broken-2.jar: java.io.IOException: Oops"));
+                assertFalse(message, message.contains("ok.jar"));
+                assertEquals(2, e.getCause().getSuppressed().length);
+            }
+        }
+    }
+
+    /**
+     * Test of calculateHashesInParallel method cancelling running calculations, of class CreateBillOfMaterialsMojo.
+     */
+    @Test
+    public void testCalculateHashesInParallelFailFastCancels() throws Exception {
+        final File directory = new File("target/CreateBillOfMaterialsMojoTest/failfast");
+        directory.mkdirs();
+        final File slow = new File(directory, "slow.jar");
+        final File broken = new File(directory, "broken.jar");
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final CreateBillOfMaterialsMojo sut = new CreateBillOfMaterialsMojo(null, createMinimalProject());
+        sut.setFileHasher(new FailingFileHasher(interrupted));
+        sut.setHashingThreads(2);
+        try {
+            sut.calculateHashesInParallel(
+                    Arrays.asList(slow, broken), new HashingFailures(HashingErrorPolicy.FAIL_FAST));
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Oops broken.jar", e.getMessage());
+        }
+        assertTrue("Expected slow.jar to be interrupted", interrupted.await(10, TimeUnit.SECONDS));
+    }
+
     /**
      * Test of getListOfArtifactsAsFiles method, of class CreateBillOfMaterialsMojo.
      */
@@ -115,8 +827,8 @@ public class CreateBillOfMaterialsMojoTest {
         final List<String> hashBaseNames = Arrays.asList("line1", "line2");
         final StringBuilder result = new StringBuilder();
         CreateBillOfMaterialsMojo sut = new CreateBillOfMaterialsMojo(null, projectMock) {
-            void write(final String content) {
-                result.append(content);
+            void write(final String projectComment, final List<String> hashBaseNames) {
+                result.append(toSection(projectComment, hashBaseNames));
             }
         };
         sut.writeResults(hashBaseNames);
@@ -141,17 +853,19 @@ public class CreateBillOfMaterialsMojoTest {
     }
 
     @Test
-    public void testToBomString() {
-        final ToBomStringFunction sut = new ToBomStringFunction(sha1);
+    public void testToBomString() throws IOException {
+        final CreateBillOfMaterialsMojo sut = new CreateBillOfMaterialsMojo();
+        sut.setFileHasher(sha1);
         final File fileForWhichWeWantToCalculateSha1 = new File(EMPTY_FILE_FOR_SHA1);
-        assertEquals("da39a3ee5e6b4b0d3255bfef95601890afd80709  sha1-test-dummy.txt", sut.apply(fileForWhichWeWantToCalculateSha1));
+        assertEquals("da39a3ee5e6b4b0d3255bfef95601890afd80709  sha1-test-dummy.txt", sut.toBomString(fileForWhichWeWantToCalculateSha1));
     }
 
-    @Test(expected = IllegalArgumentException.class)
-    public void testToBomStringFail() {
-        final ToBomStringFunction sut = new ToBomStringFunction(sha1);
+    @Test(expected = IOException.class)
+    public void testToBomStringFail() throws IOException {
+        final CreateBillOfMaterialsMojo sut = new CreateBillOfMaterialsMojo();
+        sut.setFileHasher(sha1);
         final File nonExistingFileForWhichWeWantToCalculateSha1 = new File("I DO NOT EXIST");
-        sut.apply(nonExistingFileForWhichWeWantToCalculateSha1);
+        sut.toBomString(nonExistingFileForWhichWeWantToCalculateSha1);
     }
 
     @Test
@@ -176,6 +890,154 @@ public class CreateBillOfMaterialsMojoTest {
         sut.write("DOES_NOT_MATTER");
     }
 
+    /**
+     * Test of calculateHashesInParallel method, fail-fast of one module must not fail another module waiting for a
+     * shared file.
+     */
+    @Test
+    public void testFailFastDoesNotFailOtherModules() throws Exception {
+        final File directory = new File("target/CreateBillOfMaterialsMojoTest/failfast-shared");
+        directory.mkdirs();
+        final File shared = new File(directory, "slow-shared.jar");
+        Files.write("shared", shared, Charsets.UTF_8);
+        final File broken = new File(directory, "broken.jar");
+        Files.write("broken", broken, Charsets.UTF_8);
+        final SharedFileHasher.Registry registry = new SharedFileHasher.Registry();
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final CountDownLatch otherModuleWaiting = new CountDownLatch(1);
+        final CreateBillOfMaterialsMojo failing = new CreateBillOfMaterialsMojo(null, createMinimalProject());
+        final FailingFileHasher failingFileHasher = new FailingFileHasher(interrupted) {
+            @Override
+            public Map<String, HashCode> hash(File file) throws IOException {
+                if (file.equals(broken)) {
+                    try {
+                        otherModuleWaiting.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException("Interrupted");
+                    }
+                }
+                return super.hash(file);
+            }
+        };
+        failing.setFileHasher(new SharedFileHasher(failingFileHasher, registry));
+        failing.setHashingThreads(2);
+        final CreateBillOfMaterialsMojo other = new CreateBillOfMaterialsMojo(null, createMinimalProject());
+        other.setFileHasher(new SharedFileHasher(sha1, registry));
+        other.setHashingThreads(2);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<List<String>> failed = executor.submit(new Callable<List<String>>() {
+                @Override
+                public List<String> call() throws IOException {
+                    return failing.calculateHashesInParallel(
+                            Arrays.asList(shared, broken), new HashingFailures(HashingErrorPolicy.FAIL_FAST));
+                }
+            });
+            // the failing module owns the shared file.
+            assertTrue(failingFileHasher.slowStarted.await(10, TimeUnit.SECONDS));
+            final Future<List<String>> succeeded = executor.submit(new Callable<List<String>>() {
+                @Override
+                public List<String> call() throws IOException {
+                    return other.calculateHashesInParallel(
+                            Collections.singletonList(shared), new HashingFailures(HashingErrorPolicy.FAIL_FAST));
+                }
+            });
+            // give the other module time to wait for the shared file.
+            Thread.sleep(200);
+            otherModuleWaiting.countDown();
+            try {
+                failed.get(10, TimeUnit.SECONDS);
+                fail("Expected IOException");
+            } catch (ExecutionException e) {
+                assertEquals("Oops broken.jar", e.getCause().getMessage());
+            }
+            assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+            assertEquals(Hashing.sha1().hashString("shared", Charsets.UTF_8) + "  slow-shared.jar",
+                    succeeded.get(10, TimeUnit.SECONDS).get(0));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Fails for files starting with <tt>broken</tt>, blocks for files starting with <tt>slow</tt> until interrupted.
+     * When interrupts are awaited, failing waits until hashing a slow file started, so it is running when cancelled.
+     */
+    private static class FailingFileHasher implements FileHasher {
+
+        private final CountDownLatch interrupted;
+
+        private final CountDownLatch slowStarted = new CountDownLatch(1);
+
+        FailingFileHasher(CountDownLatch interrupted) {
+            this.interrupted = interrupted;
+        }
+
+        @Override
+        public Map<String, HashCode> hash(File file) throws IOException {
+            try {
+                if (file.getName().startsWith("broken")) {
+                    if (interrupted != null) {
+                        slowStarted.await(10, TimeUnit.SECONDS);
+                    }
+                    throw new IOException("Oops " + file.getName());
+                }
+                if (file.getName().startsWith("slow")) {
+                    slowStarted.countDown();
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                }
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new InterruptedIOException("Interrupted");
+            }
+            return Collections.singletonMap(SHA1, HashCode.fromString("da39a3ee5e6b4b0d3255bfef95601890afd80709"));
+        }
+
+        @Override
+        public List<String> getAlgorithms() {
+            return Collections.singletonList(SHA1);
+        }
+    }
+
+    private CreateBillOfMaterialsMojo createCapturingMojo(MavenProject projectMock, final StringBuilder result) {
+        return new CreateBillOfMaterialsMojo(null, projectMock) {
+            @Override
+            void write(final String projectComment, final List<String> hashBaseNames) {
+                result.append(toSection(projectComment, hashBaseNames));
+            }
+        };
+    }
+
+    private MavenProject createProjectWithAttachedArtifacts() {
+        final MavenProject projectMock = createMinimalProject();
+        final List<Artifact> attachedArtifacts = new ArrayList<>();
+        for (String resource : Arrays.asList("/ReadBillOfMaterialsMojoTest/bill-of-materials.txt", "/sha1-test-dummy.txt")) {
+            final Artifact artifact = mock(Artifact.class);
+            when(artifact.getFile()).thenReturn(new File(CreateBillOfMaterialsMojoTest.class.getResource(resource).getFile()));
+            attachedArtifacts.add(artifact);
+        }
+        when(projectMock.getAttachedArtifacts()).thenReturn(attachedArtifacts);
+        when(projectMock.getPackaging()).thenReturn("pom");
+        return projectMock;
+    }
+
+    private static Artifact createDependency(File localRepository, String artifactId, String scope, String sha1)
+            throws IOException {
+        final File file = new File(localRepository, "g/" + artifactId + "/1.0/" + artifactId + "-1.0.jar");
+        Files.createParentDirs(file);
+        Files.write("", file, Charsets.UTF_8);
+        if (sha1 != null) {
+            Files.write(sha1 + "  " + file.getName() + "\n", new File(file.getPath() + ".sha1"), Charsets.UTF_8);
+        }
+        final Artifact artifact = mock(Artifact.class);
+        when(artifact.getGroupId()).thenReturn("g");
+        when(artifact.getArtifactId()).thenReturn(artifactId);
+        when(artifact.getBaseVersion()).thenReturn("1.0");
+        when(artifact.getScope()).thenReturn(scope);
+        when(artifact.getFile()).thenReturn(file);
+        return artifact;
+    }
+
     private MavenProject createMinimalProject() {
         final MavenProject projectMock = mock(MavenProject.class);
         when(projectMock.getGroupId()).thenReturn("g");
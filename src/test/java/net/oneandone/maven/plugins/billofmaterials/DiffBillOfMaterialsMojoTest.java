@@ -0,0 +1,96 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoFailureException;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.mockito.Mockito.*;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class DiffBillOfMaterialsMojoTest {
+
+    private static final File BOM_FILE = new File(
+            DiffBillOfMaterialsMojoTest.class.getResource("/BillOfMaterialsTest/bill-of-materials.txt").getFile());
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File diffReport;
+
+    private File diffJsonReport;
+
+    private MavenSession session;
+
+    @Before
+    public void createSession() throws IOException {
+        diffReport = new File(temporaryFolder.getRoot(), "target/diff.txt");
+        diffJsonReport = new File(temporaryFolder.getRoot(), "target/diff.json");
+        final ArtifactRepository localRepository = mock(ArtifactRepository.class);
+        when(localRepository.getBasedir()).thenReturn(temporaryFolder.newFolder("repository").getPath());
+        session = mock(MavenSession.class);
+        when(session.getLocalRepository()).thenReturn(localRepository);
+    }
+
+    @Test
+    public void testWritesReports() throws Exception {
+        final File changed = temporaryFolder.newFile("changed.txt");
+        Files.write(Files.toString(BOM_FILE, Charsets.UTF_8).replace("df633b96", "00000000"), changed, Charsets.UTF_8);
+        new DiffBillOfMaterialsMojo(BOM_FILE.getPath(), changed.getPath(), diffReport, diffJsonReport, session)
+                .execute();
+        assertTrue(Files.toString(diffReport, Charsets.UTF_8).endsWith("0 added, 0 removed, 1 changed, 6 unchanged\n"));
+        assertTrue(Files.toString(diffJsonReport, Charsets.UTF_8).startsWith(
+                "{\n  \"added\": 0,\n  \"removed\": 0,\n  \"changed\": 1,\n  \"unchanged\": 6,\n"));
+    }
+
+    @Test
+    public void testResolvesCoordinatesInLocalRepository() throws Exception {
+        final File artifact = new File(temporaryFolder.getRoot(),
+                "repository/company/parent/1.0/parent-1.0-bom.txt");
+        Files.createParentDirs(artifact);
+        Files.copy(BOM_FILE, artifact);
+        final DiffBillOfMaterialsMojo sut = new DiffBillOfMaterialsMojo(
+                "company:parent:1.0:txt:bom", BOM_FILE.getPath(), diffReport, diffJsonReport, session);
+        sut.setOptions(true, true);
+        sut.execute();
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnresolvedCoordinates() throws Exception {
+        new DiffBillOfMaterialsMojo(null, null, diffReport, diffJsonReport, session).locate("company:parent:1.0:txt");
+    }
+
+    @Test(expected = MojoFailureException.class)
+    public void testFailOnDiff() throws Exception {
+        final File empty = temporaryFolder.newFile("empty.txt");
+        final DiffBillOfMaterialsMojo sut = new DiffBillOfMaterialsMojo(
+                BOM_FILE.getPath(), empty.getPath(), diffReport, diffJsonReport, session);
+        sut.setOptions(true, true);
+        sut.execute();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import java.security.Security;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class DigestAlgorithmsTest {
+
+    private static final List<String> ALGORITHMS = Arrays.asList("MD2", "MD5", "SHA-1", "SHA-224", "SHA-256",
+            "SHA-384", "SHA-512", "SHA-512/224", "SHA-512/256", "SHA3-224", "SHA3-256", "SHA3-384", "SHA3-512");
+
+    @Test
+    public void testTags() {
+        assertEquals("SHA1", DigestAlgorithms.toTag("SHA-1"));
+        assertEquals("SHA256", DigestAlgorithms.toTag("SHA-256"));
+        assertEquals("SHA256", DigestAlgorithms.toTag("sha-256"));
+        assertEquals("SHA3-256", DigestAlgorithms.toTag("SHA3-256"));
+        assertEquals("SHA512t256", DigestAlgorithms.toTag("SHA-512/256"));
+        assertEquals("SHA-512", DigestAlgorithms.fromTag("sha512"));
+        assertEquals("SHA-512/256", DigestAlgorithms.fromTag("SHA512T256"));
+    }
+
+    @Test
+    public void testRoundTripOfKnownAlgorithms() {
+        for (final String algorithm : ALGORITHMS) {
+            assertEquals(algorithm, DigestAlgorithms.fromTag(DigestAlgorithms.toTag(algorithm)));
+        }
+    }
+
+    @Test
+    public void testRoundTripOfAlgorithmsOfTheProviders() {
+        for (final String algorithm : Security.getAlgorithms("MessageDigest")) {
+            final String tag = DigestAlgorithms.toTag(algorithm);
+            assertTrue(tag, tag.matches("[A-Z][A-Za-z0-9-]*"));
+            assertEquals(algorithm, DigestAlgorithms.fromTag(tag).toUpperCase());
+        }
+    }
+
+    @Test
+    public void testUnknownAlgorithmIsItsOwnTag() {
+        assertEquals("WHIRLPOOL", DigestAlgorithms.toTag("WHIRLPOOL"));
+        assertEquals("WHIRLPOOL", DigestAlgorithms.fromTag("WHIRLPOOL"));
+    }
+}
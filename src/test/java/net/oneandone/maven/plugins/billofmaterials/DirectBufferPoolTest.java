@@ -0,0 +1,62 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class DirectBufferPoolTest {
+
+    @Test
+    public void testReusesDirectBuffers() {
+        final DirectBufferPool sut = new DirectBufferPool(2, 1024);
+        for (int i = 0; i < 100; i++) {
+            final ByteBuffer buffer = sut.acquire();
+            assertTrue(buffer.isDirect());
+            assertEquals(1024, buffer.remaining());
+            buffer.put((byte) 1);
+            sut.release(buffer);
+        }
+        assertEquals(1, sut.getAllocated());
+    }
+
+    @Test
+    public void testFallsBackToHeapBuffersWhenAllAreInUse() {
+        final DirectBufferPool sut = new DirectBufferPool(2, 1024);
+        final List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            buffers.add(sut.acquire());
+        }
+        assertTrue(buffers.get(0).isDirect());
+        assertTrue(buffers.get(1).isDirect());
+        assertFalse(buffers.get(2).isDirect());
+        assertEquals(2, sut.getAllocated());
+        for (final ByteBuffer buffer : buffers) {
+            sut.release(buffer);
+        }
+        assertTrue(sut.acquire().isDirect());
+        assertTrue(sut.acquire().isDirect());
+        assertFalse(sut.acquire().isDirect());
+        assertEquals(2, sut.getAllocated());
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.mockito.Mockito.*;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class HashBillOfMaterialsMojoTest {
+
+    private static final List<String> SHA1 = Collections.singletonList(FileHasher.SHA1);
+
+    private static final Map<String, HashCode> HASHES = ImmutableMap.of(
+            FileHasher.SHA1, HashCode.fromString("0123456789012345678901234567890123456789"));
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testCreateCollectsEarlyHashes() throws Exception {
+        final File pom = temporaryFolder.newFile("pom.xml");
+        final File jar = temporaryFolder.newFile("a-v.jar");
+        Files.write("jar", jar, Charsets.UTF_8);
+        final MavenProject project = createProject(pom, jar);
+        final MavenSession session = mock(MavenSession.class);
+        when(session.getRequest()).thenReturn(mock(MavenExecutionRequest.class));
+        when(session.getProjects()).thenReturn(Collections.singletonList(project));
+        new HashBillOfMaterialsMojo(project, session).execute();
+        final EarlyHashing earlyHashing = ReactorScope.of(session, project).getIfPresent(EarlyHashing.class.getName());
+        assertNotNull(earlyHashing.get(SHA1, jar));
+        assertNotNull(earlyHashing.get(SHA1, pom));
+        final StringBuilder result = new StringBuilder();
+        final CreateBillOfMaterialsMojo create = new CreateBillOfMaterialsMojo(null, project) {
+            @Override
+            void write(final String projectComment, final List<String> hashBaseNames) {
+                result.append(toSection(projectComment, hashBaseNames));
+            }
+        };
+        create.setWriteMode(WriteMode.APPEND, session);
+        // every file was hashed in the background already.
+        final FileHasher failingFileHasher = mock(FileHasher.class);
+        when(failingFileHasher.getAlgorithms()).thenReturn(SHA1);
+        when(failingFileHasher.hash(any(File.class))).thenThrow(new IOException("Should not be called"));
+        create.setFileHasher(failingFileHasher);
+        create.execute();
+        assertTrue(result.toString(), result.toString().endsWith(
+                "f92e777f4341930bad9b2422283c4680d00dbc06  a-v.jar\n"
+                + "da39a3ee5e6b4b0d3255bfef95601890afd80709  a-v.pom\n"));
+    }
+
+    @Test
+    public void testSkipsMissingMainArtifactAndSharesThrottledHashes() throws Exception {
+        final File pom = temporaryFolder.newFile("pom.xml");
+        // bound before package, the main artifact has no file yet.
+        final MavenProject project = createProject(pom, null);
+        final MavenSession session = mock(MavenSession.class);
+        when(session.getRequest()).thenReturn(mock(MavenExecutionRequest.class));
+        when(session.getProjects()).thenReturn(Collections.singletonList(project));
+        final HashBillOfMaterialsMojo sut = new HashBillOfMaterialsMojo(project, session);
+        sut.setThrottling(1, 0);
+        sut.execute();
+        final EarlyHashing earlyHashing = ReactorScope.of(session, project).getIfPresent(EarlyHashing.class.getName());
+        assertNotNull(earlyHashing.get(SHA1, pom));
+        // the same limits and shared digests as the create goal.
+        assertEquals(1, CreateBillOfMaterialsMojo.getThrottlingLimits(session, project, 1, 0).size());
+        assertEquals(1, CreateBillOfMaterialsMojo.getSharedHashes(session, project).size());
+    }
+
+    @Test
+    public void testChangedFileIsHashedAgain() throws IOException {
+        final File jar = temporaryFolder.newFile("a-v.jar");
+        final FileHasher fileHasher = mock(FileHasher.class);
+        when(fileHasher.getAlgorithms()).thenReturn(SHA1);
+        when(fileHasher.hash(jar)).thenReturn(HASHES);
+        final EarlyHashing sut = new EarlyHashing(MoreExecutors.newDirectExecutorService());
+        assertTrue(sut.submit(fileHasher, jar));
+        assertFalse(sut.submit(fileHasher, jar));
+        verify(fileHasher, times(1)).hash(jar);
+        final EarlyHashingFileHasher earlyHashingFileHasher = new EarlyHashingFileHasher(fileHasher, sut);
+        assertEquals(HASHES, earlyHashingFileHasher.hash(jar));
+        verify(fileHasher, times(1)).hash(jar);
+        Files.write("changed", jar, Charsets.UTF_8);
+        assertNull(sut.get(SHA1, jar));
+        assertNull(sut.get(Collections.singletonList("SHA-256"), jar));
+        assertEquals(HASHES, earlyHashingFileHasher.hash(jar));
+        verify(fileHasher, times(2)).hash(jar);
+    }
+
+    @Test
+    public void testFailedHashIsHashedAgain() throws IOException {
+        final File jar = temporaryFolder.newFile("a-v.jar");
+        final FileHasher fileHasher = mock(FileHasher.class);
+        when(fileHasher.getAlgorithms()).thenReturn(SHA1);
+        when(fileHasher.hash(jar)).thenThrow(new IOException("Oops"));
+        final EarlyHashing sut = new EarlyHashing(MoreExecutors.newDirectExecutorService());
+        sut.submit(fileHasher, jar);
+        assertNull(sut.get(SHA1, jar));
+    }
+
+    private MavenProject createProject(File pom, File jar) {
+        final MavenProject project = mock(MavenProject.class);
+        when(project.getGroupId()).thenReturn("g");
+        when(project.getArtifactId()).thenReturn("a");
+        when(project.getVersion()).thenReturn("v");
+        when(project.getFile()).thenReturn(pom);
+        when(project.getPackaging()).thenReturn("jar");
+        final Artifact artifact = mock(Artifact.class);
+        when(artifact.getFile()).thenReturn(jar);
+        when(project.getArtifact()).thenReturn(artifact);
+        when(project.getAttachedArtifacts()).thenReturn(new ArrayList<Artifact>());
+        return project;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.mockito.Mockito.*;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class HashCacheTest {
+
+    private static final HashCode HASH = HashCode.fromString("da39a3ee5e6b4b0d3255bfef95601890afd80709");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File cacheFile;
+
+    private File artifact;
+
+    @Before
+    public void createArtifact() throws IOException {
+        cacheFile = new File(temporaryFolder.getRoot(), "cache/hash-cache.txt");
+        artifact = temporaryFolder.newFile("a-v.jar");
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        final HashCache sut = new HashCache(cacheFile, 10);
+        sut.load();
+        sut.put(FileHasher.SHA1, HashCache.FileState.of(artifact), HASH);
+        sut.save();
+        final HashCache loaded = new HashCache(cacheFile, 10);
+        loaded.load();
+        assertEquals(HASH, loaded.get(FileHasher.SHA1, HashCache.FileState.of(artifact)));
+        assertNull(loaded.get("SHA-256", HashCache.FileState.of(artifact)));
+    }
+
+    @Test
+    public void testChangedFileIsNotFound() throws IOException {
+        final HashCache sut = new HashCache(cacheFile, 10);
+        sut.put(FileHasher.SHA1, HashCache.FileState.of(artifact), HASH);
+        Files.write("changed", artifact, Charsets.UTF_8);
+        assertNull(sut.get(FileHasher.SHA1, HashCache.FileState.of(artifact)));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws IOException {
+        final HashCache sut = new HashCache(cacheFile, 2);
+        final File second = temporaryFolder.newFile("b-v.jar");
+        final File third = temporaryFolder.newFile("c-v.jar");
+        sut.put(FileHasher.SHA1, HashCache.FileState.of(artifact), HASH);
+        sut.put(FileHasher.SHA1, HashCache.FileState.of(second), HASH);
+        assertEquals(HASH, sut.get(FileHasher.SHA1, HashCache.FileState.of(artifact)));
+        sut.put(FileHasher.SHA1, HashCache.FileState.of(third), HASH);
+        assertEquals(2, sut.size());
+        assertEquals(HASH, sut.get(FileHasher.SHA1, HashCache.FileState.of(artifact)));
+        assertNull(sut.get(FileHasher.SHA1, HashCache.FileState.of(second)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptCacheFile() throws IOException {
+        Files.createParentDirs(cacheFile);
+        Files.write("SHA-1\tnot a hash\n", cacheFile, Charsets.UTF_8);
+        new HashCache(cacheFile, 10).load();
+    }
+
+    @Test
+    public void testCachingFileHasher() throws IOException {
+        final FileHasher delegate = mock(FileHasher.class);
+        final Map<String, HashCode> hashes = ImmutableMap.of(FileHasher.SHA1, HASH);
+        when(delegate.getAlgorithms()).thenReturn(Collections.singletonList(FileHasher.SHA1));
+        when(delegate.hash(artifact)).thenReturn(hashes);
+        final HashCache hashCache = new HashCache(cacheFile, 10);
+        final CachingFileHasher sut = new CachingFileHasher(delegate, hashCache, false);
+        assertEquals(hashes, sut.hash(artifact));
+        assertEquals(hashes, sut.hash(artifact));
+        verify(delegate, times(1)).hash(artifact);
+        final CachingFileHasher forced = new CachingFileHasher(delegate, hashCache, true);
+        assertEquals(hashes, forced.hash(artifact));
+        verify(delegate, times(2)).hash(artifact);
+    }
+
+    @Test
+    public void testCachingFileHasherDelegatesWhenOneAlgorithmIsMissing() throws IOException {
+        final FileHasher delegate = mock(FileHasher.class);
+        final HashCode sha256 = Files.asByteSource(artifact).hash(Hashing.sha256());
+        final Map<String, HashCode> hashes = ImmutableMap.of(FileHasher.SHA1, HASH, "SHA-256", sha256);
+        when(delegate.getAlgorithms()).thenReturn(Arrays.asList(FileHasher.SHA1, "SHA-256"));
+        when(delegate.hash(artifact)).thenReturn(hashes);
+        final HashCache hashCache = new HashCache(cacheFile, 10);
+        hashCache.put(FileHasher.SHA1, HashCache.FileState.of(artifact), HASH);
+        final CachingFileHasher sut = new CachingFileHasher(delegate, hashCache, false);
+        assertEquals(hashes, sut.hash(artifact));
+        assertEquals(hashes, sut.hash(artifact));
+        verify(delegate, times(1)).hash(artifact);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class HashingExecutorsTest {
+
+    @Test
+    public void testNewHashingExecutorLimitsConcurrency() throws Exception {
+        assertEquals(3, runConcurrently(HashingExecutors.newHashingExecutor(true, 3, 20)));
+    }
+
+    @Test
+    public void testNewHashingExecutorWithoutVirtualThreads() throws Exception {
+        assertEquals(2, runConcurrently(HashingExecutors.newHashingExecutor(false, 2, 20)));
+    }
+
+    @Test
+    public void testNewHashingExecutorUsesVirtualThreadsWhenSupported() throws Exception {
+        final ListeningExecutorService sut = HashingExecutors.newHashingExecutor(true, 1, 1);
+        try {
+            final String threadName = sut.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return Thread.currentThread().getName();
+                }
+            }).get();
+            // virtual threads are unnamed by default.
+            assertEquals(HashingExecutors.isVirtualThreadsSupported(), threadName.isEmpty());
+        } finally {
+            sut.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs twenty tasks on the executor and shuts it down.
+     *
+     * @return the maximum number of tasks running at the same time.
+     */
+    private int runConcurrently(ListeningExecutorService sut) throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maximum = new AtomicInteger();
+        try {
+            final List<ListenableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(sut.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws InterruptedException {
+                        final int current = running.incrementAndGet();
+                        while (true) {
+                            final int seen = maximum.get();
+                            if (seen >= current || maximum.compareAndSet(seen, current)) {
+                                break;
+                            }
+                        }
+                        Thread.sleep(10);
+                        running.decrementAndGet();
+                        return null;
+                    }
+                }));
+            }
+            for (final ListenableFuture<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            sut.shutdownNow();
+        }
+        return maximum.get();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.maven.project.MavenProject;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import static org.mockito.Mockito.*;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class HashingMetricsTest {
+
+    @Test
+    public void testSlowestAndFinish() {
+        final MavenProject first = createProject("first");
+        final MavenProject second = createProject("second");
+        final HashingMetrics sut = new HashingMetrics(Arrays.asList(first, second));
+        sut.record("g:first:v", new File("fast.jar"), 1024, 1000, HashingMetrics.CacheStatus.DISABLED);
+        sut.record("g:second:v", new File("slow.jar"), 1024, 5000, HashingMetrics.CacheStatus.MISS);
+        sut.record("g:second:v", new File("cached.jar"), 0, 10, HashingMetrics.CacheStatus.HIT);
+        final List<HashingMetrics.Sample> slowest = sut.getSlowest(2);
+        assertEquals(2, slowest.size());
+        assertEquals(new File("slow.jar"), slowest.get(0).getFile());
+        assertEquals(new File("fast.jar"), slowest.get(1).getFile());
+        assertEquals(2, sut.getSamples("g:second:v").size());
+        assertFalse(sut.finish(second));
+        assertFalse(sut.finish(second));
+        assertTrue(sut.finish(first));
+    }
+
+    @Test
+    public void testToJson() {
+        final HashingMetrics sut = new HashingMetrics(Arrays.asList(createProject("first")));
+        sut.record("g:first:v", new File("with \"quotes\".jar"), 1024 * 1024, 1000 * 1000 * 1000,
+                HashingMetrics.CacheStatus.MISS);
+        final String json = sut.toJson(10);
+        assertTrue(json, json.contains("\"megabytesPerSecond\": 1.000,"));
+        assertTrue(json, json.contains("\"file\": \"with \\\"quotes\\\".jar\""));
+        assertTrue(json, json.contains("\"cacheMisses\": 1,"));
+    }
+
+    @Test
+    public void testMegabytesPerSecond() {
+        assertEquals(0, HashingMetrics.megabytesPerSecond(1024, 0), 0.0);
+        assertEquals(2, HashingMetrics.megabytesPerSecond(2 * 1024 * 1024, 1000 * 1000 * 1000), 0.001);
+    }
+
+    private MavenProject createProject(String artifactId) {
+        final MavenProject project = mock(MavenProject.class);
+        when(project.getGroupId()).thenReturn("g");
+        when(project.getArtifactId()).thenReturn(artifactId);
+        when(project.getVersion()).thenReturn("v");
+        return project;
+    }
+}
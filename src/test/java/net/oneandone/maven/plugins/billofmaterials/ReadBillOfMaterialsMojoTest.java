@@ -15,14 +15,21 @@
  */
 package net.oneandone.maven.plugins.billofmaterials;
 
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Properties;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
 import static org.junit.Assert.*;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import static org.mockito.Mockito.*;
 
 /**
@@ -35,6 +42,9 @@ public class ReadBillOfMaterialsMojoTest {
     final MavenProject mockedProject = mock(MavenProject.class);
     final Properties properties = new Properties();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     /**
      * Test of execute method, of class ReadBillOfMaterialsMojo.
      */
@@ -55,10 +65,59 @@ public class ReadBillOfMaterialsMojoTest {
     public void testExecuteBOMFound() throws MojoExecutionException, MojoFailureException {
         ReadBillOfMaterialsMojo instance = createReadBillOfMaterialsMojo(
                 "target/test-classes/ReadBillOfMaterialsMojoTest/bill-of-materials.txt");
+        instance.setProperties(true, Collections.<String>emptyList());
         instance.execute();
         assertTrue(properties.getProperty("qaBillOfMaterials").startsWith("# g:a:v "));
     }
+
+    /**
+     * Test of execute method, of class ReadBillOfMaterialsMojo.
+     */
+    @Test
+    public void testExecuteBOMFoundWithoutContent() throws MojoExecutionException, MojoFailureException {
+        ReadBillOfMaterialsMojo instance = createReadBillOfMaterialsMojo(
+                "target/test-classes/ReadBillOfMaterialsMojoTest/bill-of-materials.txt");
+        instance.setProperties(false, Arrays.asList("g:a:v", "g:unknown:v"));
+        instance.execute();
+        assertNull(properties.getProperty("qaBillOfMaterials"));
+        assertEquals("1", properties.getProperty("qaBillOfMaterials.entries"));
+        assertEquals("1", properties.getProperty("qaBillOfMaterials.modules"));
+        assertEquals("ca361061f7d17b50ce0f49321e5a8bb02ac004d2", properties.getProperty("qaBillOfMaterials.sha1"));
+        assertEquals("# g:a:v user=mirko\nda39a3ee5e6b4b0d3255bfef95601890afd80709  a-v.pom\n",
+                properties.getProperty("qaBillOfMaterials.section.g:a:v"));
+        assertEquals("", properties.getProperty("qaBillOfMaterials.section.g:unknown:v"));
+    }
     
+    @Test
+    public void testExecuteKeepsContentVerbatim() throws IOException, MojoExecutionException, MojoFailureException {
+        final String text = "# g:a:v user=mirko\r\n"
+                + "# a comment which is no section\r\n"
+                + "\r\n"
+                + "da39a3ee5e6b4b0d3255bfef95601890afd80709  a-v.pom";
+        final File bomFile = temporaryFolder.newFile("bill-of-materials.txt");
+        for (final Compression compression : Compression.values()) {
+            Files.write(compression.compress(text.getBytes(Charsets.UTF_8)), bomFile);
+            properties.clear();
+            final ReadBillOfMaterialsMojo instance = createReadBillOfMaterialsMojo(bomFile.getPath());
+            instance.setProperties(true, Collections.<String>emptyList());
+            instance.execute();
+            assertEquals(compression.name(), text, properties.getProperty("qaBillOfMaterials"));
+            assertEquals(compression.name(), "1", properties.getProperty("qaBillOfMaterials.entries"));
+        }
+    }
+
+    @Test
+    public void testExecuteRebuildsContentOfBinary() throws IOException, MojoExecutionException,
+            MojoFailureException {
+        final File textFile = new File("target/test-classes/ReadBillOfMaterialsMojoTest/bill-of-materials.txt");
+        final File bomFile = temporaryFolder.newFile("bill-of-materials.bin");
+        BinaryBillOfMaterials.convertToBinary(textFile, bomFile);
+        final ReadBillOfMaterialsMojo instance = createReadBillOfMaterialsMojo(bomFile.getPath());
+        instance.setProperties(true, Collections.<String>emptyList());
+        instance.execute();
+        assertEquals(Files.toString(textFile, Charsets.UTF_8), properties.getProperty("qaBillOfMaterials"));
+    }
+
     @Test
     @SuppressWarnings("ResultOfObjectAllocationIgnored")
     public void testDefaultConstructor() {
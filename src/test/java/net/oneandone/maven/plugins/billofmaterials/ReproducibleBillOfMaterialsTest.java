@@ -0,0 +1,50 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class ReproducibleBillOfMaterialsTest {
+
+    @Test
+    public void testToCanonicalText() throws IOException {
+        final String content = "# company:child2:1.0 user=mirko\n"
+                + "df633b963220ba124ffa80eb6ceab676934bb387  child2-1.0.jar\n"
+                + "# company:child1:1.0 user=jenkins\n"
+                + "082fa2206c4a00e3f428e9100199a0337ad42fdb  child1-1.0.pom\n"
+                + "8294565e2a5d99b548b111fe6262719331436143  child1-1.0.jar\n"
+                + "SHA256 (child1-1.0.jar) = e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855\n"
+                + "# company:child2:1.0 user=mirko\n"
+                + "df633b963220ba124ffa80eb6ceab676934bb387  child2-1.0.jar\n";
+        final BillOfMaterials billOfMaterials = BillOfMaterials.parse(
+                new ByteArrayInputStream(content.getBytes(Charsets.UTF_8)));
+        assertEquals("# company:child1:1.0\n"
+                + "8294565e2a5d99b548b111fe6262719331436143  child1-1.0.jar\n"
+                + "SHA256 (child1-1.0.jar) = e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855\n"
+                + "082fa2206c4a00e3f428e9100199a0337ad42fdb  child1-1.0.pom\n"
+                + "# company:child2:1.0\n"
+                + "df633b963220ba124ffa80eb6ceab676934bb387  child2-1.0.jar\n",
+                ReproducibleBillOfMaterials.toCanonicalText(billOfMaterials));
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.mockito.Mockito.*;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class SharedFileHasherTest {
+
+    private static final Map<String, HashCode> HASHES = ImmutableMap.of(
+            FileHasher.SHA1, HashCode.fromString("da39a3ee5e6b4b0d3255bfef95601890afd80709"));
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final FileHasher delegate = mock(FileHasher.class);
+
+    private final SharedFileHasher.Registry registry = new SharedFileHasher.Registry();
+
+    private File artifact;
+
+    @Before
+    public void createArtifact() throws IOException {
+        artifact = temporaryFolder.newFile("a-v.jar");
+        when(delegate.getAlgorithms()).thenReturn(Collections.singletonList(FileHasher.SHA1));
+    }
+
+    @Test
+    public void testHashesFileOnlyOnceForAllThreads() throws Exception {
+        when(delegate.hash(any(File.class))).thenReturn(HASHES);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Map<String, HashCode>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                final SharedFileHasher sut = new SharedFileHasher(delegate, registry);
+                futures.add(executor.submit(new Callable<Map<String, HashCode>>() {
+                    @Override
+                    public Map<String, HashCode> call() throws IOException {
+                        return sut.hash(artifact);
+                    }
+                }));
+            }
+            for (final Future<Map<String, HashCode>> future : futures) {
+                assertEquals(HASHES, future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(delegate, times(1)).hash(any(File.class));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void testSamePathIsHashedOnce() throws IOException {
+        when(delegate.hash(any(File.class))).thenReturn(HASHES);
+        final SharedFileHasher sut = new SharedFileHasher(delegate, registry);
+        assertEquals(HASHES, sut.hash(artifact));
+        assertEquals(HASHES, sut.hash(new File(artifact.getParentFile(), "../" + artifact.getParentFile().getName()
+                + "/" + artifact.getName())));
+        verify(delegate, times(1)).hash(any(File.class));
+    }
+
+    @Test
+    public void testChangedFileIsHashedAgain() throws IOException {
+        when(delegate.hash(any(File.class))).thenReturn(HASHES);
+        final SharedFileHasher sut = new SharedFileHasher(delegate, registry);
+        sut.hash(artifact);
+        Files.write("changed", artifact, Charsets.UTF_8);
+        sut.hash(artifact);
+        verify(delegate, times(2)).hash(artifact);
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void testFailureIsNotShared() throws IOException {
+        when(delegate.hash(artifact)).thenThrow(new IOException("broken")).thenReturn(HASHES);
+        final SharedFileHasher sut = new SharedFileHasher(delegate, registry);
+        try {
+            sut.hash(artifact);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("broken", e.getMessage());
+        }
+        assertEquals(HASHES, sut.hash(artifact));
+    }
+
+    @Test
+    public void testCancelledOwnerDoesNotFailWaitingModule() throws Exception {
+        final CountDownLatch ownerStarted = new CountDownLatch(1);
+        when(delegate.hash(artifact)).thenAnswer(new Answer<Map<String, HashCode>>() {
+            @Override
+            public Map<String, HashCode> answer(InvocationOnMock invocation) throws IOException {
+                ownerStarted.countDown();
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException e) {
+                    throw new ClosedByInterruptException();
+                }
+                return HASHES;
+            }
+        }).thenReturn(HASHES);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Map<String, HashCode>> owner = executor.submit(hashing(artifact));
+            assertTrue(ownerStarted.await(10, TimeUnit.SECONDS));
+            final Future<Map<String, HashCode>> waiting = executor.submit(hashing(artifact));
+            // fail-fast of the first module.
+            owner.cancel(true);
+            assertEquals(HASHES, waiting.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(delegate, times(2)).hash(artifact);
+    }
+
+    private Callable<Map<String, HashCode>> hashing(final File file) {
+        final SharedFileHasher sut = new SharedFileHasher(delegate, registry);
+        return new Callable<Map<String, HashCode>>() {
+            @Override
+            public Map<String, HashCode> call() throws IOException {
+                return sut.hash(file);
+            }
+        };
+    }
+}
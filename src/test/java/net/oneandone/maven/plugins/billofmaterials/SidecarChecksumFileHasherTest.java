@@ -0,0 +1,133 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.mockito.Mockito.*;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class SidecarChecksumFileHasherTest {
+
+    private static final HashCode EMPTY_SHA1 = HashCode.fromString("da39a3ee5e6b4b0d3255bfef95601890afd80709");
+
+    private static final HashCode OTHER_SHA1 = HashCode.fromString("0000000000000000000000000000000000000001");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final FileHasher delegate = mock(FileHasher.class);
+
+    private File artifact;
+
+    @Before
+    public void createArtifact() throws IOException {
+        artifact = temporaryFolder.newFile("a-v.jar");
+        when(delegate.getAlgorithms()).thenReturn(Collections.singletonList(FileHasher.SHA1));
+        when(delegate.hash(artifact)).thenReturn(ImmutableMap.of(FileHasher.SHA1, EMPTY_SHA1));
+    }
+
+    @Test
+    public void testTrust() throws IOException {
+        writeChecksum(FileHasher.SHA1, OTHER_SHA1.toString().toUpperCase() + "  a-v.jar\n");
+        final SidecarChecksumFileHasher sut = new SidecarChecksumFileHasher(delegate, ChecksumPolicy.TRUST, 100);
+        assertEquals(ImmutableMap.of(FileHasher.SHA1, OTHER_SHA1), sut.hash(artifact));
+        verify(delegate, never()).hash(artifact);
+    }
+
+    @Test
+    public void testIgnore() throws IOException {
+        writeChecksum(FileHasher.SHA1, OTHER_SHA1.toString());
+        final SidecarChecksumFileHasher sut = new SidecarChecksumFileHasher(delegate, ChecksumPolicy.IGNORE, 0);
+        assertEquals(ImmutableMap.of(FileHasher.SHA1, EMPTY_SHA1), sut.hash(artifact));
+    }
+
+    @Test
+    public void testStaleOrMissingChecksumFilesAreNotUsed() throws IOException {
+        final SidecarChecksumFileHasher sut = new SidecarChecksumFileHasher(delegate, ChecksumPolicy.TRUST, 0);
+        assertEquals(EMPTY_SHA1, sut.hash(artifact).get(FileHasher.SHA1));
+        writeChecksum(FileHasher.SHA1, OTHER_SHA1.toString());
+        assertTrue(artifact.setLastModified(
+                SidecarChecksumFileHasher.checksumFileFor(artifact, FileHasher.SHA1).lastModified() + 2000));
+        assertEquals(EMPTY_SHA1, sut.hash(artifact).get(FileHasher.SHA1));
+        verify(delegate, times(2)).hash(artifact);
+    }
+
+    @Test
+    public void testEveryAlgorithmNeedsAChecksumFile() throws IOException {
+        when(delegate.getAlgorithms()).thenReturn(Arrays.asList(FileHasher.SHA1, "SHA-256"));
+        writeChecksum(FileHasher.SHA1, EMPTY_SHA1.toString());
+        final SidecarChecksumFileHasher sut = new SidecarChecksumFileHasher(delegate, ChecksumPolicy.TRUST, 0);
+        assertNull(sut.readChecksums(artifact));
+        final String sha256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+        writeChecksum("SHA-256", sha256);
+        final Map<String, HashCode> checksums = sut.readChecksums(artifact);
+        assertEquals(HashCode.fromString(sha256), checksums.get("SHA-256"));
+    }
+
+    @Test
+    public void testMalformedChecksumFilesAreNotUsed() throws IOException {
+        final SidecarChecksumFileHasher sut = new SidecarChecksumFileHasher(delegate, ChecksumPolicy.TRUST, 0);
+        // odd number of digits.
+        writeChecksum(FileHasher.SHA1, "abc  a-v.jar\n");
+        assertNull(sut.readChecksums(artifact));
+        // a SHA-256 in the .sha1 file.
+        writeChecksum(FileHasher.SHA1, "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+        assertNull(sut.readChecksums(artifact));
+        assertEquals(EMPTY_SHA1, sut.hash(artifact).get(FileHasher.SHA1));
+        verify(delegate).hash(artifact);
+    }
+
+    @Test
+    public void testSampleChecksAllFilesWithHundredPercent() throws IOException {
+        writeChecksum(FileHasher.SHA1, OTHER_SHA1.toString());
+        assertEquals(OTHER_SHA1, new SidecarChecksumFileHasher(delegate, ChecksumPolicy.SAMPLE, 0)
+                .hash(artifact).get(FileHasher.SHA1));
+        try {
+            new SidecarChecksumFileHasher(delegate, ChecksumPolicy.SAMPLE, 100).hash(artifact);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("does not match a-v.jar.sha1"));
+        }
+    }
+
+    @Test
+    public void testVerify() throws IOException {
+        writeChecksum(FileHasher.SHA1, EMPTY_SHA1.toString());
+        final SidecarChecksumFileHasher sut = new SidecarChecksumFileHasher(delegate, ChecksumPolicy.VERIFY, 0);
+        assertEquals(EMPTY_SHA1, sut.hash(artifact).get(FileHasher.SHA1));
+        verify(delegate).hash(artifact);
+    }
+
+    private void writeChecksum(String algorithm, String content) throws IOException {
+        Files.write(content, SidecarChecksumFileHasher.checksumFileFor(artifact, algorithm), Charsets.UTF_8);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class ThrottlingFileHasherTest {
+
+    private static final Map<String, HashCode> HASHES = ImmutableMap.of(
+            FileHasher.SHA1, HashCode.fromString("da39a3ee5e6b4b0d3255bfef95601890afd80709"));
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testMaxOpenFiles() throws Exception {
+        final ThrottlingFileHasher.Limits limits = new ThrottlingFileHasher.Limits(2, 0);
+        assertEquals(2, hashConcurrently(limits, 10));
+        assertEquals(1, limits.size());
+        assertEquals(2, limits.permitsFor(temporaryFolder.getRoot()).availableOpenFiles());
+    }
+
+    @Test
+    public void testMaxInFlightBytes() throws Exception {
+        // two files of 1500 bytes do not fit into 2048 bytes.
+        assertEquals(1, hashConcurrently(new ThrottlingFileHasher.Limits(0, 2048), 1500));
+    }
+
+    @Test
+    public void testFileLargerThanMaxInFlightBytes() throws Exception {
+        final ThrottlingFileHasher.Permits permits = new ThrottlingFileHasher.Permits(0, 4096);
+        assertEquals(4, permits.unitsOf(1024 * 1024));
+        assertEquals(1, permits.unitsOf(0));
+        assertEquals(0, new ThrottlingFileHasher.Permits(1, 0).unitsOf(1024 * 1024));
+    }
+
+    /**
+     * Hashes eight files of the given size from eight threads.
+     *
+     * @return the maximum number of files hashed at the same time.
+     */
+    private int hashConcurrently(ThrottlingFileHasher.Limits limits, int size) throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maximum = new AtomicInteger();
+        final ThrottlingFileHasher sut = new ThrottlingFileHasher(new FileHasher() {
+            @Override
+            public Map<String, HashCode> hash(File file) throws IOException {
+                final int current = running.incrementAndGet();
+                while (true) {
+                    final int seen = maximum.get();
+                    if (seen >= current || maximum.compareAndSet(seen, current)) {
+                        break;
+                    }
+                }
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                } finally {
+                    running.decrementAndGet();
+                }
+                return HASHES;
+            }
+
+            @Override
+            public List<String> getAlgorithms() {
+                return Collections.singletonList(FileHasher.SHA1);
+            }
+        }, limits);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Map<String, HashCode>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                final File file = temporaryFolder.newFile("a-" + i + ".jar");
+                Files.write(new byte[size], file);
+                futures.add(executor.submit(new Callable<Map<String, HashCode>>() {
+                    @Override
+                    public Map<String, HashCode> call() throws IOException {
+                        return sut.hash(file);
+                    }
+                }));
+            }
+            for (final Future<Map<String, HashCode>> future : futures) {
+                assertEquals(HASHES, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return maximum.get();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 1&1 Internet AG, https://github.com/1and1/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.oneandone.maven.plugins.billofmaterials;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.mockito.Mockito.*;
+
+/**
+ *
+ * @author Mirko Friedenhagen
+ */
+public class VerifyBillOfMaterialsMojoTest {
+
+    private static final String EMPTY_SHA1 = "da39a3ee5e6b4b0d3255bfef95601890afd80709";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final MavenSession session = mock(MavenSession.class);
+
+    private File bomFile;
+
+    @Before
+    public void createReactorAndLocalRepository() throws IOException {
+        final File localRepository = temporaryFolder.newFolder("repository");
+        final File installed = new File(localRepository, "com/example/a/v");
+        assertTrue(installed.mkdirs());
+        Files.touch(new File(installed, "a-v.jar"));
+        Files.write("changed", new File(installed, "a-v-sources.jar"), Charsets.UTF_8);
+        final ArtifactRepository artifactRepository = mock(ArtifactRepository.class);
+        when(artifactRepository.getBasedir()).thenReturn(localRepository.getPath());
+        when(session.getLocalRepository()).thenReturn(artifactRepository);
+
+        final File reactorJar = temporaryFolder.newFile("r-v.jar");
+        final File reactorPom = temporaryFolder.newFile("pom.xml");
+        final MavenProject project = mock(MavenProject.class);
+        when(project.getArtifactId()).thenReturn("r");
+        when(project.getVersion()).thenReturn("v");
+        when(project.getFile()).thenReturn(reactorPom);
+        final Artifact artifact = mock(Artifact.class);
+        when(artifact.getFile()).thenReturn(reactorJar);
+        when(project.getArtifact()).thenReturn(artifact);
+        when(project.getAttachedArtifacts()).thenReturn(new ArrayList<Artifact>());
+        when(session.getProjects()).thenReturn(Arrays.asList(project));
+
+        bomFile = temporaryFolder.newFile("bill-of-materials.txt");
+    }
+
+    @Test
+    public void testExecuteSuccess() throws Exception {
+        writeBom("# com.example:a:v user=wwhite",
+                EMPTY_SHA1 + "  a-v.jar",
+                "# com.example:r:v user=wwhite",
+                EMPTY_SHA1 + "  r-v.jar",
+                EMPTY_SHA1 + "  r-v.pom");
+        final Log log = mock(Log.class);
+        final VerifyBillOfMaterialsMojo sut = new VerifyBillOfMaterialsMojo(bomFile, null, session);
+        sut.setLog(log);
+        sut.execute();
+        verify(log).info("Verified 3 files from " + bomFile);
+    }
+
+    @Test
+    public void testExecuteFindsDependenciesInLocalRepository() throws Exception {
+        writeBom("# com.example:r:v user=wwhite",
+                EMPTY_SHA1 + "  com/example/a/v/a-v.jar");
+        final Log log = mock(Log.class);
+        final VerifyBillOfMaterialsMojo sut = new VerifyBillOfMaterialsMojo(bomFile, null, session);
+        sut.setLog(log);
+        sut.execute();
+        verify(log).info("Verified 1 files from " + bomFile);
+    }
+
+    @Test
+    public void testExecuteReportsAllFailures() throws Exception {
+        writeBom("# com.example:a:v user=wwhite",
+                EMPTY_SHA1 + "  a-v.jar",
+                EMPTY_SHA1 + "  a-v-sources.jar",
+                EMPTY_SHA1 + "  a-v-tests.jar");
+        final VerifyBillOfMaterialsMojo sut = new VerifyBillOfMaterialsMojo(bomFile, null, session);
+        try {
+            sut.execute();
+            fail("Expected MojoFailureException");
+        } catch (MojoFailureException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Verification of 2 of 3 files"));
+            assertTrue(e.getMessage(), e.getMessage().contains("a-v-sources.jar"));
+            assertTrue(e.getMessage(), e.getMessage().contains("a-v-tests.jar (com.example:a:v): not found"));
+        }
+    }
+
+    @Test
+    public void testExecuteIgnoresMissingFiles() throws Exception {
+        writeBom("# com.example:a:v user=wwhite",
+                EMPTY_SHA1 + "  a-v-tests.jar");
+        final Log log = mock(Log.class);
+        final VerifyBillOfMaterialsMojo sut = new VerifyBillOfMaterialsMojo(bomFile, null, session);
+        sut.setLog(log);
+        sut.setFailOnMissing(false);
+        sut.execute();
+        verify(log).warn("a-v-tests.jar (com.example:a:v): not found in reactor or local repository");
+    }
+
+    @Test
+    @SuppressWarnings("ResultOfObjectAllocationIgnored")
+    public void testDefaultConstructor() {
+        new VerifyBillOfMaterialsMojo();
+    }
+
+    private void writeBom(String... lines) throws IOException {
+        Files.write(Joiner.on("\n").join(lines) + "\n", bomFile, Charsets.UTF_8);
+    }
+}